@@ -0,0 +1,97 @@
+package za.redbridge.simulator.benchmark;
+
+import org.encog.mathutil.randomize.factory.BasicRandomFactory;
+import org.encog.neural.neat.NEATCODEC;
+import org.encog.neural.neat.NEATNetwork;
+import org.encog.neural.neat.NEATPopulation;
+
+import java.io.IOException;
+
+import za.redbridge.simulator.Morphology;
+import za.redbridge.simulator.Simulation;
+import za.redbridge.simulator.config.ExperimentConfig;
+import za.redbridge.simulator.config.MorphologyConfig;
+import za.redbridge.simulator.config.SchemaConfig;
+import za.redbridge.simulator.config.SimConfig;
+import za.redbridge.simulator.factories.ConfigurableResourceFactory;
+import za.redbridge.simulator.factories.HomogeneousRobotFactory;
+import za.redbridge.simulator.factories.ResourceFactory;
+import za.redbridge.simulator.factories.RobotFactory;
+import za.redbridge.simulator.neat.NEATPhenotype;
+
+/**
+ * Builds the objects the benchmarks run on from the checked in configs, the same way training
+ * does. Everything random is seeded so that every run of a benchmark does the same work.
+ */
+final class BenchmarkFixtures {
+
+    static final String EXPERIMENT_CONFIG = "configs/experimentConfig.yml";
+    static final String SIM_CONFIG = "configs/simConfig.yml";
+    static final String SCHEMA_CONFIG = "configs/schemaConfig.yml";
+    static final String MORPHOLOGY_CONFIG = "configs/morphologyConfig.yml";
+
+    private BenchmarkFixtures() {
+    }
+
+    static SimConfig simConfig(int iterations) {
+        SimConfig simConfig;
+        try {
+            simConfig = new SimConfig(SIM_CONFIG);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not load the simulation config", e);
+        }
+        simConfig.setConfigNumber(new ExperimentConfig(EXPERIMENT_CONFIG).getConfigNumber());
+        simConfig.setSimulationIterations(iterations);
+        return simConfig;
+    }
+
+    static SchemaConfig schemaConfig() {
+        return new SchemaConfig(SCHEMA_CONFIG, 10, 3);
+    }
+
+    static Morphology morphology() {
+        try {
+            MorphologyConfig morphologyConfig = new MorphologyConfig(MORPHOLOGY_CONFIG);
+            return morphologyConfig.getMorphology(new ExperimentConfig(EXPERIMENT_CONFIG).getMorphologyNumber());
+        } catch (Exception e) {
+            throw new RuntimeException("Could not load the morphology config", e);
+        }
+    }
+
+    /**
+     * A randomly initialised controller for the morphology.
+     * @param morphology the morphology whose sensors feed the network
+     * @param seed seeds the weights and structure of the network
+     */
+    static NEATNetwork network(Morphology morphology, long seed) {
+        NEATPopulation population = new NEATPopulation(morphology.getNumSensors(), 2, 1);
+        population.setRandomNumberFactory(new BasicRandomFactory(seed));
+        population.setInitialConnectionDensity(0.5);
+        population.reset();
+        return (NEATNetwork) new NEATCODEC().decode(population.flatten().get(0));
+    }
+
+    /**
+     * A simulation of a homogeneous team driven by the network, set up the way
+     * {@link za.redbridge.simulator.ScoreCalculator} sets up its simulations.
+     */
+    static Simulation simulation(SimConfig simConfig, Morphology morphology, NEATNetwork network,
+            long seed) {
+        RobotFactory robotFactory = new HomogeneousRobotFactory(new NEATPhenotype(morphology, network),
+                simConfig.getRobotMass(), simConfig.getRobotRadius(), simConfig.getRobotColour(),
+                simConfig.getObjectsRobots());
+
+        String[] resQuantity = {"0", "0", "0"};
+        ResourceFactory resourceFactory = new ConfigurableResourceFactory();
+        resourceFactory.configure(simConfig.getResources(), resQuantity);
+
+        Simulation simulation = new Simulation(simConfig, robotFactory, resourceFactory, schemaConfig());
+        simulation.setReuseWorld(true);
+        simulation.setStopOnceCollected(true);
+        simulation.setTeamInference(true);
+        simulation.setHeadless(true);
+        simulation.setSeed(seed);
+        simulation.setPlacementSeed(seed);
+        return simulation;
+    }
+}
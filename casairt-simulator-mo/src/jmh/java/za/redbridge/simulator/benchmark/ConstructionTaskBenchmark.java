@@ -0,0 +1,61 @@
+package za.redbridge.simulator.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import za.redbridge.simulator.ConstructionTask;
+import za.redbridge.simulator.Morphology;
+import za.redbridge.simulator.Simulation;
+
+/**
+ * One construction task step on a layout reached by running a simulation for a number of steps
+ * first, so that resources have been pushed together and construction zones exist.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConstructionTaskBenchmark {
+
+    @Param({"1", "2", "3"})
+    public long seed;
+
+    @Param({"0", "400"})
+    public int stepsBeforehand;
+
+    private Simulation simulation;
+    private ConstructionTask construction;
+
+    @Setup
+    public void setUp() {
+        Morphology morphology = BenchmarkFixtures.morphology();
+        simulation = BenchmarkFixtures.simulation(BenchmarkFixtures.simConfig(stepsBeforehand),
+                morphology, BenchmarkFixtures.network(morphology, seed), seed);
+        simulation.start();
+        for (int i = 0; i < stepsBeforehand; i++) {
+            if (!simulation.stepPhases()) {
+                break;
+            }
+        }
+        construction = simulation.getConstructionTask();
+    }
+
+    @Benchmark
+    public ConstructionTask step() {
+        construction.step(simulation);
+        return construction;
+    }
+}
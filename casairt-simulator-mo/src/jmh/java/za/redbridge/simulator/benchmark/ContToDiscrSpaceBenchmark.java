@@ -0,0 +1,96 @@
+package za.redbridge.simulator.benchmark;
+
+import org.jbox2d.common.Vec2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import za.redbridge.simulator.ContToDiscrSpace;
+import za.redbridge.simulator.Morphology;
+import za.redbridge.simulator.Simulation;
+import za.redbridge.simulator.object.ResourceObject;
+
+/**
+ * Lookups in the discrete construction grid for every resource of a simulation that has been run
+ * for a number of steps, so that part of the grid is occupied.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ContToDiscrSpaceBenchmark {
+
+    @Param({"1"})
+    public long seed;
+
+    @Param({"400"})
+    public int stepsBeforehand;
+
+    private ContToDiscrSpace discr;
+    private ResourceObject[] resources;
+    private Vec2[] positions;
+
+    @Setup
+    public void setUp() {
+        Morphology morphology = BenchmarkFixtures.morphology();
+        Simulation simulation = BenchmarkFixtures.simulation(BenchmarkFixtures.simConfig(stepsBeforehand),
+                morphology, BenchmarkFixtures.network(morphology, seed), seed);
+        simulation.start();
+        for (int i = 0; i < stepsBeforehand; i++) {
+            if (!simulation.stepPhases()) {
+                break;
+            }
+        }
+
+        discr = simulation.getDiscreteGrid();
+        List<ResourceObject> placed = simulation.getResources();
+        resources = placed.toArray(new ResourceObject[placed.size()]);
+        positions = new Vec2[resources.length];
+        for (int i = 0; i < resources.length; i++) {
+            positions[i] = new Vec2(resources[i].getBody().getPosition());
+        }
+    }
+
+    @Benchmark
+    public void gridPositions(Blackhole blackhole) {
+        for (Vec2 position : positions) {
+            blackhole.consume(discr.getGridPos(position));
+        }
+    }
+
+    @Benchmark
+    public void nearestDiscretePositions(Blackhole blackhole) {
+        for (Vec2 position : positions) {
+            blackhole.consume(discr.getNearestDiscrPos(position));
+        }
+    }
+
+    @Benchmark
+    public void neighbourhoods(Blackhole blackhole) {
+        for (ResourceObject resource : resources) {
+            blackhole.consume(discr.getResNeighbourhood(resource));
+        }
+    }
+
+    @Benchmark
+    public void zones(Blackhole blackhole) {
+        for (ResourceObject resource : resources) {
+            int zone = discr.getZone(resource);
+            blackhole.consume(zone < 0 ? 0 : discr.getZoneValue(zone));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package za.redbridge.simulator.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import sim.util.Double2D;
+import za.redbridge.simulator.Morphology;
+import za.redbridge.simulator.neat.NEATPhenotype;
+import za.redbridge.simulator.sensor.AgentSensor;
+
+/**
+ * One controller step of a NEAT phenotype, with readings either already in the phenotype's input
+ * buffer (as when a robot senses) or in separate lists that have to be copied in.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NEATPhenotypeBenchmark {
+
+    @Param({"1", "2", "3"})
+    public long seed;
+
+    private NEATPhenotype phenotype;
+    private List<List<Double>> sensorReadings;
+    private List<List<Double>> copiedReadings;
+
+    @Setup
+    public void setUp() {
+        Morphology morphology = BenchmarkFixtures.morphology();
+        phenotype = new NEATPhenotype(morphology, BenchmarkFixtures.network(morphology, seed));
+
+        Random random = new Random(seed);
+        sensorReadings = new ArrayList<>();
+        copiedReadings = new ArrayList<>();
+        for (AgentSensor sensor : phenotype.getSensors()) {
+            List<Double> reading = sensor.getPreviousReadings();
+            List<Double> copy = new ArrayList<>();
+            for (int i = 0; i < sensor.getReadingSize(); i++) {
+                copy.add(random.nextDouble());
+            }
+            sensorReadings.add(reading);
+            copiedReadings.add(copy);
+        }
+        double[] inputs = morphology.getInputs();
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = random.nextDouble();
+        }
+    }
+
+    @Benchmark
+    public Double2D stepSensorReadings() {
+        return phenotype.step(sensorReadings);
+    }
+
+    @Benchmark
+    public Double2D stepCopiedReadings() {
+        return phenotype.step(copiedReadings);
+    }
+}
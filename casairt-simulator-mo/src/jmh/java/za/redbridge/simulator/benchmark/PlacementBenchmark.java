@@ -0,0 +1,68 @@
+package za.redbridge.simulator.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import za.redbridge.simulator.LayoutLibrary;
+import za.redbridge.simulator.Morphology;
+import za.redbridge.simulator.Simulation;
+import za.redbridge.simulator.config.SimConfig;
+
+/**
+ * Starting a simulation run on a reused world, either placing its objects or restoring them from
+ * a layout library. Each start cycles through the same layouts, so both place the same scenarios.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PlacementBenchmark {
+
+    private static final int LAYOUTS = 16;
+
+    @Param({"false", "true"})
+    public boolean restore;
+
+    private Simulation simulation;
+    private LayoutLibrary library;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        SimConfig simConfig = BenchmarkFixtures.simConfig(800);
+        Morphology morphology = BenchmarkFixtures.morphology();
+        library = LayoutLibrary.generate(BenchmarkFixtures.simulation(simConfig, morphology,
+                BenchmarkFixtures.network(morphology, 1), 1), simConfig, BenchmarkFixtures.schemaConfig(),
+                LAYOUTS);
+        simulation = BenchmarkFixtures.simulation(simConfig, morphology,
+                BenchmarkFixtures.network(morphology, 1), 1);
+    }
+
+    @Benchmark
+    public Simulation start() {
+        int layout = next;
+        next = (next + 1) % LAYOUTS;
+        if (restore) {
+            simulation.setLayout(library.get(layout));
+        }
+        else {
+            simulation.setPlacementSeed(layout);
+        }
+        simulation.start();
+        simulation.finish();
+        return simulation;
+    }
+}
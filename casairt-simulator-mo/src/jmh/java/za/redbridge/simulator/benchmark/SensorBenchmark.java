@@ -0,0 +1,102 @@
+package za.redbridge.simulator.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import za.redbridge.simulator.Morphology;
+import za.redbridge.simulator.Simulation;
+import za.redbridge.simulator.khepera.BottomProximitySensor;
+import za.redbridge.simulator.khepera.ColourProximitySensor;
+import za.redbridge.simulator.khepera.ColourRangedSensor;
+import za.redbridge.simulator.khepera.ConstructionSensor;
+import za.redbridge.simulator.khepera.LowResCameraSensor;
+import za.redbridge.simulator.khepera.ProximitySensor;
+import za.redbridge.simulator.khepera.UltrasonicSensor;
+import za.redbridge.simulator.khepera.WallCollisionSensor;
+import za.redbridge.simulator.object.RobotObject;
+import za.redbridge.simulator.sensor.AgentSensor;
+
+/**
+ * A reading from each khepera sensor type, taken from a robot in a populated environment. Covers
+ * finding the fixtures in the sensor's field and provideReading turning them into a reading.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SensorBenchmark {
+
+    @Param({"Proximity", "Ultrasonic", "BottomProximity", "ColourProximity", "ColourRanged",
+            "Construction", "LowResCamera", "WallCollision"})
+    public String sensorType;
+
+    @Param({"1"})
+    public long seed;
+
+    private AgentSensor[] sensors;
+
+    @Setup
+    public void setUp() {
+        Morphology morphology = BenchmarkFixtures.morphology();
+        Simulation simulation = BenchmarkFixtures.simulation(BenchmarkFixtures.simConfig(1),
+                morphology, BenchmarkFixtures.network(morphology, seed), seed);
+        simulation.start();
+
+        // one sensor on every robot so the readings cover a range of surroundings
+        List<RobotObject> robots = simulation.getRobots();
+        sensors = new AgentSensor[robots.size()];
+        for (int i = 0; i < robots.size(); i++) {
+            sensors[i] = createSensor(sensorType);
+            sensors[i].attach(robots.get(i));
+        }
+        // one physics step so the sensor fixtures are in the contact lists
+        simulation.stepPhases();
+    }
+
+    // reading sizes as in MorphologyConfig
+    private static AgentSensor createSensor(String type) {
+        switch (type) {
+            case "Proximity":
+                return new ProximitySensor(0f, 0f, 1);
+            case "Ultrasonic":
+                return new UltrasonicSensor(0f, 0f, 1);
+            case "BottomProximity":
+                return new BottomProximitySensor();
+            case "ColourProximity":
+                return new ColourProximitySensor(0f, 0f, 3);
+            case "ColourRanged":
+                return new ColourRangedSensor(0f, 0f, 3);
+            case "Construction":
+                return new ConstructionSensor(0f, 0f, 3);
+            case "LowResCamera":
+                return new LowResCameraSensor(0f, 0f, 1);
+            case "WallCollision":
+                return new WallCollisionSensor(0f, 0f, 1);
+            default:
+                throw new IllegalArgumentException("Unknown sensor type: " + type);
+        }
+    }
+
+    @Benchmark
+    public List<Double> sense() {
+        List<Double> reading = null;
+        for (AgentSensor sensor : sensors) {
+            reading = sensor.sense();
+        }
+        return reading;
+    }
+}
@@ -0,0 +1,53 @@
+package za.redbridge.simulator.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import za.redbridge.simulator.Morphology;
+import za.redbridge.simulator.Simulation;
+
+/**
+ * A whole simulation run, from placing the objects to the last step, on a fixed layout.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SimulationBenchmark {
+
+    @Param({"1", "2", "3"})
+    public long seed;
+
+    @Param({"800"})
+    public int iterations;
+
+    private Simulation simulation;
+
+    @Setup
+    public void setUp() {
+        Morphology morphology = BenchmarkFixtures.morphology();
+        simulation = BenchmarkFixtures.simulation(BenchmarkFixtures.simConfig(iterations), morphology,
+                BenchmarkFixtures.network(morphology, seed), seed);
+    }
+
+    @Benchmark
+    public double run() {
+        // every run starts from the same state
+        simulation.setSeed(seed);
+        simulation.run();
+        return simulation.getFitnessObjectives()[0];
+    }
+}
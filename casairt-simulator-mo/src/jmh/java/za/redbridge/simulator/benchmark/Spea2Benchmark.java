@@ -0,0 +1,91 @@
+package za.redbridge.simulator.benchmark;
+
+import org.encog.ml.ea.genome.Genome;
+import org.encog.neural.neat.training.NEATGenome;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import za.redbridge.simulator.moneat.Objective;
+import za.redbridge.simulator.moneat.ObjectiveStore;
+import za.redbridge.simulator.moneat.SPEA2;
+
+/**
+ * SPEA2 fitness assignment and archive truncation on populations with random scores for the
+ * three objectives used in training.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Spea2Benchmark {
+
+    @Param({"150", "1000", "10000"})
+    public int populationSize;
+
+    @Param({"1"})
+    public long seed;
+
+    private ObjectiveStore store;
+    private SPEA2 spea2;
+    private List<Genome> genomes;
+    private List<Genome> archive;
+    private int archiveSize;
+
+    @Setup
+    public void setUp() {
+        ArrayList<Objective> objectives = new ArrayList<>();
+        objectives.add(new Objective("Adjacent", true));
+        objectives.add(new Objective("Schema", true));
+        objectives.add(new Objective("ResourceDistance", false));
+
+        // the archive size and k used in training
+        archiveSize = populationSize / 3;
+        spea2 = new SPEA2((int) Math.sqrt(populationSize + archiveSize));
+        store = new ObjectiveStore(objectives);
+
+        Random random = new Random(seed);
+        genomes = new ArrayList<>();
+        for (int i = 0; i < populationSize + archiveSize; i++) {
+            Genome genome = new NEATGenome();
+            ArrayList<Double> values = new ArrayList<>();
+            for (int j = 0; j < objectives.size(); j++) {
+                // scores are coarse so that some genomes tie, as they do in training
+                values.add(Math.floor(random.nextDouble() * 100) / 100);
+            }
+            store.put(genome, values);
+            genomes.add(genome);
+        }
+
+        // truncation works on an archive over its size by a third
+        archive = new ArrayList<>(genomes.subList(0, archiveSize + archiveSize / 3));
+    }
+
+    @Benchmark
+    public List<Genome> speaFitnessAssignment() {
+        spea2.assignFitness(genomes, store);
+        return genomes;
+    }
+
+    @Benchmark
+    public List<Genome> truncateArchive() {
+        List<Genome> truncated = new ArrayList<>(archive);
+        spea2.truncate(truncated, archiveSize, store);
+        return truncated;
+    }
+}
@@ -57,11 +57,14 @@ public class ConstructionTask implements Steppable{
 
     private int nConstructedResources;
     private int totalResourceValue = 0;
+    private double totalValue = 0D;
     private final int schemaNumber;
     private final ArrayList<ResourceObject> globalConstructionOrder;
     private ContToDiscrSpace discreteGrid;
+    private final ResourceSpatialIndex resourceIndex;
 
     private ConstructionZone finalConstructionZone = new ConstructionZone(-1);
+    private boolean complete = false;
 
     public ConstructionTask(SchemaConfig schema, ArrayList<ResourceObject> r, ArrayList<RobotObject> robots, World world, int schemaNumber, double envWidth, double envHeight){
         this.schema = schema;
@@ -76,12 +79,14 @@ public class ConstructionTask implements Steppable{
 
         for (ResourceObject res : resources) {
             totalResourceValue += res.getValue();
+            totalValue += res.getValue();
         }
 
         double numResources = (double)resources.size();
         int maxCZs = (int)Math.floor(numResources/2D);
         constructionZones = new ArrayList<ConstructionZone>();
         globalConstructionOrder = new ArrayList<>();
+        resourceIndex = new ResourceSpatialIndex(resources, envWidth, envHeight);
     }
 
     /**
@@ -101,27 +106,28 @@ public class ConstructionTask implements Steppable{
         Simulation s = (Simulation) simState;
         discreteGrid = s.getDiscreteGrid();
 
-        // checks if all resources are constructed
-        if (discreteGrid.getAllResources().size() == resources.size()) {
-            System.out.println("All resources constructed!");
-            s.finish();
+        // checks if all resources are constructed, the simulation's termination policy stops the run
+        if (discreteGrid.getNumOccupied() == resources.size()) {
+            if (!complete) {
+                System.out.println("All resources constructed!");
+                complete = true;
+            }
+            return;
         }
 
-        // updates the adjacent list for each resource
-        for (ResourceObject resource : resources) {
-            resource.updateAdjacent(resources);
-        }
+        // updates the adjacent list for each resource that has moved or has a moved resource nearby
+        resourceIndex.updateAdjacency();
 
         for(ResourceObject resource : resources){
             if (!resource.isConstructed()) {
-                String [] resAdjacentList = resource.getAdjacentList();
-                for (int i = 0; i < resAdjacentList.length; i++) {
+                int [] resAdjacentTypes = resource.getAdjacentTypes();
+                for (int i = 0; i < resAdjacentTypes.length; i++) {
                     if (constructionZones.size()==0) {
-                        if (!resAdjacentList[i].equals("_")) {
+                        if (resAdjacentTypes[i] != 0) {
                             ResourceObject neighbour = resource.getAdjacentResources()[i];
                             if (resource.pushedByMaxRobots() || neighbour.pushedByMaxRobots()) {
                                 //If both resources are connected correctly according to the schema
-                                if (((schema.checkConfig(schemaNumber, resource.getType(), resAdjacentList)/resource.getNumSidesConnectedTo()) == 1)) {
+                                if (((schema.checkConfig(schemaNumber, resource.getTypeIndex(), resAdjacentTypes)/resource.getNumSidesConnectedTo()) == 1)) {
                                     if (discreteGrid.canBeConnected(resource, neighbour, i)) {
                                         numCZsStarted ++;
                                         globalConstructionOrder.add(resource);
@@ -151,10 +157,10 @@ public class ConstructionTask implements Steppable{
                         }
                     }
                     else {
-                        if ((!resAdjacentList[i].equals("_")) && (resource.pushedByMaxRobots())) {
+                        if ((resAdjacentTypes[i] != 0) && (resource.pushedByMaxRobots())) {
                             // boolean shouldSTartNewCZ = true;
                             ResourceObject neighbour = resource.getAdjacentResources()[i];
-                            if (neighbour.isConstructed() && ((schema.checkConfig(schemaNumber, resource.getType(), resAdjacentList)/resource.getNumSidesConnectedTo()) == 1)) {
+                            if (neighbour.isConstructed() && ((schema.checkConfig(schemaNumber, resource.getTypeIndex(), resAdjacentTypes)/resource.getNumSidesConnectedTo()) == 1)) {
                                 if (discreteGrid.canBeConnected(resource, neighbour, i)) {
                                     int czNum = neighbour.getCzNumber();
                                     globalConstructionOrder.add(resource);
@@ -165,7 +171,7 @@ public class ConstructionTask implements Steppable{
                             else {
                                 if(constructionZones.size()<nConstructionZones){
                                     if (resource.pushedByMaxRobots() || neighbour.pushedByMaxRobots()) {
-                                        if ((schema.checkConfig(schemaNumber, resource.getType(), resAdjacentList)/resource.getNumSidesConnectedTo()) == 1) {
+                                        if ((schema.checkConfig(schemaNumber, resource.getTypeIndex(), resAdjacentTypes)/resource.getNumSidesConnectedTo()) == 1) {
                                             if (discreteGrid.canBeConnected(resource, neighbour, i)) {
                                                 //Update the overall construction order (for Novelty)
                                                 globalConstructionOrder.add(resource);
@@ -203,69 +209,43 @@ public class ConstructionTask implements Steppable{
     }
 
     /**
-     * Updates construction zones. Recursively goes through resources and combines them into construction zones
+     * Returns true once every resource has been added to the discrete grid
+     * @return whether construction is complete
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Updates construction zones. Each construction zone is replaced by the most valuable zone of correctly
+     * connected resources in the discrete grid that it overlaps with.
      */
     public void updateConstructionZones() {
         ArrayList<ConstructionZone> newConstructionZones = new ArrayList<>();
-
-        // check if there are construction zones
-        if (constructionZones.size() > 0) {
-            int czNum = 0;
-            // go through every construction zone
-            for(ConstructionZone cz : constructionZones){
-                // list of possible traversals for a construction zone
-                ArrayList<ArrayList<ResourceObject>> generatedTraversals = new ArrayList<>();
-
-                //For each resource (in order of construction)
-                for (ResourceObject res : cz.getConstructionOrder()) {
-                    int resCZNum = res.getCzNumber();
-                    //Lists to be updated as traversal happens
-                    ArrayList<ResourceObject> traversal = new ArrayList<>();
-                    ArrayList<ResourceObject> ignoreList = new ArrayList<>();
-
-                    //Generate the traversal
-                    discreteGrid.traverseConstructionZone(traversal, res, ignoreList);
-
-                    //If there is no equivalent traversal already generated
-                    if (!ConstructionTask.traversalsContains(traversal, generatedTraversals)) {
-
-                        //Calculate the value of the traversal
-                        int tValue = getConstructionValue(traversal);
-
-                        //If this traversal has a higher value than the starting resource's CZ value
-                        if (tValue >= cz.getTotalResourceValue()) {
-                            // System.out.println("This traversal is more valuable!");
-                            generatedTraversals.add(traversal); //add this traversal to the generated traversals list (should become a CZ)
-                        }
-                    }
-
-                    for (ResourceObject generalResource : resources) {
-                        generalResource.setVisited(false);
-                    }
-                }
-
-                // loop through possibilites and get best
-                if(generatedTraversals.size() > 0){
-                    ArrayList<ResourceObject> bestPossibility = generatedTraversals.get(0);
-                    int bestValue = 0;
-                    for(ArrayList<ResourceObject> possibleTraversal : generatedTraversals){
-                        int tempValue = getConstructionValue(possibleTraversal);
-                        if(tempValue > bestValue){
-                            bestValue = tempValue;
-                            bestPossibility = possibleTraversal;
-                        }
-                    }
-
-                    newConstructionZones.add(new ConstructionZone(bestPossibility, czNum));
-                    czNum++;
+        ArrayList<Integer> usedZones = new ArrayList<>();
+
+        int czNum = 0;
+        for (ConstructionZone cz : constructionZones) {
+            int bestZone = -1;
+            double bestValue = 0D;
+            for (ResourceObject res : cz.getConstructionOrder()) {
+                int zone = discreteGrid.getZone(res);
+                if (zone >= 0 && (bestZone < 0 || discreteGrid.getZoneValue(zone) > bestValue)) {
+                    bestZone = zone;
+                    bestValue = discreteGrid.getZoneValue(zone);
                 }
             }
 
-            constructionZones.clear();
-            for(ConstructionZone cz : newConstructionZones){
-                constructionZones.add(cz);
+            //a zone that merged several construction zones is only kept once
+            if (bestZone >= 0 && bestValue >= cz.getTotalResourceValue() && !usedZones.contains(bestZone)) {
+                usedZones.add(bestZone);
+                newConstructionZones.add(new ConstructionZone(discreteGrid.getZoneResources(bestZone), czNum));
+                czNum++;
             }
         }
+
+        constructionZones.clear();
+        constructionZones.addAll(newConstructionZones);
     }
 
     /**
@@ -280,7 +260,9 @@ public class ConstructionTask implements Steppable{
         Transform newDiscrTransform = new Transform(discreteGrid.addResourceToDiscrSpace(res), new Rot(0f));
 
         xFos.set(newDiscrTransform);
-        res.getPortrayal().setTransform(xFos);
+        if (res.isDrawn()) {
+            res.getPortrayal().setTransform(xFos);
+        }
         res.getBody().setTransform(xFos.p, xFos.q.getAngle());
     }
 
@@ -291,8 +273,8 @@ public class ConstructionTask implements Steppable{
      */
     private int adjacentSides(ResourceObject resource){
         int n = 0;
-        for(int i=0;i<resource.getAdjacentList().length;i++){
-            if(resource.getAdjacentList()[i]!="_"){
+        for(int i=0;i<resource.getAdjacentTypes().length;i++){
+            if(resource.getAdjacentTypes()[i]!=0){
                 n++;
             }
         }
@@ -312,25 +294,6 @@ public class ConstructionTask implements Steppable{
         return value;
     }
 
-    public static boolean traversalsContains(ArrayList<ResourceObject> t, ArrayList<ArrayList<ResourceObject>> traversals) {
-        boolean doesContain = false;
-        for ( ArrayList<ResourceObject> prevTraversal : traversals) {
-            //Loop through prev. traversal and check if all elements are contained in t
-            boolean isTraversalEquiv = true;
-            for (ResourceObject ptRes : prevTraversal) {
-                if (!t.contains(ptRes)) {
-                    isTraversalEquiv = false;
-                    break;
-                }
-            }
-            if (isTraversalEquiv) {
-                doesContain = true;
-                break;
-            }
-        }
-        return doesContain;
-    }
-
     public int[] configResQuantity(int i){
         return schema.getResQuantity(i);
     }
@@ -395,11 +358,6 @@ public class ConstructionTask implements Steppable{
 
         finalConstructionZone = bestConstructionZone;
         fitness = bestValue;
-        double totalValue = 0;
-        for(ResourceObject resource : resources){
-            totalValue += resource.getValue();
-        }
-
         return fitness/totalValue;
     }
 
@@ -475,11 +433,19 @@ public class ConstructionTask implements Steppable{
      * @return int value
      */
     public int getAdjacentPerformance(){
-        ArrayList<ResourceObject> gridResources = discreteGrid.getAllResources();
-        int nTotalResources = gridResources.size();
+        int nTotalResources = discreteGrid.getNumOccupied();
         return nTotalResources;
     }
 
+    /**
+     * Returns the value of the most valuable zone of correctly connected resources in the grid. Kept up to date as
+     * resources are constructed, so it can be read at any step.
+     * @return the value of the largest zone
+     */
+    public double getLargestZoneValue() {
+        return discreteGrid == null ? 0D : discreteGrid.getLargestZoneValue();
+    }
+
     /**
      * Returns the value of the largest construction zone
      * @return int value
@@ -523,8 +489,7 @@ public class ConstructionTask implements Steppable{
      * @return normalized fitness value
      */
     public double calculateAdjacentFitness(){
-        ArrayList<ResourceObject> gridResources = discreteGrid.getAllResources();
-        int nTotalResources = gridResources.size();
+        int nTotalResources = discreteGrid.getNumOccupied();
         double fitness = (double) nTotalResources/(double)resources.size();
         return fitness;
     }
@@ -123,6 +123,7 @@ public class ConstructionZone {
                 if(resource.getValue() > 0) {
                     resOrder.add(resource);
                     resource_count++;
+                    value += resource.getValue();
                 }
 
                 if (resource.getType().equals("A")) {
@@ -145,6 +146,7 @@ public class ConstructionZone {
                     if(resource.getValue() > 0) {
                         resOrder.add(resource);
                         resource_count++;
+                        value += resource.getValue();
                     }
 
                     if (resource.getType().equals("A")) {
@@ -171,10 +173,6 @@ public class ConstructionZone {
      * @return int value
      */
     public int getValue(){
-        int value = 0;
-        for(ResourceObject resource : resOrder){
-            value += resource.getValue();
-        }
         return value;
     }
 
@@ -200,6 +198,7 @@ public class ConstructionZone {
         connectedResources.clear();
         resOrder.clear();
         resource_count = 0;
+        value = 0;
         ACount = 0;
         BCount = 0;
         CCount = 0;
@@ -240,8 +239,7 @@ public class ConstructionZone {
     public int getNumCorrectlyConnected (SchemaConfig schema, int configNum) {
         int numCorrect = 0;
         for (ResourceObject res : connectedResources) {
-            String [] adjacent = res.getAdjacentList();
-            if (schema.checkConfig(configNum, res.getType(), adjacent) == 4) {
+            if (schema.checkConfig(configNum, res.getTypeIndex(), res.getAdjacentTypes()) == 4) {
                 numCorrect++;
             }
         }
@@ -255,15 +253,15 @@ public class ConstructionZone {
     public double getCZCorrectness(SchemaConfig schema, int configNum) {
         double correctness = 0D;
         for (ResourceObject res : connectedResources) {
-            String[] adjacent = res.getAdjacentList();
+            int[] adjacent = res.getAdjacentTypes();
             int sharedSides = 0;  //counter for the number of sides this resource shares with other resources
             for (int i = 0; i < adjacent.length; i++) {
-                if (adjacent[i] != "_") {
+                if (adjacent[i] != 0) {
                     sharedSides++;
                 }
             }
 
-            correctness += schema.checkConfig(configNum, res.getType(), adjacent)/(double)sharedSides;
+            correctness += schema.checkConfig(configNum, res.getTypeIndex(), adjacent)/(double)sharedSides;
         }
         return correctness;
     }
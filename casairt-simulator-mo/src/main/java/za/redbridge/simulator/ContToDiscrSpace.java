@@ -1,16 +1,9 @@
 package za.redbridge.simulator;
 
-import sim.field.grid.ObjectGrid2D;
-import sim.util.Bag;
-import sim.util.IntBag;
-import sim.field.grid.Grid2D;
 import org.jbox2d.common.Vec2;
 import java.util.Arrays;
 
-import java.util.Map;
 import java.util.HashMap;
-import java.util.List;
-import java.util.LinkedList;
 import java.util.ArrayList;
 
 import za.redbridge.simulator.object.ResourceObject;
@@ -31,13 +24,22 @@ public class ContToDiscrSpace {
 	private float hHeight;
 	private int nWidth;
 	private int nHeight;
-	private ObjectGrid2D grid;
-	private Map<Vec2,int[]> spaceToGrid;
-	private final Integer nullPlacer = new Integer(0);
+	//occupant of each grid cell, indexed by y*nWidth + x
+	private final ResourceObject[] cells;
+	private int nOccupied = 0;
+	//disjoint sets of correctly connected cells, the root of each set holds the value of its zone
+	private final int[] zoneParent;
+	private final int[] zoneSize;
+	private final double[] zoneValue;
+	//circular list of the cells in each set
+	private final int[] zoneNext;
+	private double largestZoneValue = 0D;
 	private final float gap;
 	private SchemaConfig schema;
 	private int schemaNumber;
-	private HashMap<ResourceObject, int[]> resToGridPosMap;
+	//grid cells reserved for resources by canBeConnected
+	private HashMap<ResourceObject, Integer> resToGridPosMap;
+	private int modificationCount = 0;
 
 	public ContToDiscrSpace(int nWidth, int nHeight, double resWidth, double resHeight, float gap, SchemaConfig schema, int schemaNumber) {
 		this.schema = schema;
@@ -52,8 +54,12 @@ public class ContToDiscrSpace {
 		centrePoints = new Vec2[nWidth*nHeight];  //rows x cols
 		this.hWidth = (float)this.resWidth/2;
 		this.hHeight = (float)this.resHeight/2;
-		grid = new ObjectGrid2D(nWidth, nHeight);
-		spaceToGrid = new HashMap<>();
+		cells = new ResourceObject[nWidth*nHeight];
+		zoneParent = new int[nWidth*nHeight];
+		zoneSize = new int[nWidth*nHeight];
+		zoneValue = new double[nWidth*nHeight];
+		zoneNext = new int[nWidth*nHeight];
+		Arrays.fill(zoneParent, -1);
 		resToGridPosMap = new HashMap<>();
 		initCentrePoints();
 	}
@@ -71,34 +77,41 @@ public class ContToDiscrSpace {
 				float newY = spaceHeight - (firstP.y + y*dy);
 
 				centrePoints[cnt] = new Vec2(newX, newY);
-				int[] gridPos = {x,y};
-				spaceToGrid.put(centrePoints[cnt], gridPos);
 				cnt++;
 			}
 		}
 	}
 
-	public int[] getGridPos(Vec2 resPos) {
-		if (spaceToGrid.get(resPos) == null) {
-			System.out.println("ISSUE: ");
-			System.out.println("\t resPos = " + resPos);
-		}
-		return spaceToGrid.get(resPos);
+	/**
+	Index of the grid cell whose centre is nearest to the given position
+	**/
+	private int getCell(Vec2 pos) {
+		int x = (int)Math.floor(pos.x/resWidth);
+		int y = (int)Math.floor((spaceHeight - pos.y)/resHeight);
+		x = Math.min(nWidth - 1, Math.max(0, x));
+		y = Math.min(nHeight - 1, Math.max(0, y));
+		return y*nWidth + x;
 	}
 
-	public Vec2 getDiscrPos(int[] gridPos) {
-		Object[][] fieldx = grid.field;
-		Vec2 discrPos = new Vec2();
-
-		for (Map.Entry<Vec2, int[]> entry : spaceToGrid.entrySet()) {
-		    Vec2 dPos = entry.getKey();
-		    int[] gridNums = entry.getValue();
-		    if (Arrays.equals(gridNums, gridPos)) {
-		    	discrPos = dPos;
-		    }
+	//bounds used when reserving cells, the first row and column are never used
+	private boolean isReservable(int x, int y) {
+		return x > 0 && x < nWidth && y > 0 && y < nHeight;
+	}
+
+	private ResourceObject getOccupant(int x, int y) {
+		if (x < 0 || x >= nWidth || y < 0 || y >= nHeight) {
+			return null;
 		}
+		return cells[y*nWidth + x];
+	}
+
+	public int[] getGridPos(Vec2 resPos) {
+		int cell = getCell(resPos);
+		return new int[] {cell % nWidth, cell / nWidth};
+	}
 
-		return discrPos;
+	public Vec2 getDiscrPos(int[] gridPos) {
+		return centrePoints[gridPos[1]*nWidth + gridPos[0]];
 	}
 
 	/**
@@ -110,113 +123,50 @@ public class ContToDiscrSpace {
 	@return true if both resources can be placed without overlapping previous
 	**/
 	public boolean canBeConnected (ResourceObject r1, ResourceObject r2, int connectionType) {
-		//Get discriticesd position of r1
-		int[] r2GridPos;
-		int[] r1GridPos = new int[2];
+		//Get discriticesd position of r2
+		int r2Cell = getCell(r2.getBody().getPosition());
+		int r2x = r2Cell % nWidth;
+		int r2y = r2Cell / nWidth;
 
-		if (r2.isConstructed()) {
-			r2GridPos = spaceToGrid.get(r2.getBody().getPosition());
-		}
-		else {
-			r2GridPos = spaceToGrid.get(getNearestDiscrPos(r2.getBody().getPosition()));
-			if ((r2GridPos[0] > 0 && r2GridPos[0] < grid.field.length)&&(r2GridPos[1] > 0 && r2GridPos[1] < grid.field.length)) {
-				if (grid.get(r2GridPos[0], r2GridPos[1]) != null) {
-					return false;
-				}
-			}
-			else {
+		if (!r2.isConstructed()) {
+			if (!isReservable(r2x, r2y) || cells[r2Cell] != null) {
 				return false;
 			}
 		}
 
 		//Given where r2 is placed, figure out where r1 would need to be placed:
+		int r1x = r2x;
+		int r1y = r2y;
 		//If r2 is to the left of r1
 		if (connectionType == 0) {
-			r1GridPos[0] = r2GridPos[0] + 1;
-			r1GridPos[1] = r2GridPos[1];
-			if ((r1GridPos[0] > 0 && r1GridPos[0] < grid.field.length)&&(r1GridPos[1] > 0 && r1GridPos[1] < grid.field.length)) {
-				//If this position is not taken, return true
-				if (grid.get(r1GridPos[0], r1GridPos[1]) == null) {
-					// grid.set(r1GridPos[0], r1GridPos[1], r1);
-					// grid.set(r2GridPos[0], r2GridPos[1], r2);
-					resToGridPosMap.put(r1, r1GridPos);
-					resToGridPosMap.put(r2, r2GridPos);
-					return true;
-				}
-				else {
-					return false;
-				}
-			}
-			else {
-				return false;
-			}
+			r1x++;
 		}
 		//If r2 is to the right of r1
 		else if (connectionType == 1) {
-			r1GridPos[0] = r2GridPos[0] - 1;
-			r1GridPos[1] = r2GridPos[1];
-			if ((r1GridPos[0] > 0 && r1GridPos[0] < grid.field.length)&&(r1GridPos[1] > 0 && r1GridPos[1] < grid.field.length)) {
-				//if this pos is not taken:
-				if (grid.get(r1GridPos[0], r1GridPos[1]) == null) {
-					// grid.set(r1GridPos[0], r1GridPos[1], r1);
-					// grid.set(r2GridPos[0], r2GridPos[1], r2);
-					resToGridPosMap.put(r1, r1GridPos);
-					resToGridPosMap.put(r2, r2GridPos);
-					return true;
-				}
-				else {
-					return false;
-				}
-			}
-			else {
-				return false;
-			}
+			r1x--;
 		}
 		//If r2 is above r1
 		else if (connectionType == 2) {
-			r1GridPos[0] = r2GridPos[0];
-			r1GridPos[1] = r2GridPos[1] + 1;
-			if ((r1GridPos[0] > 0 && r1GridPos[0] < grid.field.length)&&(r1GridPos[1] > 0 && r1GridPos[1] < grid.field.length)) {
-				//if this pos is not taken:
-				if (grid.get(r1GridPos[0], r1GridPos[1]) == null) {
-					// grid.set(r1GridPos[0], r1GridPos[1], r1);
-					// grid.set(r2GridPos[0], r2GridPos[1], r2);
-					resToGridPosMap.put(r1, r1GridPos);
-					resToGridPosMap.put(r2, r2GridPos);
-					return true;
-				}
-				else {
-					return false;
-				}
-			}
-			else {
-				return false;
-			}
+			r1y++;
 		}
 		else {
-			r1GridPos[0] = r2GridPos[0];
-			r1GridPos[1] = r2GridPos[1] - 1;
-			if ((r1GridPos[0] > 0 && r1GridPos[0] < grid.field.length)&&(r1GridPos[1] > 0 && r1GridPos[1] < grid.field.length)) {
-				//if this pos is not taken:
-				if (grid.get(r1GridPos[0], r1GridPos[1]) == null) {
-					// grid.set(r1GridPos[0], r1GridPos[1], r1);
-					// grid.set(r2GridPos[0], r2GridPos[1], r2);
-					resToGridPosMap.put(r1, r1GridPos);
-					resToGridPosMap.put(r2, r2GridPos);
-					return true;
-				}
-				else {
-					return false;
-				}
-			}
-			else {
-				return false;
-			}
+			r1y--;
+		}
+
+		//If this position is not taken, reserve both positions
+		if (isReservable(r1x, r1y) && cells[r1y*nWidth + r1x] == null) {
+			resToGridPosMap.put(r1, r1y*nWidth + r1x);
+			resToGridPosMap.put(r2, r2Cell);
+			return true;
+		}
+		else {
+			return false;
 		}
 	}
 
 	/**
-	Method that calculates the corresponding discritized position of a resource
+	Method that calculates the corresponding discritized position of a resource. A resource that is already in the grid
+	keeps its cell, a cell held by another resource can not be taken
 	@param res the resource that should be discritized
 	@param resToConnectTo the resource to be connected to (null if res is first for a constructionZone)
 	@param connectionType the side (L,R,T,B) that res must be connect to resToConnectTo
@@ -226,148 +176,183 @@ public class ContToDiscrSpace {
 		connectionType = 3 => res '_ _ _ resToConnectTo'
 	**/
 	public Vec2 addResourceToDiscrSpace (ResourceObject res) {
-		Vec2 discrPos;
-		int[] gridPos;
+		Integer reserved = resToGridPosMap.get(res);
+		int cell = reserved != null ? reserved : getCell(res.getBody().getPosition());
+
+		if (cells[cell] == null) {
+			nOccupied++;
+			zoneParent[cell] = cell;
+			zoneSize[cell] = 1;
+			zoneValue[cell] = res.getValue();
+			zoneNext[cell] = cell;
+		}
+		else if (cells[cell] != res) {
+			//the zones can not take a resource out again, canBeConnected only reserves free cells
+			throw new IllegalStateException("Grid cell " + (cell % nWidth) + "," + (cell / nWidth)
+					+ " already holds another resource");
+		}
+		cells[cell] = res;
+		modificationCount++;
+
+		//join the zones of neighbours that are correctly connected in both directions
+		int x = cell % nWidth;
+		int y = cell / nWidth;
+		joinIfConnected(cell, x - 1, y, 0);
+		joinIfConnected(cell, x + 1, y, 1);
+		joinIfConnected(cell, x, y - 1, 2);
+		joinIfConnected(cell, x, y + 1, 3);
+		largestZoneValue = Math.max(largestZoneValue, zoneValue[findZone(cell)]);
+		return centrePoints[cell];
+	}
 
-		if (resToGridPosMap.containsKey(res)) {
-			discrPos = getDiscrPos(resToGridPosMap.get(res));
-			gridPos = resToGridPosMap.get(res);
+	private void joinIfConnected(int cell, int nx, int ny, int side) {
+		ResourceObject neighbour = getOccupant(nx, ny);
+		if (neighbour == null) {
+			return;
 		}
-		else {
-			discrPos = getNearestDiscrPos(res.getBody().getPosition());
-			gridPos = spaceToGrid.get(discrPos);
+		ResourceObject res = cells[cell];
+		//sides come in pairs (L,R) and (T,B), so the opposite side only differs in the lowest bit
+		if (schema.isAllowed(schemaNumber, res.getTypeIndex(), side, neighbour.getTypeMask())
+				&& schema.isAllowed(schemaNumber, neighbour.getTypeIndex(), side ^ 1, res.getTypeMask())) {
+			joinZones(cell, ny*nWidth + nx);
 		}
+	}
 
-		grid.set(gridPos[0], gridPos[1], res);
-		return discrPos;
+	private int findZone(int cell) {
+		while (zoneParent[cell] != cell) {
+			zoneParent[cell] = zoneParent[zoneParent[cell]];
+			cell = zoneParent[cell];
+		}
+		return cell;
 	}
 
-	public void printGrid() {
-		System.out.println(Arrays.deepToString(grid.field));
+	private void joinZones(int a, int b) {
+		int rootA = findZone(a);
+		int rootB = findZone(b);
+		if (rootA == rootB) {
+			return;
+		}
+		if (zoneSize[rootA] < zoneSize[rootB]) {
+			int temp = rootA;
+			rootA = rootB;
+			rootB = temp;
+		}
+		zoneParent[rootB] = rootA;
+		zoneSize[rootA] += zoneSize[rootB];
+		zoneValue[rootA] += zoneValue[rootB];
+
+		//splice the two member lists together
+		int temp = zoneNext[rootA];
+		zoneNext[rootA] = zoneNext[rootB];
+		zoneNext[rootB] = temp;
 	}
 
-	public ResourceObject[] getResNeighbourhood(ResourceObject res) {
-		// System.out.println("NEIGHBOURHOOD FOR " + res);
-		int[] resGridPos = getGridPos(res.getBody().getPosition());
-		// System.out.println("\tRes gridPos: " + Arrays.toString(resGridPos));
-		Bag neighbours = getVonNeumannNeighbors(res);
-		Object[] nRes = neighbours.objs;
-		// System.out.println("\tNeoighbourhood: " + Arrays.toString(nRes));
-		ResourceObject[] adjacentResources = new ResourceObject[4];
-		for (int i = 0; i < nRes.length; i++) {
-			if (nRes[i] != null) {
-				// System.out.println("\t\t" + nRes[i] + ": " + ((ResourceObject)nRes[i]).getBody().getPosition());
-				ResourceObject adjRes = (ResourceObject)nRes[i];
-				int[] gridPos = getGridPos(adjRes.getBody().getPosition());
-				// System.out.println("\t\tAdjPos: " + Arrays.toString(gridPos));
-				//If they are above/below eachother
-				if (gridPos[0] == resGridPos[0]) {
-					//If adjRes is above this resource
-					if (gridPos[1] < resGridPos[1]) {
-						adjacentResources[2] = adjRes;
-					}
-					else {
-						adjacentResources[3] = adjRes;
-					}
-				}
-				//If they are left/right of eachother
-				else {
-					//If adjRes is to the left of this resource
-					if (gridPos[0] < resGridPos[0]) {
-						adjacentResources[0] = adjRes;
-					}
-					else {
-						adjacentResources[1] = adjRes;
-					}
-				}
-			}
+	/**
+	The zone a resource in the grid belongs to
+	@return the zone id, or -1 if the resource is not in the grid
+	**/
+	public int getZone(ResourceObject res) {
+		int cell = getCell(res.getBody().getPosition());
+		if (cells[cell] != res) {
+			return -1;
 		}
+		return findZone(cell);
+	}
 
-		return adjacentResources;
+	/**
+	Total value of the resources in a zone
+	**/
+	public double getZoneValue(int zone) {
+		return zoneValue[findZone(zone)];
 	}
 
-	public Bag getVonNeumannNeighbors(ResourceObject res) {
-		int[] gridPos = new int[2];
-		//search for the position of the resource in the grid
-		for (int i = 0; i < centrePoints.length; i++) {
-			// System.out.println(res.getBody().getPosition().sub(centrePoints[i]).length());
-			if (res.getBody().getPosition().sub(centrePoints[i]).length() == 0) {
-				gridPos = spaceToGrid.get(centrePoints[i]);
-				break;
-			}
+	/**
+	The resources in a zone, in no particular order
+	**/
+	public ArrayList<ResourceObject> getZoneResources(int zone) {
+		ArrayList<ResourceObject> zoneResources = new ArrayList<>();
+		int start = findZone(zone);
+		int cell = start;
+		do {
+			zoneResources.add(cells[cell]);
+			cell = zoneNext[cell];
+		} while (cell != start);
+		return zoneResources;
+	}
+
+	/**
+	Value of the most valuable zone in the grid, kept up to date as resources are added
+	**/
+	public double getLargestZoneValue() {
+		return largestZoneValue;
+	}
+
+	public void printGrid() {
+		for (int y = 0; y < nHeight; y++) {
+			System.out.println(Arrays.toString(Arrays.copyOfRange(cells, y*nWidth, (y + 1)*nWidth)));
 		}
+	}
 
-		// System.out.println(Arrays.deepToString(grid.field));
+	public ResourceObject[] getResNeighbourhood(ResourceObject res) {
+		int cell = getCell(res.getBody().getPosition());
+		int x = cell % nWidth;
+		int y = cell / nWidth;
 
-		return grid.getVonNeumannNeighbors(gridPos[0], gridPos[1], 1, Grid2D.BOUNDED, false, new Bag(), new IntBag(), new IntBag() );
+		//left, right, above and below, rows are counted from the top of the space
+		ResourceObject[] adjacentResources = new ResourceObject[4];
+		adjacentResources[0] = getOccupant(x - 1, y);
+		adjacentResources[1] = getOccupant(x + 1, y);
+		adjacentResources[2] = getOccupant(x, y - 1);
+		adjacentResources[3] = getOccupant(x, y + 1);
+		return adjacentResources;
 	}
 
 	public void clearGrid() {
-		grid.clear();
+		Arrays.fill(cells, null);
+		Arrays.fill(zoneParent, -1);
+		nOccupied = 0;
+		largestZoneValue = 0D;
 	}
 
 	/**
-	Recursively move through all neighbours and collate all resources that are considered within the same cz
+	Empties the grid and forgets any reserved grid positions so the space can be reused for a new run
 	**/
-	public void traverseConstructionZone(List<ResourceObject> czList, ResourceObject currRes, List<ResourceObject> ignoreList) {
-		//Count up number of neighbours that need to be looked at
-		List<ResourceObject> nToCheck = new LinkedList<>();
-		ResourceObject[] neighbours = getResNeighbourhood(currRes);
-
-		int[] incorrectSides =  schema.getIncorrectAdjacentSides(schemaNumber, currRes.getType(), currRes.getAdjacentList());
-
-		for (int i = 0; i < neighbours.length; i++) {
-			if (neighbours[i] != null && !neighbours[i].isVisited() && incorrectSides[i] == 0 && !ignoreList.contains(neighbours[i])) {
-				nToCheck.add(neighbours[i]);
-			}
-			else if (neighbours[i] != null && incorrectSides[i] == 1 && !ignoreList.contains(neighbours[i])) {
-				ignoreList.add(neighbours[i]);
-			}
-		}
-
-		//Base Case: no neighbours to look at
-		if (nToCheck.size() == 0) {
-			currRes.setVisited(true);
-			czList.add(currRes);
-			return;
-		}
-		else {
-			currRes.setVisited(true);
-			czList.add(currRes);
+	public void reset() {
+		clearGrid();
+		resToGridPosMap.clear();
+		modificationCount = 0;
+	}
 
-			//Go through each neighbour,
-			for (ResourceObject nRes : nToCheck) {
-				traverseConstructionZone(czList, nRes, ignoreList);
-			}
-		}
+	/**
+	Number of times a resource has been added to the grid, used to tell whether the grid has changed
+	**/
+	public int getModificationCount() {
+		return modificationCount;
 	}
 
 	public Vec2 getNearestDiscrPos (Vec2 resPos) {
-		float maxDist = 10000f;
-		Vec2 nearestDiscrPos = new Vec2();
-		for (int i = 0; i < centrePoints.length; i++) {
-			if (resPos.sub(centrePoints[i]).length() < maxDist) {
-				nearestDiscrPos = centrePoints[i];
-				maxDist = resPos.sub(centrePoints[i]).length();
-			}
-		}
-		Vec2 transToNewPos = new Vec2();
-		transToNewPos.x = nearestDiscrPos.sub(resPos).x;
-		transToNewPos.y = nearestDiscrPos.sub(resPos).y;
-		return nearestDiscrPos;
+		return centrePoints[getCell(resPos)];
 	}
 
 	public void printSizes() {
-		System.out.println("Map size: " + spaceToGrid.size());
-		System.out.println("Grid size: " + grid.elements().size());
+		System.out.println("Grid cells: " + cells.length);
+		System.out.println("Grid size: " + nOccupied);
+	}
+
+	/**
+	Number of grid cells that hold a resource
+	**/
+	public int getNumOccupied() {
+		return nOccupied;
 	}
 
 	public ArrayList<ResourceObject> getAllResources(){
 		ArrayList<ResourceObject> listOfResources = new ArrayList<>();
-		Bag resourceBag = grid.elements();
-		for(int i=0;i<resourceBag.size();i++){
-			listOfResources.add((ResourceObject)resourceBag.get(i));
+		for (ResourceObject res : cells) {
+			if (res != null) {
+				listOfResources.add(res);
+			}
 		}
 		return listOfResources;
 	}
-}
+}
\ No newline at end of file
@@ -0,0 +1,254 @@
+package za.redbridge.simulator;
+
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import za.redbridge.simulator.config.SchemaConfig;
+import za.redbridge.simulator.config.SimConfig;
+import za.redbridge.simulator.object.ResourceObject;
+import za.redbridge.simulator.object.RobotObject;
+
+/**
+ * Layouts generated once for a schema config and number of robots, so that a simulation run can start from a layout
+ * that is known to fit rather than searching for space for every object. Stored in a binary file: a header describing
+ * what the layouts are for, followed by the position and angle of every object of every layout as floats.
+ *
+ * Layout i is the one a simulation places with placement seed i, so the same library is generated on every machine
+ * and serves as a fixed set of scenarios for benchmarks as well.
+ */
+public class LayoutLibrary {
+
+    private static final int MAGIC = 0x4341534c;
+    private static final short VERSION = 2;
+
+    /**
+     * Where every robot and resource starts a simulation run: the position and angle of each, robots first and then
+     * resources in the order they were placed. Every object starts at rest.
+     */
+    public static final class Layout {
+        private final int robotCount;
+        private final float[] x;
+        private final float[] y;
+        private final float[] angle;
+
+        private Layout(int robotCount, float[] x, float[] y, float[] angle) {
+            this.robotCount = robotCount;
+            this.x = x;
+            this.y = y;
+            this.angle = angle;
+        }
+
+        public int getRobotCount() {
+            return robotCount;
+        }
+
+        public int getResourceCount() {
+            return x.length - robotCount;
+        }
+
+        /**
+         * Writes the position of an object into the given vector.
+         * @param object the index of the object, robots first and then resources
+         * @param position the vector to write to
+         * @return the vector
+         */
+        Vec2 getPosition(int object, Vec2 position) {
+            return position.set(x[object], y[object]);
+        }
+
+        float getAngle(int object) {
+            return angle[object];
+        }
+    }
+
+    private final int configNumber;
+    private final int robotCount;
+    private final int resourceCount;
+    // the number of resources of each type, resources of different types differ in size
+    private final int[] resourceQuantity;
+    private final int environmentWidth;
+    private final int environmentHeight;
+    private final List<Layout> layouts;
+
+    private LayoutLibrary(int configNumber, int robotCount, int[] resourceQuantity, int environmentWidth,
+            int environmentHeight, List<Layout> layouts) {
+        this.configNumber = configNumber;
+        this.robotCount = robotCount;
+        this.resourceQuantity = resourceQuantity;
+        this.resourceCount = Arrays.stream(resourceQuantity).sum();
+        this.environmentWidth = environmentWidth;
+        this.environmentHeight = environmentHeight;
+        this.layouts = Collections.unmodifiableList(layouts);
+    }
+
+    /**
+     * Generates layouts by placing the objects of a simulation with placement seeds 0 to count - 1.
+     * @param simulation a simulation that is not used for anything else, as its placement seed is left set
+     * @param config the config the simulation was made with
+     * @param schema the schema config the simulation was made with
+     * @param count the number of layouts
+     * @return the library
+     */
+    public static LayoutLibrary generate(Simulation simulation, SimConfig config, SchemaConfig schema, int count) {
+        List<Layout> layouts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            simulation.setLayout(null);
+            simulation.setPlacementSeed(i);
+            simulation.start();
+            layouts.add(capture(simulation));
+            simulation.finish();
+        }
+        Layout first = layouts.get(0);
+        int[] resourceQuantity = schema.getResQuantity(config.getConfigNumber()).clone();
+        if (first.getResourceCount() != Arrays.stream(resourceQuantity).sum()) {
+            throw new IllegalArgumentException("The simulation placed " + first.getResourceCount()
+                    + " resources rather than the " + Arrays.toString(resourceQuantity) + " of the schema config");
+        }
+        return new LayoutLibrary(config.getConfigNumber(), first.getRobotCount(), resourceQuantity,
+                config.getEnvironmentWidth(), config.getEnvironmentHeight(), layouts);
+    }
+
+    private static Layout capture(Simulation simulation) {
+        List<RobotObject> robots = simulation.getRobots();
+        List<ResourceObject> resources = simulation.getResources();
+        int n = robots.size() + resources.size();
+        float[] x = new float[n];
+        float[] y = new float[n];
+        float[] angle = new float[n];
+        for (int i = 0; i < n; i++) {
+            Body body = i < robots.size() ? robots.get(i).getBody() : resources.get(i - robots.size()).getBody();
+            x[i] = body.getPosition().x;
+            y[i] = body.getPosition().y;
+            angle[i] = body.getAngle();
+        }
+        return new Layout(robots.size(), x, y, angle);
+    }
+
+    /**
+     * @param path the file written by {@link #write(Path)}
+     * @return the library
+     * @throws IOException if the file can not be read or is not a layout library
+     */
+    public static LayoutLibrary read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a layout library: " + path);
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported layout library version " + version + ": " + path);
+            }
+            int configNumber = in.readInt();
+            int robotCount = in.readInt();
+            int[] resourceQuantity = new int[in.readInt()];
+            for (int i = 0; i < resourceQuantity.length; i++) {
+                resourceQuantity[i] = in.readInt();
+            }
+            int environmentWidth = in.readInt();
+            int environmentHeight = in.readInt();
+            int count = in.readInt();
+
+            int n = robotCount + Arrays.stream(resourceQuantity).sum();
+            List<Layout> layouts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                float[] x = new float[n];
+                float[] y = new float[n];
+                float[] angle = new float[n];
+                for (int j = 0; j < n; j++) {
+                    x[j] = in.readFloat();
+                    y[j] = in.readFloat();
+                    angle[j] = in.readFloat();
+                }
+                layouts.add(new Layout(robotCount, x, y, angle));
+            }
+            return new LayoutLibrary(configNumber, robotCount, resourceQuantity, environmentWidth, environmentHeight,
+                    layouts);
+        }
+    }
+
+    /**
+     * Writes the library to a temporary file that then replaces the given one, so that processes generating the same
+     * library at once never read a partly written file.
+     * @param path the file to write the library to, replacing it if it exists
+     * @throws IOException if the file can not be written
+     */
+    public void write(Path path) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(configNumber);
+            out.writeInt(robotCount);
+            out.writeInt(resourceQuantity.length);
+            for (int quantity : resourceQuantity) {
+                out.writeInt(quantity);
+            }
+            out.writeInt(environmentWidth);
+            out.writeInt(environmentHeight);
+            out.writeInt(layouts.size());
+            for (Layout layout : layouts) {
+                for (int j = 0; j < layout.x.length; j++) {
+                    out.writeFloat(layout.x[j]);
+                    out.writeFloat(layout.y[j]);
+                    out.writeFloat(layout.angle[j]);
+                }
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return true if the layouts were generated by a simulation made with configs like these, placing the same
+     *         number of robots and of resources of each type
+     */
+    public boolean isFor(SimConfig config, SchemaConfig schema) {
+        return configNumber == config.getConfigNumber()
+                && robotCount == config.getObjectsRobots()
+                && Arrays.equals(resourceQuantity, schema.getResQuantity(configNumber))
+                && environmentWidth == config.getEnvironmentWidth()
+                && environmentHeight == config.getEnvironmentHeight();
+    }
+
+    /**
+     * @param seed the seed of a simulation run's scenario
+     * @return the layout of the scenario
+     */
+    public Layout forSeed(long seed) {
+        return layouts.get((int) Long.remainderUnsigned(seed, layouts.size()));
+    }
+
+    public Layout get(int index) {
+        return layouts.get(index);
+    }
+
+    public int size() {
+        return layouts.size();
+    }
+
+    public int getConfigNumber() {
+        return configNumber;
+    }
+
+    public int getRobotCount() {
+        return robotCount;
+    }
+
+    public int getResourceCount() {
+        return resourceCount;
+    }
+}
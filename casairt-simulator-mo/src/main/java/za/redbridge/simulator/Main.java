@@ -23,8 +23,12 @@ import za.redbridge.simulator.khepera.KheperaIIIPhenotype_simple;
 import static za.redbridge.simulator.Utils.isBlank;
 import static za.redbridge.simulator.Utils.readObjectFromFile;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.List;
 
 import sim.display.Console;
 import za.redbridge.simulator.Simulation;
@@ -38,6 +42,11 @@ import za.redbridge.simulator.phenotype.ChasingPhenotype_simple;
 import za.redbridge.simulator.config.ExperimentConfig;
 import za.redbridge.simulator.moneat.*;
 import za.redbridge.simulator.config.SchemaConfig;
+import za.redbridge.simulator.checkpoint.Checkpoint;
+import za.redbridge.simulator.checkpoint.CheckpointFormat;
+import za.redbridge.simulator.checkpoint.CheckpointReader;
+import za.redbridge.simulator.farm.EvaluationFarm;
+import za.redbridge.simulator.farm.FarmProtocol;
 
 public class Main{
 
@@ -45,23 +54,66 @@ public class Main{
     private static String experimentConfigPath = "configs/experimentConfig.yml";
     private static String morphologyConfigPath = "configs/morphologyConfig.yml";
     private static String schemaConfigPath = "configs/schemaConfig.yml";
+    private static final String LAYOUTS_DIRECTORY = "layouts";
 
     public static int thread_count = 0;
     public static String RES_CONFIG;
     private static final Logger log = LoggerFactory.getLogger(Main.class);
 
+    // schema configuration and simulation length used for training
+    private static final int CONFIG_NUMBER = 0;
+    private static final int SIMULATION_ITERATIONS = 1000;
+
     public static void main(String[] args) throws IOException, ParseException {
-        int configNumber = 0;
-        int nIterations = 1000;
+        // --resume <results directory> carries on a run from its latest checkpoint
+        Path resumeDirectory = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--resume") && i + 1 < args.length) {
+                resumeDirectory = Paths.get(args[++i]);
+            }
+        }
+
+        ExperimentConfig experimentConfig = readExperimentConfig();
+        MorphologyConfig morphConfig = new MorphologyConfig(morphologyConfigPath);
+        ScoreCalculator calculateScore = createScoreCalculator(experimentConfig);
 
-        // experiment configuration
-        ExperimentConfig experimentConfig;
+        // evaluate on worker processes rather than in this one
+        EvaluationFarm farm = null;
+        if (experimentConfig.getFarmPort() > 0) {
+            farm = new EvaluationFarm(experimentConfig.getFarmPort(), configFingerprint(experimentConfig), experimentConfig.getSimulationRuns());
+            farm.startLocalWorkers(experimentConfig.getFarmLocalWorkers());
+            calculateScore.setEvaluationFarm(farm);
+        }
+
+        // train a population of controllers
+        try {
+            trainMultiObjectivePopulation(calculateScore.getSimConfig(), experimentConfig, morphConfig, calculateScore, resumeDirectory);
+        } finally {
+            if (farm != null) {
+                farm.close();
+            }
+        }
+
+        // evaluate(calculateScore, "results/Daniel-Laptop-20161108T1159/best networks/epoch-2/network1.ser");
+    }
+
+    /**
+     * Reads the experiment configuration
+     * @return experiment config parameters
+     */
+    public static ExperimentConfig readExperimentConfig(){
         if (!isBlank(experimentConfigPath)) {
-            experimentConfig = new ExperimentConfig(experimentConfigPath);
-        } else {
-            experimentConfig = new ExperimentConfig();
+            return new ExperimentConfig(experimentConfigPath);
         }
+        return new ExperimentConfig();
+    }
 
+    /**
+     * Creates the score calculator controllers are trained with, from the simulation, schema and morphology configs
+     * @param  experimentConfig experiment config parameters
+     * @return score calculator for the experiment
+     */
+    public static ScoreCalculator createScoreCalculator(ExperimentConfig experimentConfig) throws IOException, ParseException{
         // read in simulation config
         SimConfig simConfig;
         if (!isBlank(simulationConfigPath)) {
@@ -70,19 +122,70 @@ public class Main{
             simConfig = new SimConfig();
         }
 
-        SchemaConfig schema = new SchemaConfig("configs/schemaConfig.yml", 10, 3);
+        SchemaConfig schema = new SchemaConfig(schemaConfigPath, 10, 3);
 
-        simConfig.setConfigNumber(configNumber);
-        simConfig.setSimulationIterations(nIterations);
+        simConfig.setConfigNumber(CONFIG_NUMBER);
+        simConfig.setSimulationIterations(SIMULATION_ITERATIONS);
 
         // read morphology for creating phenotypes
         MorphologyConfig morphConfig = new MorphologyConfig(morphologyConfigPath);
-        ScoreCalculator calculateScore = new ScoreCalculator(simConfig, schema, experimentConfig.getSimulationRuns(), morphConfig.getMorphology(experimentConfig.getMorphologyNumber()));
+        // quartiles are only estimated when the experiment config asks for them
+        QuantileSketch sketch = experimentConfig.getPercentileBins() > 0
+                ? new StreamingHistogram(experimentConfig.getPercentileBins()) : null;
+        ScoreCalculator calculateScore = new ScoreCalculator(simConfig, schema, experimentConfig.getSimulationRuns(), morphConfig.getMorphology(experimentConfig.getMorphologyNumber()), sketch);
 
-        // train a population of controllers
-        trainMultiObjectivePopulation(simConfig ,experimentConfig, morphConfig, calculateScore);
+        // every controller in a generation is run on the same scenarios, drawn from the experiment seed
+        calculateScore.setSeedStream(new SeedStream(experimentConfig.getSeed()));
+        if (experimentConfig.getLayoutCount() > 0) {
+            calculateScore.setLayoutLibrary(loadLayouts(calculateScore, experimentConfig.getLayoutCount()));
+        }
+        return calculateScore;
+    }
 
-        // evaluate(calculateScore, "results/Daniel-Laptop-20161108T1159/best networks/epoch-2/network1.ser");
+    /**
+     * Reads the layout library for the score calculator's schema config and number of robots, generating it if it has
+     * not been generated yet or was generated for different configs, such as other resource quantities
+     * @param  calculateScore the score calculator the layouts are for
+     * @param  count the number of layouts
+     * @return the layout library
+     */
+    private static LayoutLibrary loadLayouts(ScoreCalculator calculateScore, int count) throws IOException{
+        SimConfig simConfig = calculateScore.getSimConfig();
+        Path path = Paths.get(LAYOUTS_DIRECTORY, "schema-" + simConfig.getConfigNumber() + "-robots-"
+                + simConfig.getObjectsRobots() + ".layouts");
+        if (Files.exists(path)) {
+            try {
+                LayoutLibrary library = LayoutLibrary.read(path);
+                if (library.isFor(simConfig, calculateScore.getSchemaConfig()) && library.size() == count) {
+                    log.info("layouts: " + path);
+                    return library;
+                }
+            } catch (IOException e) {
+                log.error("Unable to read layout library " + path + ", generating it again", e);
+            }
+        }
+
+        LayoutLibrary library = calculateScore.generateLayouts(count);
+        library.write(path);
+        log.info("generated " + count + " layouts: " + path);
+        return library;
+    }
+
+    /**
+     * Fingerprint of everything that decides the scores given by {@link #createScoreCalculator}, so that evaluation
+     * workers can be checked against the trainer
+     * @param  experimentConfig experiment config parameters
+     * @return fingerprint of the configs
+     */
+    public static String configFingerprint(ExperimentConfig experimentConfig) throws IOException{
+        List<Path> configFiles = new ArrayList<Path>();
+        for (String path : new String[]{simulationConfigPath, schemaConfigPath, morphologyConfigPath}) {
+            if (!isBlank(path)) {
+                configFiles.add(Paths.get(path));
+            }
+        }
+        return FarmProtocol.fingerprint(configFiles, experimentConfig.getSimulationRuns(), experimentConfig.getMorphologyNumber(),
+                CONFIG_NUMBER, SIMULATION_ITERATIONS, experimentConfig.getLayoutCount());
     }
 
     /**
@@ -103,8 +206,10 @@ public class Main{
      * @param  experimentConfig experiment config parameters
      * @param  morphConfig sensor configuration for robots
      * @param  calculateScore creates instance of simulations
+     * @param  resumeDirectory results directory of a run to carry on from its latest checkpoint, or null to start a new run
      */
-    private static void trainMultiObjectivePopulation(SimConfig simConfig ,ExperimentConfig experimentConfig,MorphologyConfig morphConfig, ScoreCalculator calculateScore){
+    private static void trainMultiObjectivePopulation(SimConfig simConfig ,ExperimentConfig experimentConfig,MorphologyConfig morphConfig, ScoreCalculator calculateScore,
+            Path resumeDirectory) throws IOException{
 
         // initialise objectives
         ArrayList<Objective> objectives = new ArrayList<Objective>();
@@ -122,19 +227,42 @@ public class Main{
         }
 
         final MultiObjectivePopulation population;
-        population = new MultiObjectivePopulation(morphConfig.getMorphology(experimentConfig.getMorphologyNumber()).getNumSensors(), 2, experimentConfig.getPopulationSize(), objectives);
-        population.setInitialConnectionDensity(experimentConfig.getConnectionDensity());
-        population.reset();
-
         final MultiObjectivePopulation archive;
-        archive = new MultiObjectivePopulation(morphConfig.getMorphology(experimentConfig.getMorphologyNumber()).getNumSensors(), 2, experimentConfig.getPopulationSize(), objectives);
-        archive.setInitialConnectionDensity(experimentConfig.getConnectionDensity());
-        archive.reset();
+        Checkpoint checkpoint = null;
+        if(resumeDirectory != null){
+            // the checkpointed population holds the species, so it is both the population and the archive
+            checkpoint = readLatestCheckpoint(resumeDirectory.resolve("populations"));
+            population = checkpoint.getPopulation();
+            archive = checkpoint.getPopulation();
+            log.info("resuming from generation "+ checkpoint.getGeneration() +" in "+ resumeDirectory);
+            // the scenarios carry on from the seed of the run, which may have been drawn from the clock
+            if(checkpoint.getExperimentSeed() != null){
+                calculateScore.setSeedStream(new SeedStream(checkpoint.getExperimentSeed()));
+            }
+        }
+        else{
+            population = new MultiObjectivePopulation(morphConfig.getMorphology(experimentConfig.getMorphologyNumber()).getNumSensors(), 2, experimentConfig.getPopulationSize(), objectives);
+            population.setInitialConnectionDensity(experimentConfig.getConnectionDensity());
+            population.reset();
+
+            archive = new MultiObjectivePopulation(morphConfig.getMorphology(experimentConfig.getMorphologyNumber()).getNumSensors(), 2, experimentConfig.getPopulationSize(), objectives);
+            archive.setInitialConnectionDensity(experimentConfig.getConnectionDensity());
+            archive.reset();
+        }
 
         log.info("population size: "+ population.getPopulationSize());
         log.info("archive size: "+experimentConfig.getArchiveSize());
         log.info("number of generations: "+experimentConfig.getGenerationNumber());
         log.info("simulation runs: "+ experimentConfig.getSimulationRuns());
+        if(calculateScore.getSeedStream() != null){
+            long seed = calculateScore.getSeedStream().getExperimentSeed();
+            if(checkpoint == null && experimentConfig.isSeedFromClock()){
+                log.info("experiment seed: "+ seed +" (drawn from the clock, set simulation: seed to repeat this run)");
+            }
+            else{
+                log.info("experiment seed: "+ seed);
+            }
+        }
 
         MultiObjectiveTrainEA train;
         train = NEATUtil.constructMultiObjectiveTrainer(population, archive, calculateScore, experimentConfig.getArchiveSize(), experimentConfig.getAddNodeProbability(),
@@ -145,6 +273,12 @@ public class Main{
         log.info("add link probability: "+ experimentConfig.getAddLinkProbability());
         log.info("remove link probability: "+ experimentConfig.getRemoveLinkProbability());
         log.info("crossover probability: "+ experimentConfig.getCrossoverProbability());
+        log.info("selector: "+ experimentConfig.getSelector());
+        log.info("checkpoint interval: "+ experimentConfig.getCheckpointInterval());
+
+        if(experimentConfig.getSelector() == ExperimentConfig.Selector.NSGA2){
+            train.setSelector(new NSGA2());
+        }
 
         if(thread_count > 0){
             train.setThreadCount(thread_count);
@@ -152,17 +286,55 @@ public class Main{
 
         System.out.println();
 
-        final StatsRecorder stats = new StatsRecorder(train, calculateScore);
-        stats.recordIterationStats();
-        for(int i=train.getIteration();i<experimentConfig.getGenerationNumber();i++){
-            train.iteration();
-            stats.recordIterationStats();
+        final StatsRecorder stats;
+        if(checkpoint != null){
+            checkpoint.restore(train);
+            stats = new StatsRecorder(train, calculateScore, resumeDirectory, experimentConfig.getCheckpointInterval());
+        }
+        else{
+            stats = new StatsRecorder(train, calculateScore, Utils.getLoggingDirectory(), experimentConfig.getCheckpointInterval());
+        }
+        // the stats and checkpoints queued so far are written out even if training fails
+        try{
+            if(checkpoint == null){
+                stats.recordIterationStats();
+            }
+            for(int i=train.getIteration();i<experimentConfig.getGenerationNumber();i++){
+                // the controllers scored while breeding a generation are run on that generation's scenarios
+                calculateScore.setGeneration(i + 1);
+                train.iteration();
+                stats.recordIterationStats();
+            }
+        }
+        finally{
+            stats.close();
         }
 
         log.info("training complete");
         Encog.getInstance().shutdown();
     }
 
+    /**
+     * Reads the latest checkpoint of a run. A checkpoint that can not be read, such as one cut short when the run was
+     * stopped, is skipped for the one before it.
+     * @param  directory the directory the checkpoints were written to
+     * @return the latest checkpoint that can be read
+     */
+    private static Checkpoint readLatestCheckpoint(Path directory) throws IOException{
+        for(int generation = CheckpointReader.latestGeneration(directory); generation > 0; generation--){
+            if(!Files.exists(CheckpointFormat.checkpointFile(directory, generation))){
+                continue;
+            }
+            try{
+                return CheckpointReader.read(directory, generation);
+            }
+            catch(IOException e){
+                log.error("Unable to read checkpoint of generation "+ generation, e);
+            }
+        }
+        throw new IOException("No checkpoint to resume from in "+ directory);
+    }
+
     /**
      * Evaluate a controller, performance is based on the number of constructed resources
      * @param  calculateScore creates simulation instance
@@ -24,6 +24,8 @@ public class Morphology{
     private final int numSensors;
     //total number of readings provided by this morphology
     private final int totalReadingSize;
+    //the readings of every sensor, each sensor writes to its own slice in sensor order
+    private final double[] inputs;
     private Map<String,Object> yamlCache;
 
     public Morphology(List<AgentSensor> sensorList, int numSensors) {
@@ -35,12 +37,22 @@ public class Morphology{
             readSize += sensor.getReadingSize();
         }
         totalReadingSize = readSize;
+
+        inputs = new double[totalReadingSize];
+        int offset = 0;
+        for (AgentSensor sensor: sensorList) {
+            sensor.setReadingBuffer(inputs, offset);
+            offset += sensor.getReadingSize();
+        }
     }
 
     public List<AgentSensor> getSensorList() { return sensorList; }
 
     public int getTotalReadingSize() { return totalReadingSize; }
 
+    /** The latest readings of all sensors, updated in place each time the sensors sense. */
+    public double[] getInputs() { return inputs; }
+
     public int getNumSensors() { return numSensors; }
 
     public Morphology clone() {
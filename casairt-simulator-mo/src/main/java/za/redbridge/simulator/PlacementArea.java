@@ -7,7 +7,9 @@ import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
 import org.jbox2d.dynamics.Fixture;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -25,6 +27,11 @@ import static za.redbridge.simulator.physics.AABBUtil.resizeAABB;
  * the area and the PlacementArea instance will return a {@link Space} object if that space is
  * available. The factory must then confirm the usage of that space by registering the object to be
  * placed with {@link #placeObject(Space, PhysicalObject)}.
+ *
+ * Random spaces are found by throwing darts: a random candidate is taken if it overlaps nothing
+ * placed so far. Placed spaces are kept in a uniform grid, so a candidate is only tested against
+ * the spaces in the cells it covers rather than every placed object. If no dart lands within
+ * {@link #MAX_PLACEMENT_TRIES} throws, the area is scanned in order for the first free space.
  * Created by jamie on 2014/08/21.
  */
 public class PlacementArea {
@@ -34,6 +41,9 @@ public class PlacementArea {
 
     private static final int MAX_PLACEMENT_TRIES = 1000;
 
+    // the side of a cell of the grid placed spaces are kept in, around the size of the largest objects
+    private static final float CELL_SIZE = 1f;
+
     private final float width;
     private final float height;
 
@@ -42,9 +52,21 @@ public class PlacementArea {
     // Need an ordered map, hence the use of a linked hashmap
     private final Map<PhysicalObject, Space> placements = new LinkedHashMap<>();
 
+    // the placed spaces overlapping each cell, row by row
+    private final int columns;
+    private final int rows;
+    private final List<List<Space>> cells;
+
     PlacementArea(float width, float height) {
         this.width = width;
         this.height = height;
+
+        columns = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+        cells = new ArrayList<>(columns * rows);
+        for (int i = 0; i < columns * rows; i++) {
+            cells.add(new ArrayList<>());
+        }
     }
 
     double getWidth() {
@@ -65,7 +87,8 @@ public class PlacementArea {
         int tries = 1;
         do {
             if (tries++ >= MAX_PLACEMENT_TRIES) {
-                throw new RuntimeException("Unable to find space for object");
+                // upright the object takes the least space
+                return scanForSpace(objectWidth + PADDING, objectHeight + PADDING, 0f);
             }
 
             angle = randomAngle(random);
@@ -96,7 +119,7 @@ public class PlacementArea {
         int tries = 1;
         do {
             if (tries++ >= MAX_PLACEMENT_TRIES) {
-                throw new RuntimeException("Unable to find space for object");
+                return scanForSpace(diameter, diameter, angle);
             }
 
             float x = randomRange(random, halfDiameter, maxX);
@@ -225,15 +248,72 @@ public class PlacementArea {
         return overlappingWithOtherObject(aabb);
     }
 
+    /**
+     * Finds the first free space for an object by scanning the area row by row, at steps of half
+     * the object's size. Used when throwing darts fails, so the same layout always gets the same
+     * space.
+     * @param spaceWidth the width of the space needed, including padding
+     * @param spaceHeight the height of the space needed, including padding
+     * @param angle the angle of the object in the space
+     * @return the first free space
+     */
+    private Space scanForSpace(float spaceWidth, float spaceHeight, float angle) {
+        float halfWidth = spaceWidth / 2;
+        float halfHeight = spaceHeight / 2;
+        float stepX = Math.max(halfWidth, PADDING);
+        float stepY = Math.max(halfHeight, PADDING);
+
+        AABB aabb = new AABB();
+        resizeAABB(aabb, spaceWidth, spaceHeight);
+        for (float y = halfHeight; y <= height - halfHeight; y += stepY) {
+            for (float x = halfWidth; x <= width - halfWidth; x += stepX) {
+                moveAABB(aabb, x, y);
+                if (!overlappingWithOtherObject(aabb)) {
+                    return new Space(aabb, angle);
+                }
+            }
+        }
+        throw new RuntimeException("Unable to find space for object");
+    }
+
     boolean overlappingWithOtherObject(AABB aabb) {
-        for (Space space : placements.values()) {
-            if (AABB.testOverlap(aabb, space.aabb)) {
-                return true;
+        int minColumn = column(aabb.lowerBound.x);
+        int maxColumn = column(aabb.upperBound.x);
+        int maxRow = row(aabb.upperBound.y);
+        for (int row = row(aabb.lowerBound.y); row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                List<Space> cell = cells.get(row * columns + column);
+                for (int i = 0; i < cell.size(); i++) {
+                    if (AABB.testOverlap(aabb, cell.get(i).aabb)) {
+                        return true;
+                    }
+                }
             }
         }
         return false;
     }
 
+    // adds a placed space to every cell it overlaps
+    private void addToCells(Space space) {
+        int minColumn = column(space.aabb.lowerBound.x);
+        int maxColumn = column(space.aabb.upperBound.x);
+        int maxRow = row(space.aabb.upperBound.y);
+        for (int row = row(space.aabb.lowerBound.y); row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                cells.get(row * columns + column).add(space);
+            }
+        }
+    }
+
+    // the cell a coordinate falls in, spaces past the edges of the area are kept in the edge cells
+    private int column(float x) {
+        return Math.min(columns - 1, Math.max(0, (int) Math.floor(x / CELL_SIZE)));
+    }
+
+    private int row(float y) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor(y / CELL_SIZE)));
+    }
+
     void placeObject(Space space, PhysicalObject object) {
         if (space.isUsed()) {
             throw new IllegalArgumentException("Space already used");
@@ -248,6 +328,19 @@ public class PlacementArea {
         }
 
         placements.put(object, space);
+        addToCells(space);
+        space.markUsed();
+    }
+
+    /**
+     * Register an object that was put where a layout has it, without checking its space, as the
+     * layout was known to fit when it was generated.
+     * @param object the object, already moved to its position
+     */
+    void placeRestoredObject(PhysicalObject object) {
+        Space space = new Space(getObjectAABB(object), object.getBody().getAngle());
+        placements.put(object, space);
+        addToCells(space);
         space.markUsed();
     }
 
@@ -272,6 +365,14 @@ public class PlacementArea {
         return aabb;
     }
 
+    /** Forget every placement so the area can be filled again for a new run. */
+    void clear() {
+        placements.clear();
+        for (List<Space> cell : cells) {
+            cell.clear();
+        }
+    }
+
     Set<PhysicalObject> getPlacedObjects() {
         return placements.keySet();
     }
@@ -0,0 +1,29 @@
+package za.redbridge.simulator;
+
+/**
+ * Estimates the quantiles of a stream of values in bounded memory. Sketches of the same kind can be merged, so each
+ * thread can keep its own and they are combined when the quantiles are needed.
+ */
+public interface QuantileSketch {
+
+    void add(double value);
+
+    /**
+     * Adds the values summarised by another sketch of the same kind to this one.
+     * @param other the sketch to add, unchanged
+     */
+    void merge(QuantileSketch other);
+
+    /**
+     * @param q the quantile, between 0 and 1
+     * @return an estimate of the quantile of the values added, NaN if there are none
+     */
+    double getQuantile(double q);
+
+    void clear();
+
+    /**
+     * @return a new empty sketch of the same kind and size
+     */
+    QuantileSketch newInstance();
+}
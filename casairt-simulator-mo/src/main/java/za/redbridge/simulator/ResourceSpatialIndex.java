@@ -0,0 +1,163 @@
+package za.redbridge.simulator;
+
+import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.Body;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import za.redbridge.simulator.object.ResourceObject;
+
+/*
+ *  A uniform grid of resource centres, used to update the adjacency of resources without comparing every pair.
+ *  The cells are large enough that any two resources close enough to be adjacent are in the same or
+ *  neighbouring cells. Only resources that have moved since the last step, and the resources around them, have
+ *  their adjacency recomputed.
+ *
+ */
+
+public class ResourceSpatialIndex {
+
+    private static final int EMPTY = -1;
+
+    private final List<ResourceObject> resources;
+    private final float cellSize;
+    private final int nColumns;
+    private final int nRows;
+
+    // intrusive linked lists of the resources in each cell
+    private final int[] cellHead;
+    private final int[] next;
+    private final int[] cellOf;
+
+    // the transform each resource had when it was last indexed
+    private final float[] indexedX;
+    private final float[] indexedY;
+    private final float[] indexedAngle;
+
+    private final boolean[] dirty;
+    private final ArrayList<ResourceObject> candidates = new ArrayList<>();
+
+    /**
+     * @param resources the resources in the simulation, their order is kept when updating adjacency
+     * @param envWidth width of the environment
+     * @param envHeight height of the environment
+     */
+    public ResourceSpatialIndex(List<ResourceObject> resources, double envWidth, double envHeight) {
+        this.resources = resources;
+
+        // a resource's detection points sit one width/height from its centre and detect within this range
+        float maxDimension = 0f;
+        for (ResourceObject resource : resources) {
+            maxDimension = Math.max(maxDimension, (float) Math.max(resource.getWidth(), resource.getHeight()));
+        }
+        cellSize = maxDimension + 0.1f + Simulation.DISCR_GAP;
+
+        nColumns = Math.max(1, (int) Math.ceil(envWidth / cellSize));
+        nRows = Math.max(1, (int) Math.ceil(envHeight / cellSize));
+
+        int n = resources.size();
+        cellHead = new int[nColumns * nRows];
+        next = new int[n];
+        cellOf = new int[n];
+        indexedX = new float[n];
+        indexedY = new float[n];
+        indexedAngle = new float[n];
+        dirty = new boolean[n];
+
+        Arrays.fill(cellHead, EMPTY);
+        Arrays.fill(cellOf, EMPTY);
+        // NaN never compares equal, so every resource is indexed on the first update
+        Arrays.fill(indexedX, Float.NaN);
+    }
+
+    /**
+     * Updates the adjacent lists of every resource that could have changed since the last call. Resources that
+     * have not moved and have no moving resources nearby, such as sleeping or constructed resources, are skipped.
+     */
+    public void updateAdjacency() {
+        for (int i = 0; i < resources.size(); i++) {
+            Body body = resources.get(i).getBody();
+            Vec2 position = body.getPosition();
+            float angle = body.getAngle();
+            if (position.x == indexedX[i] && position.y == indexedY[i] && angle == indexedAngle[i]) {
+                continue;
+            }
+
+            // anything that was near the old position or is near the new one needs updating
+            int oldCell = cellOf[i];
+            int newCell = getCell(position.x, position.y);
+            if (oldCell != EMPTY) {
+                markSurroundingDirty(oldCell);
+            }
+            if (newCell != oldCell) {
+                if (oldCell != EMPTY) {
+                    removeFromCell(i, oldCell);
+                }
+                next[i] = cellHead[newCell];
+                cellHead[newCell] = i;
+                cellOf[i] = newCell;
+            }
+            markSurroundingDirty(newCell);
+            dirty[i] = true;
+
+            indexedX[i] = position.x;
+            indexedY[i] = position.y;
+            indexedAngle[i] = angle;
+        }
+
+        for (int i = 0; i < resources.size(); i++) {
+            if (dirty[i]) {
+                dirty[i] = false;
+                collectCandidates(cellOf[i]);
+                resources.get(i).updateAdjacent(candidates);
+            }
+        }
+    }
+
+    private int getCell(float x, float y) {
+        int column = Math.min(nColumns - 1, Math.max(0, (int) (x / cellSize)));
+        int row = Math.min(nRows - 1, Math.max(0, (int) (y / cellSize)));
+        return row * nColumns + column;
+    }
+
+    private void removeFromCell(int i, int cell) {
+        if (cellHead[cell] == i) {
+            cellHead[cell] = next[i];
+            return;
+        }
+        for (int j = cellHead[cell]; j != EMPTY; j = next[j]) {
+            if (next[j] == i) {
+                next[j] = next[i];
+                return;
+            }
+        }
+    }
+
+    private void markSurroundingDirty(int cell) {
+        int column = cell % nColumns;
+        int row = cell / nColumns;
+        for (int r = Math.max(0, row - 1); r <= Math.min(nRows - 1, row + 1); r++) {
+            for (int c = Math.max(0, column - 1); c <= Math.min(nColumns - 1, column + 1); c++) {
+                for (int j = cellHead[r * nColumns + c]; j != EMPTY; j = next[j]) {
+                    dirty[j] = true;
+                }
+            }
+        }
+    }
+
+    // fills the candidate list with the resources in the given cell and the cells around it
+    private void collectCandidates(int cell) {
+        candidates.clear();
+        int column = cell % nColumns;
+        int row = cell / nColumns;
+        for (int r = Math.max(0, row - 1); r <= Math.min(nRows - 1, row + 1); r++) {
+            for (int c = Math.max(0, column - 1); c <= Math.min(nColumns - 1, column + 1); c++) {
+                for (int j = cellHead[r * nColumns + c]; j != EMPTY; j = next[j]) {
+                    candidates.add(resources.get(j));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package za.redbridge.simulator;
+
+/**
+ * The count, minimum, maximum, mean and variance of a stream of values, kept in constant memory with Welford's
+ * algorithm. Two sets of statistics can be merged (Chan, Golub and LeVeque, 1979), which is how the statistics kept
+ * by separate threads are combined. Percentiles are available when a {@link QuantileSketch} is given.
+ *
+ * Not thread safe, each thread should add to its own instance.
+ */
+public class RunningStatistics {
+
+    private long n = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private double mean = 0;
+    // sum of the squared differences from the mean
+    private double m2 = 0;
+
+    private final QuantileSketch sketch;
+
+    public RunningStatistics() {
+        this(null);
+    }
+
+    /**
+     * @param sketch estimates the percentiles of the values, may be null if they are not wanted
+     */
+    public RunningStatistics(QuantileSketch sketch) {
+        this.sketch = sketch;
+    }
+
+    public void addValue(double value) {
+        n++;
+        if (n == 1) {
+            min = value;
+            max = value;
+        }
+        else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        double delta = value - mean;
+        mean += delta / n;
+        m2 += delta * (value - mean);
+
+        if (sketch != null) {
+            sketch.add(value);
+        }
+    }
+
+    /**
+     * Adds the values of another set of statistics to these ones.
+     * @param other the statistics to add, unchanged
+     */
+    public void merge(RunningStatistics other) {
+        if (other.n == 0) {
+            return;
+        }
+        if (n == 0) {
+            n = other.n;
+            min = other.min;
+            max = other.max;
+            mean = other.mean;
+            m2 = other.m2;
+        }
+        else {
+            long total = n + other.n;
+            double delta = other.mean - mean;
+            mean += delta * other.n / total;
+            m2 += other.m2 + delta * delta * ((double) n * other.n / total);
+            n = total;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        if (sketch != null && other.sketch != null) {
+            sketch.merge(other.sketch);
+        }
+    }
+
+    public void clear() {
+        n = 0;
+        min = Double.NaN;
+        max = Double.NaN;
+        mean = 0;
+        m2 = 0;
+        if (sketch != null) {
+            sketch.clear();
+        }
+    }
+
+    public long getN() {
+        return n;
+    }
+
+    /**
+     * @return the smallest value, NaN if there are none
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * @return the largest value, NaN if there are none
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return the mean of the values, NaN if there are none
+     */
+    public double getMean() {
+        return n > 0 ? mean : Double.NaN;
+    }
+
+    /**
+     * @return the sample variance of the values, 0 for a single value and NaN if there are none
+     */
+    public double getVariance() {
+        if (n == 0) {
+            return Double.NaN;
+        }
+        return n > 1 ? m2 / (n - 1) : 0.0;
+    }
+
+    /**
+     * @return the sample standard deviation of the values, 0 for a single value and NaN if there are none
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public boolean hasPercentiles() {
+        return sketch != null;
+    }
+
+    /**
+     * @param p the percentile, between 0 and 100
+     * @return an estimate of the percentile of the values, NaN if there are none
+     */
+    public double getPercentile(double p) {
+        if (sketch == null) {
+            throw new IllegalStateException("Percentiles are not being kept");
+        }
+        return sketch.getQuantile(p / 100.0);
+    }
+}
@@ -1,7 +1,5 @@
 package za.redbridge.simulator;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-import org.apache.commons.math3.stat.descriptive.SynchronizedDescriptiveStatistics;
 import org.encog.ml.CalculateScore;
 import org.encog.ml.MLMethod;
 import org.encog.neural.networks.BasicNetwork;
@@ -10,8 +8,13 @@ import org.encog.neural.neat.NEATNetwork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.TimeUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
 
 import sim.display.Console;
 import za.redbridge.simulator.Simulation;
@@ -21,34 +24,73 @@ import za.redbridge.simulator.factories.HomogeneousRobotFactory;
 import za.redbridge.simulator.factories.RobotFactory;
 import za.redbridge.simulator.factories.ConfigurableResourceFactory;
 import za.redbridge.simulator.factories.ResourceFactory;
+import za.redbridge.simulator.object.RobotObject;
 import za.redbridge.simulator.phenotype.Phenotype;
+import za.redbridge.simulator.neat.CompiledNEATNetwork;
 import za.redbridge.simulator.neat.NEATPhenotype;
 import za.redbridge.simulator.config.SchemaConfig;
 import za.redbridge.simulator.Evaluation;
+import za.redbridge.simulator.farm.EvaluationFarm;
 
 // runs an entire simulation with a specific network and calculates the fitness
 public class ScoreCalculator implements CalculateScore{
 
+    // where the performance values follow the objectives in the result of a simulation run
+    private static final int ADJACENT_PERFORMANCE = 3;
+    private static final int CONSTRUCTION_PERFORMANCE = 4;
+
     private final SimConfig simConfig;
     private final SchemaConfig schema;
     private final int simRuns;
     private final Morphology morphology;
 
-    private final DescriptiveStatistics adjacentPerformanceStats = new SynchronizedDescriptiveStatistics();
-    private final DescriptiveStatistics constructionPerformanceStats = new SynchronizedDescriptiveStatistics();
-    private final DescriptiveStatistics fitnessStats = new SynchronizedDescriptiveStatistics();
+    // each evaluation thread records into its own statistics, they are merged once a generation by the StatsRecorder
+    private final QuantileSketch quantileSketch;
+    private final StatisticsCollector adjacentPerformanceStats;
+    private final StatisticsCollector constructionPerformanceStats;
+    private final StatisticsCollector fitnessStats;
+
+    private final StatisticsCollector objectiveOneFitnessStats;
+    private final StatisticsCollector objectiveTwoFitnessStats;
+    private final StatisticsCollector objectiveThreeFitnessStats;
+
+    // simulations that have been built, each is checked out by one evaluation at a time and rewound for the next.
+    // they are not tied to threads with a ThreadLocal because a ForkJoinPool retires workers that sit idle
+    private final Deque<SimulationContext> simulationContexts = new ConcurrentLinkedDeque<>();
+
+    // when set, controllers are evaluated on the farm's workers rather than in this process
+    private volatile EvaluationFarm evaluationFarm;
 
-    private final DescriptiveStatistics objectiveOneFitnessStats = new SynchronizedDescriptiveStatistics();
-    private final DescriptiveStatistics objectiveTwoFitnessStats = new SynchronizedDescriptiveStatistics();
-    private final DescriptiveStatistics objectiveThreeFitnessStats = new SynchronizedDescriptiveStatistics();
+    // when set, every controller scored in a generation is run on the same scenarios drawn from it
+    private volatile SeedStream seedStream;
+    private volatile int generation = 0;
+
+    // if set, seeded runs start from a layout drawn from this library instead of placing their objects
+    private volatile LayoutLibrary layoutLibrary;
 
     private static final Logger log = LoggerFactory.getLogger(ScoreCalculator.class);
 
     public ScoreCalculator(SimConfig simConfig, SchemaConfig schema ,int simRuns, Morphology morphology){
+        this(simConfig, schema, simRuns, morphology, null);
+    }
+
+    /**
+     * @param quantileSketch an empty sketch that estimates the percentiles of the fitness and performance values as
+     *                       well, each thread and statistic is given its own. null to keep no percentiles
+     */
+    public ScoreCalculator(SimConfig simConfig, SchemaConfig schema ,int simRuns, Morphology morphology,
+            QuantileSketch quantileSketch){
         this.simConfig = simConfig;
         this.simRuns = simRuns;
         this.morphology = morphology;
         this.schema = schema;
+        this.quantileSketch = quantileSketch;
+        adjacentPerformanceStats = new StatisticsCollector(quantileSketch);
+        constructionPerformanceStats = new StatisticsCollector(quantileSketch);
+        fitnessStats = new StatisticsCollector(quantileSketch);
+        objectiveOneFitnessStats = new StatisticsCollector(quantileSketch);
+        objectiveTwoFitnessStats = new StatisticsCollector(quantileSketch);
+        objectiveThreeFitnessStats = new StatisticsCollector(quantileSketch);
     }
 
     /**
@@ -61,16 +103,8 @@ public class ScoreCalculator implements CalculateScore{
     public double calculateScore(MLMethod method){
         long start = System.nanoTime();
         NEATNetwork network = (NEATNetwork) method;
-        RobotFactory robotFactory = new HomogeneousRobotFactory(new NEATPhenotype(morphology, network),
-                    simConfig.getRobotMass(), simConfig.getRobotRadius(), simConfig.getRobotColour(),
-                    simConfig.getObjectsRobots());
-
-        // create new configurable resource factory
-        String [] resQuantity = {"0","0","0"};
-        ResourceFactory resourceFactory = new ConfigurableResourceFactory();
-        resourceFactory.configure(simConfig.getResources(), resQuantity);
-
-        Simulation simulation = new Simulation(simConfig, robotFactory, resourceFactory, schema);
+        SimulationContext context = acquireContext();
+        Simulation simulation = context.forNetwork(network);
 
         // opens simulation GUI window
         // SimulationGUI video = new SimulationGUI(simulation);
@@ -93,9 +127,8 @@ public class ScoreCalculator implements CalculateScore{
             fitness += tempFitness;
             adjacentPerformance += tempAdjacentPerformance;
             constructionPerformance += tempConstructionPerformance;
-
-            // fitness += 20 * (1.0 - simulation.getProgressFraction());
         }
+        releaseContext(context);
 
         double finalFitness = fitness/simRuns;
         double finalAdjacentPerformance = adjacentPerformance/simRuns;
@@ -118,16 +151,6 @@ public class ScoreCalculator implements CalculateScore{
      */
     public ArrayList<Double> calculateMultipleScores(MLMethod method){
         NEATNetwork network = (NEATNetwork) method;
-        RobotFactory robotFactory = new HomogeneousRobotFactory(new NEATPhenotype(morphology, network),
-                    simConfig.getRobotMass(), simConfig.getRobotRadius(), simConfig.getRobotColour(),
-                    simConfig.getObjectsRobots());
-
-        // create new configurable resource factory
-        String [] resQuantity = {"0","0","0"};
-        ResourceFactory resourceFactory = new ConfigurableResourceFactory();
-        resourceFactory.configure(simConfig.getResources(), resQuantity);
-
-        Simulation simulation = new Simulation(simConfig, robotFactory, resourceFactory, schema);
 
         int nObjectives = simConfig.getNumberOfObjectives();
         ArrayList<Double> fitnessValues = new ArrayList<Double>();
@@ -142,24 +165,24 @@ public class ScoreCalculator implements CalculateScore{
         double adjacentPerformance = 0;
         double constructionPerformance = 0;
 
-        for(int i=0;i<simRuns;i++){
-            // run the simulation
-            simulation.run();
+        // run the simulations on the evaluation farm, or spread across the evaluation pool when there is one
+        EvaluationFarm farm = evaluationFarm;
+        long[] seeds = getScenarioSeeds();
+        double[][] runs = farm != null ? farm.evaluate(network, seeds) : runReplicates(network, seeds);
 
+        for(int i=0;i<simRuns;i++){
             // get the fitness value for each objective
-            double [] tempFitness = simulation.getFitnessObjectives();
+            double [] tempFitness = runs[i];
             for(int j=0;j<nObjectives;j++){
                 fitnessValues.set(j, fitnessValues.get(j) + (Double) tempFitness[j]);
             }
 
             // get the performance values of the simulation run
-            double tempAdjacentPerformance = simulation.getAdjacentPerformance();
-            double tempConstructionPerformance = simulation.getConstructionPerformance();
+            double tempAdjacentPerformance = tempFitness[ADJACENT_PERFORMANCE];
+            double tempConstructionPerformance = tempFitness[CONSTRUCTION_PERFORMANCE];
 
             adjacentPerformance += tempAdjacentPerformance;
             constructionPerformance += tempConstructionPerformance;
-
-            // fitness += 20 * (1.0 - simulation.getProgressFraction()); // if you want to add a time bonus
         }
 
         // average the fitness and performance values over the simulation runs
@@ -189,6 +212,82 @@ public class ScoreCalculator implements CalculateScore{
         return fitnessValues;
     }
 
+    /**
+     * Runs the simulation runs of a controller in this process. Inside a ForkJoinPool every run but the first is
+     * forked so that idle workers can steal them, otherwise the runs happen one after the other on this thread.
+     * @param network the controller
+     * @param seeds the seed of the scenario of each run, see {@link #getScenarioSeeds()}. null for new random
+     *              scenarios
+     * @return the results of each run, see {@link #runReplicate(NEATNetwork, long[], int)}
+     */
+    public double[][] runReplicates(NEATNetwork network, long[] seeds) {
+        double[][] runs = new double[simRuns][];
+        if (simRuns > 1 && ForkJoinTask.inForkJoinPool()) {
+            List<ForkJoinTask<double[]>> forked = new ArrayList<>();
+            for (int i = 1; i < simRuns; i++) {
+                final int replicate = i;
+                forked.add(ForkJoinTask.adapt(() -> runReplicate(network, seeds, replicate)).fork());
+            }
+            runs[0] = runReplicate(network, seeds, 0);
+            // the last forked is on top of this thread's queue, so it is joined first
+            for (int i = simRuns - 1; i >= 1; i--) {
+                runs[i] = forked.get(i - 1).join();
+            }
+        } else {
+            for (int i = 0; i < simRuns; i++) {
+                runs[i] = runReplicate(network, seeds, i);
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Runs a controller once in a simulation checked out for this run.
+     * @param network the controller
+     * @param seeds the seed of the scenario of each run, or null for a new random scenario
+     * @param replicate the index of this run
+     * @return the fitness of each objective followed by the adjacent and construction performance. The first
+     *         objective includes the time bonus
+     */
+    private double[] runReplicate(NEATNetwork network, long[] seeds, int replicate) {
+        SimulationContext context = acquireContext();
+        try {
+            Simulation simulation = context.forNetwork(network);
+            LayoutLibrary library = layoutLibrary;
+            if (seeds != null) {
+                simulation.setPlacementSeed(seeds[replicate]);
+                simulation.setLayout(library != null ? library.forSeed(seeds[replicate]) : null);
+            }
+            simulation.run();
+
+            double[] objectives = simulation.getFitnessObjectives();
+            double[] result = Arrays.copyOf(objectives, objectives.length + 2);
+            // time bonus for the steps skipped by finishing construction early
+            result[0] += simConfig.getTimeBonus() * simulation.getEarlyCompletionFraction();
+            result[ADJACENT_PERFORMANCE] = simulation.getAdjacentPerformance();
+            result[CONSTRUCTION_PERFORMANCE] = simulation.getConstructionPerformance();
+            return result;
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    // contexts are handed out for new random scenarios, a seeded run sets its scenario after acquiring one
+    private SimulationContext acquireContext() {
+        SimulationContext context = simulationContexts.pollFirst();
+        if (context == null) {
+            return new SimulationContext();
+        }
+        context.simulation.clearPlacementSeed();
+        context.simulation.setLayout(null);
+        return context;
+    }
+
+    // the most recently used simulation is handed out next, while it is still in cache
+    private void releaseContext(SimulationContext context) {
+        simulationContexts.offerFirst(context);
+    }
+
     /**
      * Demos a controller in a simulated Environment
      * @param method genome/controller being tested
@@ -204,6 +303,7 @@ public class ScoreCalculator implements CalculateScore{
         resourceFactory.configure(simConfig.getResources(), resQuantity);
 
         Simulation simulation = new Simulation(simConfig, robotFactory, resourceFactory, schema);
+        simulation.setStopOnceCollected(true);
         SimulationGUI video = new SimulationGUI(simulation);
 
         Console console = new Console(video);
@@ -217,16 +317,8 @@ public class ScoreCalculator implements CalculateScore{
      */
     public void evaluate(MLMethod method, Evaluation eval){
         NEATNetwork network = (NEATNetwork) method;
-        RobotFactory robotFactory = new HomogeneousRobotFactory(new NEATPhenotype(morphology, network),
-                    simConfig.getRobotMass(), simConfig.getRobotRadius(), simConfig.getRobotColour(),
-                    simConfig.getObjectsRobots());
-
-        // create new configurable resource factory
-        String [] resQuantity = {"0","0","0"};
-        ResourceFactory resourceFactory = new ConfigurableResourceFactory();
-        resourceFactory.configure(simConfig.getResources(), resQuantity);
-
-        Simulation simulation = new Simulation(simConfig, robotFactory, resourceFactory, schema);
+        SimulationContext context = acquireContext();
+        Simulation simulation = context.forNetwork(network);
 
         double adjacentPerformance = 0;
 
@@ -239,28 +331,151 @@ public class ScoreCalculator implements CalculateScore{
             eval.saveEvaluationStats(tempAdjacentPerformance);
             adjacentPerformance += tempAdjacentPerformance;
         }
+        releaseContext(context);
+    }
+
+    /**
+     * Evaluates controllers on the workers of a farm rather than in this process. The statistics are still recorded
+     * here, from the results the workers send back.
+     * @param farm the farm, or null to evaluate in this process
+     */
+    public void setEvaluationFarm(EvaluationFarm farm) {
+        this.evaluationFarm = farm;
+    }
+
+    public EvaluationFarm getEvaluationFarm() {
+        return evaluationFarm;
+    }
+
+    /**
+     * Runs every controller scored in a generation on the same scenarios, drawn from the given stream, rather than on
+     * new random scenarios for each.
+     * @param seedStream the stream, or null for new random scenarios
+     */
+    public void setSeedStream(SeedStream seedStream) {
+        this.seedStream = seedStream;
+    }
+
+    public SeedStream getSeedStream() {
+        return seedStream;
+    }
+
+    /**
+     * Sets the generation whose scenarios the controllers scored from now on are run on.
+     * @param generation the generation being bred
+     */
+    public void setGeneration(int generation) {
+        this.generation = generation;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the seed of the scenario of each simulation run in the current generation, or null if there is no seed
+     *         stream
+     */
+    public long[] getScenarioSeeds() {
+        SeedStream stream = seedStream;
+        return stream != null ? stream.seeds(generation, simRuns) : null;
+    }
+
+    /**
+     * Starts each seeded simulation run from the layout the library has for its seed rather than
+     * placing its objects. Runs without a seed still place their objects.
+     * @param layoutLibrary the library, generated for this calculator's config, or null to place the objects
+     */
+    public void setLayoutLibrary(LayoutLibrary layoutLibrary) {
+        this.layoutLibrary = layoutLibrary;
+    }
+
+    public LayoutLibrary getLayoutLibrary() {
+        return layoutLibrary;
+    }
+
+    /**
+     * Generates a layout library for this calculator's config, in a simulation of its own.
+     * @param count the number of layouts
+     * @return the library
+     */
+    public LayoutLibrary generateLayouts(int count) {
+        return LayoutLibrary.generate(new SimulationContext().simulation, simConfig, schema, count);
+    }
+
+    public SimConfig getSimConfig() {
+        return simConfig;
+    }
+
+    public SchemaConfig getSchemaConfig() {
+        return schema;
     }
 
-    public DescriptiveStatistics getAdjacentPerformanceStatistics() {
+    public QuantileSketch getQuantileSketch() {
+        return quantileSketch;
+    }
+
+    public StatisticsCollector getAdjacentPerformanceStatistics() {
         return adjacentPerformanceStats;
     }
 
-    public DescriptiveStatistics getConstructionPerformanceStatistics() {
+    public StatisticsCollector getConstructionPerformanceStatistics() {
         return constructionPerformanceStats;
     }
 
-    public DescriptiveStatistics getObjectiveOneStatistics() {
+    public StatisticsCollector getObjectiveOneStatistics() {
         return objectiveOneFitnessStats;
     }
 
-    public DescriptiveStatistics getObjectiveTwoStatistics() {
+    public StatisticsCollector getObjectiveTwoStatistics() {
         return objectiveTwoFitnessStats;
     }
 
-    public DescriptiveStatistics getObjectiveThreeStatistics() {
+    public StatisticsCollector getObjectiveThreeStatistics() {
         return objectiveThreeFitnessStats;
     }
 
+    /**
+     * A simulation and the robot factory that populates it, built once and reused by one
+     * evaluation at a time. The network driving the robots is swapped in for each controller
+     * that is evaluated.
+     */
+    private class SimulationContext {
+        private final NEATPhenotype phenotype;
+        private final RobotFactory robotFactory;
+        private final Simulation simulation;
+
+        SimulationContext() {
+            phenotype = new NEATPhenotype(morphology, null);
+            robotFactory = new HomogeneousRobotFactory(phenotype, simConfig.getRobotMass(),
+                    simConfig.getRobotRadius(), simConfig.getRobotColour(), simConfig.getObjectsRobots());
+
+            // create new configurable resource factory
+            String [] resQuantity = {"0","0","0"};
+            ResourceFactory resourceFactory = new ConfigurableResourceFactory();
+            resourceFactory.configure(simConfig.getResources(), resQuantity);
+
+            simulation = new Simulation(simConfig, robotFactory, resourceFactory, schema);
+            simulation.setReuseWorld(true);
+            simulation.setStopOnceCollected(true);
+            simulation.setTeamInference(true);
+            simulation.setHeadless(true);
+        }
+
+        // the network is compiled once and shared by every robot, replicates of the same controller reuse it
+        Simulation forNetwork(NEATNetwork network) {
+            if (phenotype.getSharedController() == network) {
+                return simulation;
+            }
+            CompiledNEATNetwork compiledNetwork = new CompiledNEATNetwork(network);
+            phenotype.setNetwork(network, compiledNetwork);
+            for (RobotObject robot : robotFactory.getPlacedRobots()) {
+                ((NEATPhenotype) robot.getPhenotype()).setNetwork(network, compiledNetwork);
+            }
+            return simulation;
+        }
+    }
+
     @Override
     public boolean shouldMinimize() {
         return true;
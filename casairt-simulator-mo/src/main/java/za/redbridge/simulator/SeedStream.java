@@ -0,0 +1,54 @@
+package za.redbridge.simulator;
+
+/**
+ * Derives the seed of every simulation run in an experiment from the experiment's seed, so that a run of training can
+ * be repeated. The seed of a simulation run depends only on the generation and the replicate it is for, so every
+ * controller scored in a generation is run on the same scenarios. Scores within a generation then differ because the
+ * controllers differ rather than because of the layouts each was given, which lowers the variance of the comparisons
+ * selection makes.
+ */
+public final class SeedStream {
+
+    // the golden ratio in 64 bits, as used by SplitMix64 to step between seeds
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long experimentSeed;
+
+    public SeedStream(long experimentSeed) {
+        this.experimentSeed = experimentSeed;
+    }
+
+    public long getExperimentSeed() {
+        return experimentSeed;
+    }
+
+    /**
+     * @param generation the generation
+     * @param replicate the index of the simulation run among those a controller is scored over
+     * @return the seed of the simulation run
+     */
+    public long seed(int generation, int replicate) {
+        long seed = mix(experimentSeed + GOLDEN_GAMMA * (generation + 1L));
+        return mix(seed + GOLDEN_GAMMA * (replicate + 1L));
+    }
+
+    /**
+     * @param generation the generation
+     * @param replicates the number of simulation runs each controller is scored over
+     * @return the seed of each simulation run in the generation
+     */
+    public long[] seeds(int generation, int replicates) {
+        long[] seeds = new long[replicates];
+        for (int i = 0; i < replicates; i++) {
+            seeds[i] = seed(generation, i);
+        }
+        return seeds;
+    }
+
+    // the SplitMix64 finaliser, spreads a small change in the input across every bit of the output
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -2,11 +2,15 @@ package za.redbridge.simulator;
 
 import org.jbox2d.common.Settings;
 import org.jbox2d.common.Vec2;
+import org.jbox2d.dynamics.ContactManager;
 import org.jbox2d.dynamics.World;
+import org.jbox2d.dynamics.contacts.Contact;
 
 import java.util.Set;
 import org.encog.ml.data.MLData;
+import sim.engine.Schedule;
 import sim.engine.SimState;
+import sim.engine.Steppable;
 import sim.field.continuous.Continuous2D;
 import sim.field.grid.SparseGrid2D;
 import sim.util.Double2D;
@@ -23,6 +27,7 @@ import za.redbridge.simulator.portrayal.DrawProxy;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import za.redbridge.simulator.config.SchemaConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +40,7 @@ public class Simulation extends SimState {
 
     private static final float VELOCITY_THRESHOLD = 0.000001f;
     public static final float DISCR_GAP = 0.25f;
+    private static final int MIN_DISCR_CELLS = 20;
 
     private Continuous2D environment;
     private SparseGrid2D constructionEnvironment;
@@ -58,6 +64,40 @@ public class Simulation extends SimState {
     private boolean stopOnceCollected = false;
     private ContToDiscrSpace discr;
 
+    // if true, start() rewinds the previously built world instead of creating a new one
+    private boolean reuseWorld = false;
+    private int builtConfigNumber = -1;
+
+    // if set, layouts are drawn from this seed instead of the clock
+    private boolean placementSeeded = false;
+    private long placementSeed;
+    // true while the placement stream carries on from a placement seed, so unseeded runs reseed it from the clock
+    private boolean placementStreamSeeded = false;
+
+    // if set, runs start from this layout instead of searching for space for every object
+    private LayoutLibrary.Layout layout;
+
+    private final TerminationPolicy terminationPolicy;
+
+    // if true, nothing is kept up to date for drawing
+    private boolean headless = false;
+
+    // if true, robots sharing a controller have it stepped for the whole team at once
+    private boolean teamInference = false;
+    private final TeamInference teamInferenceStep = new TeamInference();
+
+    // the placed objects of the current run by phase, in the order they were placed
+    private RobotObject[] robots = new RobotObject[0];
+    private int robotCount = 0;
+    private PhysicalObject[] otherObjects = new PhysicalObject[0];
+    private int otherObjectCount = 0;
+
+    // the number of steps taken in the current run
+    private long steps = 0;
+
+    // runs that are watched have every phase stepped by the MASON schedule
+    private final Steppable phasesStep = simState -> stepPhases();
+
     private static final Logger log = LoggerFactory.getLogger(Simulation.class);
 
     public Simulation(SimConfig config, RobotFactory robotFactory, ResourceFactory resourceFactory, SchemaConfig schema) {
@@ -67,6 +107,7 @@ public class Simulation extends SimState {
         Settings.velocityThreshold = VELOCITY_THRESHOLD;
         this.resourceFactory = resourceFactory;
         this.schema = schema;
+        terminationPolicy = new TerminationPolicy(config.getStagnationSteps());
     }
 
     // starts the simulation, creating the environment and placing all objects
@@ -74,35 +115,176 @@ public class Simulation extends SimState {
     public void start() {
         super.start();
 
-        environment = new Continuous2D(1.0, config.getEnvironmentWidth(), config.getEnvironmentHeight());
-        drawProxy = new DrawProxy(environment.getWidth(), environment.getHeight());
-        environment.setObjectLocation(drawProxy, new Double2D());
+        // a world built headless has nothing to draw with, so it is rebuilt once something draws it
+        if (reuseWorld && physicsWorld != null && builtConfigNumber == config.getConfigNumber()
+                && (headless || drawProxy != null)) {
+            resetWorld();
+        }
+        else {
+            buildWorld();
+        }
+
+        // Now actually add the objects that have been placed to the world, by the phase they step in
+        Set<PhysicalObject> placedObjects = placementArea.getPlacedObjects();
+        if (robots.length < placedObjects.size()) {
+            robots = new RobotObject[placedObjects.size()];
+            otherObjects = new PhysicalObject[placedObjects.size()];
+        }
+        robotCount = 0;
+        otherObjectCount = 0;
+        for (PhysicalObject object : placedObjects) {
+            object.setDrawn(!headless);
+            if (!headless) {
+                drawProxy.registerDrawable(object.getPortrayal());
+            }
+            if (object instanceof RobotObject) {
+                robots[robotCount++] = (RobotObject) object;
+            }
+            else {
+                otherObjects[otherObjectCount++] = object;
+            }
+        }
+
+        for (RobotObject robot : robotFactory.getPlacedRobots()) {
+            robot.setTeamInference(teamInference);
+        }
+        if (teamInference) {
+            teamInferenceStep.setRobots(robotFactory.getPlacedRobots());
+        }
+
+        steps = 0;
+        terminationPolicy.reset();
+        schedule.scheduleRepeating(Schedule.EPOCH, 0, phasesStep, 1.0);
+    }
+
+    /**
+     * Takes one step of the simulation by stepping each phase in turn: every robot senses and
+     * steps its heuristics (and its controller, unless the team's controllers are stepped
+     * together), the team's controllers choose their wheel drives, the resources attach the robots
+     * that picked them up, the physics world moves, the construction task joins the resources that
+     * can be joined and finally the termination policy decides whether the run is over. Runs in
+     * training take their steps here directly, runs that are watched have it stepped by the MASON
+     * schedule, so for a given seed both take the same steps.
+     * @return false once the termination policy has stopped the run
+     */
+    public boolean stepPhases() {
+        for (int i = 0; i < robotCount; i++) {
+            robots[i].step(this);
+        }
+        if (teamInference) {
+            teamInferenceStep.step(this);
+        }
+        for (int i = 0; i < otherObjectCount; i++) {
+            otherObjects[i].step(this);
+        }
+        physicsWorld.step(TIME_STEP, VELOCITY_ITERATIONS, POSITION_ITERATIONS);
+        construction.step(this);
+        terminationPolicy.step(this);
+        steps++;
+        return terminationPolicy.getReason() == TerminationPolicy.Reason.NONE;
+    }
+
+    // creates the environment, physics world and every object from scratch
+    private void buildWorld() {
+        double width = config.getEnvironmentWidth();
+        double height = config.getEnvironmentHeight();
+        if (headless) {
+            environment = null;
+            drawProxy = null;
+        }
+        else {
+            environment = new Continuous2D(1.0, width, height);
+            drawProxy = new DrawProxy(width, height);
+            environment.setObjectLocation(drawProxy, new Double2D());
+        }
 
         physicsWorld = new World(new Vec2());
-        placementArea = new PlacementArea((float) environment.getWidth(), (float) environment.getHeight());
-        placementArea.setSeed(System.currentTimeMillis());
+        placementArea = new PlacementArea((float) width, (float) height);
+        placementArea.setSeed(placementSeeded ? placementSeed : System.currentTimeMillis());
+        placementStreamSeeded = placementSeeded;
         schedule.reset();
-        System.gc();
 
         physicsWorld.setContactListener(contactListener);
 
         // Create ALL the objects
         createWalls();
 
+        builtConfigNumber = config.getConfigNumber();
         robotFactory.placeInstances(placementArea.new ForType<>(), physicsWorld, config.getTargetAreaPlacement());
-        discr = new ContToDiscrSpace(20,20,1D,1D, DISCR_GAP, schema, config.getConfigNumber());
-        resourceFactory.setResQuantity(schema.getResQuantity(config.getConfigNumber()));
+        // the discrete grid covers at least the environment, larger environments get a larger grid
+        int discrWidth = Math.max(MIN_DISCR_CELLS, (int) Math.ceil(width / (1D + DISCR_GAP)));
+        int discrHeight = Math.max(MIN_DISCR_CELLS, (int) Math.ceil(height / (1D + DISCR_GAP)));
+        discr = new ContToDiscrSpace(discrWidth,discrHeight,1D,1D, DISCR_GAP, schema, builtConfigNumber);
+        resourceFactory.setResQuantity(schema.getResQuantity(builtConfigNumber));
         resourceFactory.placeInstances(placementArea.new ForType<>(), physicsWorld);
-        construction = new ConstructionTask(schema,resourceFactory.getPlacedResources(),robotFactory.getPlacedRobots(),physicsWorld, config.getConfigNumber(), environment.getWidth(), environment.getHeight());
+        if (layout != null) {
+            // the objects were built wherever the search put them, so move them to the layout
+            placementArea.clear();
+            restoreLayout();
+        }
+        construction = new ConstructionTask(schema,resourceFactory.getPlacedResources(),robotFactory.getPlacedRobots(),physicsWorld, builtConfigNumber, width, height);
+    }
+
+    // rewinds the existing world to a new random layout or the one set, keeping the bodies, sensors and grid
+    private void resetWorld() {
+        schedule.reset();
+        placementArea.clear();
+        if (layout != null) {
+            restoreLayout();
+            discr.reset();
+        }
+        else {
+            if (placementSeeded) {
+                placementArea.setSeed(placementSeed);
+            }
+            else if (placementStreamSeeded) {
+                placementArea.setSeed(System.nanoTime());
+            }
+            placementStreamSeeded = placementSeeded;
+            robotFactory.resetInstances(placementArea.new ForType<>());
+            discr.reset();
+            resourceFactory.resetInstances(placementArea.new ForType<>());
+        }
+        construction = new ConstructionTask(schema,resourceFactory.getPlacedResources(),robotFactory.getPlacedRobots(),physicsWorld, builtConfigNumber, config.getEnvironmentWidth(), config.getEnvironmentHeight());
+        resetContacts();
+    }
 
-        // Now actually add the objects that have been placed to the world and schedule
-        for (PhysicalObject object : placementArea.getPlacedObjects()) {
-            drawProxy.registerDrawable(object.getPortrayal());
-            schedule.scheduleRepeating(object);
+    // moves the robots and resources to where the layout has them, at rest, in the order they were placed
+    private void restoreLayout() {
+        List<RobotObject> placedRobots = robotFactory.getPlacedRobots();
+        List<ResourceObject> placedResources = resourceFactory.getPlacedResources();
+        if (layout.getRobotCount() != placedRobots.size() || layout.getResourceCount() != placedResources.size()) {
+            throw new IllegalArgumentException("Layout has " + layout.getRobotCount() + " robots and "
+                    + layout.getResourceCount() + " resources, the simulation has " + placedRobots.size()
+                    + " robots and " + placedResources.size() + " resources");
         }
 
-        schedule.scheduleRepeating(construction);
-        schedule.scheduleRepeating(simState -> physicsWorld.step(TIME_STEP, VELOCITY_ITERATIONS, POSITION_ITERATIONS));
+        Vec2 position = new Vec2();
+        for (int i = 0; i < placedRobots.size(); i++) {
+            RobotObject robot = placedRobots.get(i);
+            robot.reset(layout.getPosition(i, position), layout.getAngle(i));
+            placementArea.placeRestoredObject(robot);
+        }
+        for (int i = 0; i < placedResources.size(); i++) {
+            int object = placedRobots.size() + i;
+            ResourceObject resource = placedResources.get(i);
+            resource.reset(layout.getPosition(object, position), layout.getAngle(object));
+            placementArea.placeRestoredObject(resource);
+        }
+    }
+
+    // drops the contacts of the last run and finds those of the new layout, as a newly built world does on its first
+    // step, so that a run on a reset world takes the same steps as one on a new world
+    private void resetContacts() {
+        ContactManager contactManager = physicsWorld.getContactManager();
+        Contact contact = physicsWorld.getContactList();
+        while (contact != null) {
+            Contact next = contact.getNext();
+            // ends the contact for the sensors and the contact listener if it was touching
+            contactManager.destroy(contact);
+            contact = next;
+        }
+        contactManager.findNewContacts();
     }
 
     @Override
@@ -119,24 +301,32 @@ public class Simulation extends SimState {
         Double2D v1 = new Double2D(0, -pos.y);
         Double2D v2 = new Double2D(0, pos.y);
         WallObject wall = new WallObject(physicsWorld, pos, v1, v2);
-        drawProxy.registerDrawable(wall.getPortrayal());
+        registerDrawable(wall);
 
         // Right
         pos = new Double2D(environmentWidth, environmentHeight / 2.0);
         wall = new WallObject(physicsWorld, pos, v1, v2);
-        drawProxy.registerDrawable(wall.getPortrayal());
+        registerDrawable(wall);
 
         // Top
         pos = new Double2D(environmentWidth / 2.0, 0);
         v1 = new Double2D(-pos.x, 0);
         v2 = new Double2D(pos.x, 0);
         wall = new WallObject(physicsWorld, pos, v1, v2);
-        drawProxy.registerDrawable(wall.getPortrayal());
+        registerDrawable(wall);
 
         // Bottom
         pos = new Double2D(environmentWidth / 2.0, environmentHeight);
         wall = new WallObject(physicsWorld, pos, v1, v2);
-        drawProxy.registerDrawable(wall.getPortrayal());
+        registerDrawable(wall);
+    }
+
+    // walls are never stepped, so their portrayals are put in place once when they are registered
+    private void registerDrawable(WallObject wall) {
+        if (drawProxy != null) {
+            wall.setDrawn(true);
+            drawProxy.registerDrawable(wall.getPortrayal());
+        }
     }
 
     // sets the seed for the simulator. allows for resources and robots to be placed randomly each time
@@ -146,6 +336,33 @@ public class Simulation extends SimState {
         config.setSimulationSeed(seed);
     }
 
+    /**
+     * Places the objects of every following run using the given seed rather than the clock, so
+     * that each run starts from the same layout. Used to compare runs on fixed layouts.
+     * @param seed the placement seed
+     */
+    public void setPlacementSeed(long seed) {
+        placementSeeded = true;
+        placementSeed = seed;
+    }
+
+    /**
+     * Places the objects of every following run using the clock again, undoing
+     * {@link #setPlacementSeed(long)}.
+     */
+    public void clearPlacementSeed() {
+        placementSeeded = false;
+    }
+
+    /**
+     * Starts every following run from the given layout rather than placing the objects, until it is
+     * set to null. The layout must have been generated for the same config.
+     * @param layout the layout, or null to place the objects of each run
+     */
+    public void setLayout(LayoutLibrary.Layout layout) {
+        this.layout = layout;
+    }
+
     private double getRobotAvgPolygonArea() {
         Set<PhysicalObject> objects = placementArea.getPlacedObjects();
         double totalArea = 0.0;
@@ -158,7 +375,7 @@ public class Simulation extends SimState {
         return totalArea/config.getObjectsRobots();
     }
 
-    /** Get the environment (forage area) for this simulation. */
+    /** Get the environment (forage area) for this simulation, or null if it was built headless. */
     public Continuous2D getEnvironment() {
         return environment;
     }
@@ -172,13 +389,16 @@ public class Simulation extends SimState {
     }
 
     /**
-     * Run the simulation for a certain number of iterations.
+     * Run the simulation for a certain number of iterations, or until the termination policy
+     * stops it early. The steps are taken directly rather than through the MASON schedule.
      * @param n the number of iterations
      */
     public void runForNIterations(int n) {
         start();
         for (int i = 0; i < n; i++) {
-            schedule.step(this);
+            if (!stepPhases()) {
+                break;
+            }
         }
         finish();
     }
@@ -193,6 +413,51 @@ public class Simulation extends SimState {
         this.stopOnceCollected = stopOnceCollected;
     }
 
+    /** If true, the world built by the first run is reset and reused by every following run. */
+    public boolean isReuseWorld() {
+        return reuseWorld;
+    }
+
+    /**
+     * If set true, the robots, sensors, resources and discrete grid are only built on the first
+     * call to start(). Following runs move the same objects to a new random layout instead of
+     * rebuilding the world. The world is still rebuilt if the schema config number changes.
+     */
+    public void setReuseWorld(boolean reuseWorld) {
+        this.reuseWorld = reuseWorld;
+    }
+
+    /** If true, nothing is kept up to date for drawing. */
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    /**
+     * If set true, the simulation keeps nothing up to date for drawing: no environment or draw
+     * proxy is made, objects do not move their portrayals or their locations in the environment as
+     * they move, and the drawables that only decorate portrayals are never built. Used for
+     * training, which never draws a frame. A {@link SimulationGUI} sets it false when it is
+     * attached. Takes effect on the next call to start().
+     */
+    public void setHeadless(boolean headless) {
+        this.headless = headless;
+    }
+
+    /** If true, robots sharing a controller have it stepped for the whole team at once. */
+    public boolean isTeamInference() {
+        return teamInference;
+    }
+
+    /**
+     * If set true, robots with a {@link za.redbridge.simulator.phenotype.ShareablePhenotype} only
+     * sense and step their heuristics when they are stepped. Once every robot has been stepped the
+     * controller is evaluated for all the robots sharing it in one batch, and then the construction
+     * task and physics are stepped. Takes effect on the next call to start().
+     */
+    public void setTeamInference(boolean teamInference) {
+        this.teamInference = teamInference;
+    }
+
     public SparseGrid2D getConstructionEnvironment() {
         return constructionEnvironment;
     }
@@ -201,14 +466,48 @@ public class Simulation extends SimState {
         return discr;
     }
 
+    public ArrayList<ResourceObject> getResources() {
+        return resourceFactory.getPlacedResources();
+    }
+
+    public ArrayList<RobotObject> getRobots() {
+        return robotFactory.getPlacedRobots();
+    }
+
+    public ConstructionTask getConstructionTask() {
+        return construction;
+    }
+
+    /** True once every resource in this run has been constructed. */
+    public boolean isConstructionComplete() {
+        return construction.isComplete();
+    }
+
     /** Gets the progress of the simulation as a percentage */
     public double getProgressFraction() {
-        return (double) schedule.getSteps() / config.getSimulationIterations();
+        return (double) steps / config.getSimulationIterations();
+    }
+
+    /** Why the last run stopped before its iteration limit, or NONE if it did not. */
+    public TerminationPolicy.Reason getTerminationReason() {
+        return terminationPolicy.getReason();
+    }
+
+    /**
+     * Gets the fraction of the iterations that were skipped because every resource was
+     * constructed early. Runs stopped for stagnation are not credited, since nothing would have
+     * changed in the remaining steps.
+     */
+    public double getEarlyCompletionFraction() {
+        if (terminationPolicy.getReason() != TerminationPolicy.Reason.COMPLETED) {
+            return 0.0;
+        }
+        return Math.max(0.0, 1.0 - getProgressFraction());
     }
 
     /** Get the number of steps this simulation has been run for. */
     public long getStepNumber() {
-        return schedule.getSteps();
+        return steps;
     }
 
     /**
@@ -30,6 +30,10 @@ public class SimulationGUI extends GUIState {
 
     public SimulationGUI(SimState state) {
         super(state);
+        // the GUI draws the environment and portrayals, so they have to be kept up to date
+        if (state instanceof Simulation) {
+            ((Simulation) state).setHeadless(false);
+        }
     }
 
     @Override
@@ -0,0 +1,74 @@
+package za.redbridge.simulator;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Statistics of a value recorded from many threads at once. Each thread adds to its own {@link RunningStatistics}, so
+ * recording a value never waits on another thread, and the statistics of every thread are merged when they are
+ * collected. Memory does not grow with the number of values recorded.
+ *
+ * Values should only be collected once the threads recording them have finished, as the EA does between generations.
+ */
+public class StatisticsCollector {
+
+    // the statistics of one thread
+    private static class Shard {
+        private final Thread owner = Thread.currentThread();
+        private final RunningStatistics stats;
+
+        private Shard(RunningStatistics stats) {
+            this.stats = stats;
+        }
+    }
+
+    private final QuantileSketch sketch;
+    private final Queue<Shard> shards = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Shard> shard = ThreadLocal.withInitial(this::newShard);
+
+    public StatisticsCollector() {
+        this(null);
+    }
+
+    /**
+     * @param sketch an empty sketch of the kind used to estimate percentiles, each thread is given its own. May be
+     *               null if percentiles are not wanted
+     */
+    public StatisticsCollector(QuantileSketch sketch) {
+        this.sketch = sketch;
+    }
+
+    private Shard newShard() {
+        Shard newShard = new Shard(newStatistics());
+        shards.add(newShard);
+        return newShard;
+    }
+
+    private RunningStatistics newStatistics() {
+        return new RunningStatistics(sketch != null ? sketch.newInstance() : null);
+    }
+
+    public void addValue(double value) {
+        shard.get().stats.addValue(value);
+    }
+
+    /**
+     * Merges the values recorded by every thread since the last collection and starts again from empty.
+     * @return the statistics of the values
+     */
+    public RunningStatistics collect() {
+        RunningStatistics total = newStatistics();
+        Iterator<Shard> iterator = shards.iterator();
+        while (iterator.hasNext()) {
+            Shard next = iterator.next();
+            total.merge(next.stats);
+            next.stats.clear();
+            // threads retired by their pool will not record again
+            if (!next.owner.isAlive()) {
+                iterator.remove();
+            }
+        }
+        return total;
+    }
+}
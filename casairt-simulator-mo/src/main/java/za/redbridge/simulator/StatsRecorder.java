@@ -1,6 +1,5 @@
 package za.redbridge.simulator;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.encog.ml.ea.genome.Genome;
 import org.encog.ml.ea.population.Population;
 import org.encog.ml.ea.train.EvolutionaryAlgorithm;
@@ -10,25 +9,30 @@ import org.encog.neural.networks.BasicNetwork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.encog.neural.neat.NEATPopulation;
+import za.redbridge.simulator.moneat.MultiObjectiveBasicEA;
 import za.redbridge.simulator.moneat.MultiObjectivePopulation;
 import za.redbridge.simulator.moneat.MultiObjectiveGenome;
 import za.redbridge.simulator.moneat.MultiObjectiveTrainEA;
+import za.redbridge.simulator.moneat.ObjectiveStore;
+import za.redbridge.simulator.checkpoint.ArtifactWriter;
+import za.redbridge.simulator.checkpoint.CheckpointEncoder;
+import za.redbridge.simulator.checkpoint.CheckpointFormat;
+import java.util.ArrayList;
 import java.util.List;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
-import java.nio.file.OpenOption;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 
 import static za.redbridge.simulator.Utils.getLoggingDirectory;
 import static za.redbridge.simulator.Utils.saveObjectToFile;
 
 /**
- * Class for recording fitness and performance stats each generation.
+ * Class for recording fitness and performance stats each generation. The state is gathered between generations and
+ * written out in the background by an {@link ArtifactWriter} while the next generation runs, so {@link #close()} must
+ * be called once training is over.
  *
  */
 public class StatsRecorder {
@@ -49,12 +53,38 @@ public class StatsRecorder {
     private Path objectiveTwoFitnessStatsFile;
     private Path objectiveThreeFitnessStatsFile;
 
+    private Path phaseTimesFile;
+
     private Path evaluationFitnessFile;
     private Genome currentBestGenome;
 
+    private final ArtifactWriter writer = new ArtifactWriter();
+    private final CheckpointEncoder checkpoints = new CheckpointEncoder();
+    // generations between checkpoints, and the last generation recorded and checkpointed
+    private final int checkpointInterval;
+    private int lastRecorded = -1;
+    private int lastCheckpoint = -1;
+    // true when carrying on a run in the directory it was already recording to
+    private final boolean resuming;
+
     public StatsRecorder(EvolutionaryAlgorithm trainer, ScoreCalculator calculator) {
+        this(trainer, calculator, getLoggingDirectory(), 1);
+    }
+
+    /**
+     * @param trainer the EA
+     * @param calculator the score calculator
+     * @param rootDirectory the directory to record to. If the run is being resumed into a directory it has already
+     *                      recorded to, the stats files are kept up to the generation it is resumed from
+     * @param checkpointInterval the number of generations between checkpoints of the population
+     */
+    public StatsRecorder(EvolutionaryAlgorithm trainer, ScoreCalculator calculator, Path rootDirectory,
+            int checkpointInterval) {
         this.trainer = trainer;
         this.calculator = calculator;
+        this.rootDirectory = rootDirectory;
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+        this.resuming = trainer.getIteration() > 0;
         initFiles();
     }
 
@@ -65,7 +95,6 @@ public class StatsRecorder {
     }
 
     private void initDirectories() {
-        rootDirectory = getLoggingDirectory();
         initDirectory(rootDirectory);
 
         populationDirectory = rootDirectory.resolve("populations");
@@ -88,7 +117,7 @@ public class StatsRecorder {
         initStatsFile(adjacentPerformanceStatsFile);
 
         constructionPerformanceStatsFile = rootDirectory.resolve("constructionPerformance.csv");
-        initStatsFile(adjacentPerformanceStatsFile);
+        initStatsFile(constructionPerformanceStatsFile);
 
         objectiveOneFitnessStatsFile = rootDirectory.resolve("objective_1.csv");
         initStatsFile(objectiveOneFitnessStatsFile);
@@ -98,11 +127,50 @@ public class StatsRecorder {
 
         objectiveThreeFitnessStatsFile = rootDirectory.resolve("objective_3.csv");
         initStatsFile(objectiveThreeFitnessStatsFile);
+
+        phaseTimesFile = rootDirectory.resolve("phaseTimes.csv");
+        if (resumeFile(phaseTimesFile)) {
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(phaseTimesFile, Charset.defaultCharset())) {
+            writer.write("generation, evaluation, fitness, selection, speciation, purge\n");
+        } catch (IOException e) {
+            log.error("Unable to initialize phase times file", e);
+        }
     }
 
-    private static void initStatsFile(Path path) {
+    // when resuming, keeps the header and the lines of the generations up to the one resumed from, dropping any
+    // recorded after the checkpoint. returns false if there is no file to keep
+    private boolean resumeFile(Path path) {
+        if (!resuming || !Files.exists(path)) {
+            return false;
+        }
+        try {
+            List<String> kept = new ArrayList<>();
+            for (String line : Files.readAllLines(path, Charset.defaultCharset())) {
+                String first = line.split(",", 2)[0].trim();
+                if (!first.matches("\\d+") || Integer.parseInt(first) <= trainer.getIteration()) {
+                    kept.add(line);
+                }
+            }
+            Files.write(path, kept, Charset.defaultCharset());
+        } catch (IOException e) {
+            log.error("Unable to resume stats file", e);
+        }
+        return true;
+    }
+
+    private void initStatsFile(Path path) {
+        if (resumeFile(path)) {
+            return;
+        }
         try (BufferedWriter writer = Files.newBufferedWriter(path, Charset.defaultCharset())) {
-            writer.write("generation, min, max, mean, standev\n");
+            if (calculator.getQuantileSketch() != null) {
+                writer.write("generation, min, max, mean, standev, lower quartile, median, upper quartile\n");
+            }
+            else {
+                writer.write("generation, min, max, mean, standev\n");
+            }
         } catch (IOException e) {
             log.error("Unable to initialize stats file", e);
         }
@@ -120,7 +188,17 @@ public class StatsRecorder {
         recordStats(calculator.getObjectiveTwoStatistics(), generation, objectiveTwoFitnessStatsFile);
         recordStats(calculator.getObjectiveThreeStatistics(), generation, objectiveThreeFitnessStatsFile);
 
-        savePopulation((MultiObjectivePopulation) trainer.getPopulation(), generation);
+        recordPhaseTimes((MultiObjectiveBasicEA) trainer, generation);
+
+        ObjectiveStore store = ((MultiObjectiveBasicEA) trainer).getObjectiveStore();
+        log.info("objective store: " + store.size() + " genomes, capacity " + store.getCapacity() + ", peak "
+                + store.getPeakSize() + ", evicted " + store.getEvicted());
+
+        // the population before the first generation has not been scored, so there is nothing to resume from
+        lastRecorded = generation;
+        if (generation > 0 && generation % checkpointInterval == 0) {
+            savePopulation((MultiObjectiveBasicEA) trainer, generation);
+        }
 
         log.info("Non-dominated set of genomes:");
         List<Genome> nondominatedSet = ((MultiObjectiveTrainEA) trainer).getParetoFront();
@@ -129,13 +207,27 @@ public class StatsRecorder {
             saveGenome((NEATGenome) genome, generation, i);
             i++;
         }
+
+        writer.endGeneration();
     }
 
-    // saves a population of genomes
-    private void savePopulation(Population population, int generation) {
-        String filename = "generation-" + generation + ".ser";
-        Path path = populationDirectory.resolve(filename);
-        saveObjectToFile(population, path);
+    /**
+     * Checkpoints the last generation recorded if it has not been already, and waits for everything recorded so far
+     * to be written. If training failed part way through a generation the EA is not checkpointed, as its state is
+     * then neither that generation's nor the last one recorded.
+     */
+    public void close() {
+        if (lastRecorded > 0 && lastRecorded != lastCheckpoint && trainer.getIteration() == lastRecorded) {
+            savePopulation((MultiObjectiveBasicEA) trainer, lastRecorded);
+        }
+        writer.close();
+    }
+
+    // saves a compact checkpoint of the population, archive, species and EA state
+    private void savePopulation(MultiObjectiveBasicEA ea, int generation) {
+        lastCheckpoint = generation;
+        byte[] checkpoint = checkpoints.encode(ea, generation, calculator.getSeedStream());
+        writer.writeCompressed(CheckpointFormat.checkpointFile(populationDirectory, generation), checkpoint);
     }
 
     // decodes a genome into a neat network
@@ -143,14 +235,22 @@ public class StatsRecorder {
         return (NEATNetwork) trainer.getCODEC().decode(genome);
     }
 
-    // saves a genome into a file that can then be demoed
+    // saves a genome into a file that can then be demoed. the genome is copied so that it can be decoded and written
+    // while the next generation runs
     private void saveGenome(NEATGenome genome, int epoch, int i) {
+        log.info("Epoch: " + epoch + ", score: "  + genome.getScore());
+
+        final NEATGenome copy = new NEATGenome(genome);
+        copy.setPopulation(genome.getPopulation());
+        copy.setScore(genome.getScore());
+        writer.submit("save best network", () -> writeGenome(copy, epoch, i));
+    }
+
+    private void writeGenome(NEATGenome genome, int epoch, int i) {
         Path directory = bestNetworkDirectory.resolve("epoch-" + epoch);
         initDirectory(directory);
 
         String txt;
-
-        log.info("Epoch: " + epoch + ", score: "  + genome.getScore());
         txt = String.format("epoch: %d, fitness: %f", epoch, genome.getScore());
 
         Path txtPath = directory.resolve("info" + i + ".txt");
@@ -166,33 +266,42 @@ public class StatsRecorder {
         GraphvizEngine.saveGenome(genome, directory.resolve("graph" + i + ".dot"));
     }
 
-    private void recordStats(DescriptiveStatistics stats, int generation, Path filepath) {
+    // merges the statistics recorded by each evaluation thread over the generation
+    private void recordStats(StatisticsCollector collector, int generation, Path filepath) {
+        RunningStatistics stats = collector.collect();
         double max = stats.getMax();
         double min = stats.getMin();
         double mean = stats.getMean();
         double sd = stats.getStandardDeviation();
-        stats.clear();
 
         log.debug("Recording stats - min: " + min + ", max: " + max + ", mean :" + mean);
-        saveStats(filepath, generation, min, max, mean, sd);
+        if (stats.hasPercentiles()) {
+            String line = String.format("%d, %f, %f, %f, %f, %f, %f, %f\n", generation, min, max, mean, sd,
+                    stats.getPercentile(25), stats.getPercentile(50), stats.getPercentile(75));
+            writer.append(filepath, line);
+        }
+        else {
+            saveStats(filepath, generation, min, max, mean, sd);
+        }
+    }
+
+    // time spent in each phase of the generation, in milliseconds
+    private void recordPhaseTimes(MultiObjectiveBasicEA ea, int generation) {
+        StringBuilder line = new StringBuilder(Integer.toString(generation));
+        for (MultiObjectiveBasicEA.Phase phase : MultiObjectiveBasicEA.Phase.values()) {
+            line.append(String.format(", %f", ea.getPhaseTime(phase)));
+        }
+        writer.append(phaseTimesFile, line.append('\n').toString());
     }
 
     private BasicNetwork decodeGenome(Genome genome) {
         return (BasicNetwork) trainer.getCODEC().decode(genome);
     }
 
-    private static void saveStats(Path path, int generation, double min, double max, double mean,
+    // the line is batched with the rest of the generation's stats and written in the background
+    private void saveStats(Path path, int generation, double min, double max, double mean,
             double sd) {
         String line = String.format("%d, %f, %f, %f, %f\n", generation, min, max, mean, sd);
-
-        final OpenOption[] options = {
-                StandardOpenOption.APPEND, StandardOpenOption.CREATE, StandardOpenOption.WRITE
-        };
-        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path,
-                Charset.defaultCharset(), options))) {
-            writer.append(line);
-        } catch (IOException e) {
-            log.error("Failed to append to log file", e);
-        }
+        writer.append(path, line);
     }
 }
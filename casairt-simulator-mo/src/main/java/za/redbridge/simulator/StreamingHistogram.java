@@ -0,0 +1,160 @@
+package za.redbridge.simulator;
+
+/**
+ * A quantile sketch that summarises the values as a fixed number of bins, each a centroid and the number of values
+ * it stands for (Ben-Haim and Tom-Tov, 2010). When a value would make one bin too many, the two bins with the closest
+ * centroids are combined. Quantiles are interpolated between the centroids, so they are exact while there are fewer
+ * distinct values than bins and close otherwise.
+ */
+public class StreamingHistogram implements QuantileSketch {
+
+    public static final int DEFAULT_BINS = 64;
+
+    private final int maxBins;
+
+    // sorted by centroid, with room for one extra bin before two are combined
+    private final double[] centroids;
+    private final long[] counts;
+    private int nBins = 0;
+    private long total = 0;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    public StreamingHistogram() {
+        this(DEFAULT_BINS);
+    }
+
+    /**
+     * @param maxBins the most bins kept, more gives closer quantiles
+     */
+    public StreamingHistogram(int maxBins) {
+        if (maxBins < 2) {
+            throw new IllegalArgumentException("A histogram needs at least 2 bins");
+        }
+        this.maxBins = maxBins;
+        centroids = new double[maxBins + 1];
+        counts = new long[maxBins + 1];
+    }
+
+    @Override
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    private void add(double centroid, long count) {
+        if (Double.isNaN(centroid)) {
+            return;
+        }
+        if (total == 0) {
+            min = centroid;
+            max = centroid;
+        }
+        else {
+            min = Math.min(min, centroid);
+            max = Math.max(max, centroid);
+        }
+        total += count;
+
+        int i = 0;
+        while (i < nBins && centroids[i] < centroid) {
+            i++;
+        }
+        if (i < nBins && centroids[i] == centroid) {
+            counts[i] += count;
+            return;
+        }
+
+        System.arraycopy(centroids, i, centroids, i + 1, nBins - i);
+        System.arraycopy(counts, i, counts, i + 1, nBins - i);
+        centroids[i] = centroid;
+        counts[i] = count;
+        nBins++;
+
+        if (nBins > maxBins) {
+            combineClosest();
+        }
+    }
+
+    // combines the two neighbouring bins with the closest centroids into one at their weighted mean
+    private void combineClosest() {
+        int closest = 0;
+        double gap = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < nBins - 1; i++) {
+            double d = centroids[i + 1] - centroids[i];
+            if (d < gap) {
+                gap = d;
+                closest = i;
+            }
+        }
+
+        long count = counts[closest] + counts[closest + 1];
+        centroids[closest] = (centroids[closest] * counts[closest] + centroids[closest + 1] * counts[closest + 1])
+                / count;
+        counts[closest] = count;
+        System.arraycopy(centroids, closest + 2, centroids, closest + 1, nBins - closest - 2);
+        System.arraycopy(counts, closest + 2, counts, closest + 1, nBins - closest - 2);
+        nBins--;
+    }
+
+    @Override
+    public void merge(QuantileSketch other) {
+        if (!(other instanceof StreamingHistogram)) {
+            throw new IllegalArgumentException("Can only merge with another StreamingHistogram");
+        }
+        StreamingHistogram histogram = (StreamingHistogram) other;
+        if (histogram.total == 0) {
+            return;
+        }
+        double otherMin = histogram.min;
+        double otherMax = histogram.max;
+        for (int i = 0; i < histogram.nBins; i++) {
+            add(histogram.centroids[i], histogram.counts[i]);
+        }
+        // the extremes of the other histogram may have been combined into its bins
+        min = Math.min(min, otherMin);
+        max = Math.max(max, otherMax);
+    }
+
+    /**
+     * Each bin is taken to hold half its values below its centroid and half above, the values between two centroids
+     * are spread evenly between them, and the values beyond the outer centroids reach to the minimum and maximum.
+     */
+    @Override
+    public double getQuantile(double q) {
+        if (total == 0) {
+            return Double.NaN;
+        }
+        final double target = Math.max(0.0, Math.min(1.0, q)) * total;
+
+        double position = counts[0] / 2.0;
+        if (target <= position) {
+            return interpolate(min, centroids[0], target / position);
+        }
+        for (int i = 0; i < nBins - 1; i++) {
+            double next = position + (counts[i] + counts[i + 1]) / 2.0;
+            if (target <= next) {
+                return interpolate(centroids[i], centroids[i + 1], (target - position) / (next - position));
+            }
+            position = next;
+        }
+        double rest = total - position;
+        return interpolate(centroids[nBins - 1], max, rest > 0 ? (target - position) / rest : 1.0);
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+        return from + (to - from) * fraction;
+    }
+
+    @Override
+    public void clear() {
+        nBins = 0;
+        total = 0;
+        min = Double.NaN;
+        max = Double.NaN;
+    }
+
+    @Override
+    public QuantileSketch newInstance() {
+        return new StreamingHistogram(maxBins);
+    }
+}
@@ -0,0 +1,89 @@
+package za.redbridge.simulator;
+
+import java.util.Arrays;
+import java.util.List;
+
+import sim.engine.SimState;
+import sim.engine.Steppable;
+import za.redbridge.simulator.object.RobotObject;
+import za.redbridge.simulator.phenotype.ShareablePhenotype;
+
+/*
+ *  Steps the controllers of a team of robots together. Stepped after the robots have sensed and
+ *  before the physics step. The inputs of every robot sharing a controller are gathered into one
+ *  batch, the controller is evaluated once for the batch and the wheel drives are handed back to
+ *  the robots.
+ *
+ */
+
+public class TeamInference implements Steppable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<RobotObject> robots;
+
+    // robots sharing the controller currently being evaluated
+    private RobotObject[] batch = new RobotObject[0];
+    private boolean[] done = new boolean[0];
+    private double[] inputs = new double[0];
+    private double[] wheelDrives = new double[0];
+
+    /**
+     * @param robots the robots in the simulation
+     */
+    public void setRobots(List<RobotObject> robots) {
+        this.robots = robots;
+        if (batch.length < robots.size()) {
+            batch = new RobotObject[robots.size()];
+            done = new boolean[robots.size()];
+            wheelDrives = new double[2 * robots.size()];
+        }
+    }
+
+    @Override
+    public void step(SimState simState) {
+        final int n = robots.size();
+        for (int i = 0; i < n; i++) {
+            done[i] = !robots.get(i).isAwaitingDrive();
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (done[i]) {
+                continue;
+            }
+
+            ShareablePhenotype phenotype = (ShareablePhenotype) robots.get(i).getPhenotype();
+            Object controller = phenotype.getSharedController();
+            int inputCount = phenotype.getInputs().length;
+
+            // gather the inputs of every waiting robot with the same controller
+            int batchSize = 0;
+            for (int j = i; j < n; j++) {
+                if (done[j]) {
+                    continue;
+                }
+                ShareablePhenotype other = (ShareablePhenotype) robots.get(j).getPhenotype();
+                if (other.getSharedController() != controller) {
+                    continue;
+                }
+                ensureInputCapacity((batchSize + 1) * inputCount);
+                System.arraycopy(other.getInputs(), 0, inputs, batchSize * inputCount, inputCount);
+                batch[batchSize++] = robots.get(j);
+                done[j] = true;
+            }
+
+            phenotype.stepBatch(inputs, batchSize, wheelDrives);
+
+            for (int b = 0; b < batchSize; b++) {
+                batch[b].applyControllerDrive(wheelDrives[2 * b], wheelDrives[2 * b + 1]);
+                batch[b] = null;
+            }
+        }
+    }
+
+    private void ensureInputCapacity(int size) {
+        if (inputs.length < size) {
+            inputs = Arrays.copyOf(inputs, Math.max(size, 2 * inputs.length));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package za.redbridge.simulator;
+
+import org.jbox2d.dynamics.Body;
+import org.jbox2d.dynamics.BodyType;
+
+import java.util.List;
+
+import sim.engine.SimState;
+import sim.engine.Steppable;
+import za.redbridge.simulator.object.ResourceObject;
+
+/*
+ *  Decides when a simulation run can stop before it reaches its iteration limit. Stepped after
+ *  every other object so that it sees the state at the end of each step.
+ *
+ */
+
+public class TerminationPolicy implements Steppable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        NONE, COMPLETED, STAGNATED
+    }
+
+    private final int stagnationSteps;
+
+    private Reason reason = Reason.NONE;
+    private int stepsStagnant = 0;
+    private int lastGridModifications = 0;
+
+    /**
+     * @param stagnationSteps the number of steps without an awake resource or a change to the
+     *                        construction grid before the run is stopped (0 to never stop early)
+     */
+    public TerminationPolicy(int stagnationSteps) {
+        this.stagnationSteps = stagnationSteps;
+    }
+
+    /**
+     * Clears the state of the policy for a new run
+     */
+    public void reset() {
+        reason = Reason.NONE;
+        stepsStagnant = 0;
+        lastGridModifications = 0;
+    }
+
+    /**
+     * Stops the simulation once all the resources are constructed, or once nothing has happened
+     * to the resources for the configured number of steps.
+     * @param simState the simulation
+     */
+    @Override
+    public void step(SimState simState) {
+        Simulation s = (Simulation) simState;
+
+        if (s.isStopOnceCollected() && s.isConstructionComplete()) {
+            terminate(s, Reason.COMPLETED);
+            return;
+        }
+
+        if (stagnationSteps > 0) {
+            int gridModifications = s.getDiscreteGrid().getModificationCount();
+            if (gridModifications != lastGridModifications || isAnyAwake(s.getResources())) {
+                lastGridModifications = gridModifications;
+                stepsStagnant = 0;
+            }
+            else if (++stepsStagnant >= stagnationSteps) {
+                terminate(s, Reason.STAGNATED);
+            }
+        }
+    }
+
+    private void terminate(Simulation s, Reason reason) {
+        this.reason = reason;
+        // seals the schedule so a watched run stops, runs in training stop on the reason
+        s.kill();
+    }
+
+    private static boolean isAnyAwake(List<ResourceObject> resources) {
+        for (ResourceObject resource : resources) {
+            Body body = resource.getBody();
+            if (body.getType() != BodyType.STATIC && body.isAwake()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return why the last run was stopped early, or NONE if it ran for every iteration
+     */
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,163 @@
+package za.redbridge.simulator.checkpoint;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the files recorded each generation on a background thread, so that the I/O overlaps with the evaluation of
+ * the next generation rather than holding it up.
+ *
+ * Tasks are run one at a time in the order they are given. Lines appended to the stats files are batched: each file
+ * is opened once and kept open, and is flushed once at the end of every generation rather than after every line.
+ * If the writer falls more than a couple of generations behind, ending a generation waits for it to catch up so that
+ * queued checkpoints can not build up in memory.
+ */
+public class ArtifactWriter implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ArtifactWriter.class);
+
+    // generations that may be queued before the training thread waits
+    private static final int MAX_PENDING_GENERATIONS = 2;
+
+    /**
+     * Work done on the writer thread.
+     */
+    public interface Task {
+        void run() throws IOException;
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "artifact-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Semaphore pendingGenerations = new Semaphore(MAX_PENDING_GENERATIONS);
+
+    // the open stats files, only used on the writer thread
+    private final Map<Path, BufferedWriter> appenders = new LinkedHashMap<>();
+
+    /**
+     * Runs a task on the writer thread. Failures are logged.
+     * @param description what the task does, for the log
+     * @param task the task
+     */
+    public void submit(final String description, final Task task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to " + description, e);
+            }
+        });
+    }
+
+    /**
+     * Appends a line to a file. The line reaches the file when the generation ends.
+     * @param path the file, created if it does not exist
+     * @param line the line, including its line separator
+     */
+    public void append(final Path path, final String line) {
+        submit("append to " + path, () -> {
+            BufferedWriter writer = appenders.get(path);
+            if (writer == null) {
+                writer = Files.newBufferedWriter(path, Charset.defaultCharset(), StandardOpenOption.APPEND,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                appenders.put(path, writer);
+            }
+            writer.write(line);
+        });
+    }
+
+    /**
+     * Writes a file compressed with gzip. The file is written under a temporary name and then renamed, so a file
+     * with the final name is always complete.
+     * @param path the file
+     * @param bytes the contents, which must not change after this is called
+     */
+    public void writeCompressed(final Path path, final byte[] bytes) {
+        submit("write " + path, () -> {
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+                out.write(bytes);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        });
+    }
+
+    /**
+     * Marks the end of the artifacts of a generation: the stats files are flushed once everything before this has
+     * been written. Waits if the writer is too far behind.
+     */
+    public void endGeneration() {
+        try {
+            pendingGenerations.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                flushAppenders();
+            } finally {
+                pendingGenerations.release();
+            }
+        });
+    }
+
+    private void flushAppenders() {
+        for (Map.Entry<Path, BufferedWriter> entry : appenders.entrySet()) {
+            try {
+                entry.getValue().flush();
+            } catch (IOException e) {
+                log.error("Failed to flush " + entry.getKey(), e);
+            }
+        }
+    }
+
+    /**
+     * Waits for everything submitted to be written, then closes the stats files.
+     */
+    @Override
+    public void close() {
+        executor.execute(() -> {
+            for (Map.Entry<Path, BufferedWriter> entry : appenders.entrySet()) {
+                try {
+                    entry.getValue().close();
+                } catch (IOException e) {
+                    log.error("Failed to close " + entry.getKey(), e);
+                }
+            }
+            appenders.clear();
+        });
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.MINUTES)) {
+                log.error("Timed out waiting for artifacts to be written");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
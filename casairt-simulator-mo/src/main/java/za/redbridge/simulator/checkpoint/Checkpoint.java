@@ -0,0 +1,95 @@
+package za.redbridge.simulator.checkpoint;
+
+import org.encog.mathutil.randomize.factory.RandomFactory;
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.species.ThresholdSpeciation;
+
+import java.util.List;
+import java.util.Map;
+
+import za.redbridge.simulator.moneat.MultiObjectiveBasicEA;
+import za.redbridge.simulator.moneat.MultiObjectivePopulation;
+
+/**
+ * The state of training at the end of a generation, as read back by the {@link CheckpointReader}.
+ */
+public class Checkpoint {
+
+    private final int generation;
+    private final MultiObjectivePopulation population;
+    private final List<Genome> archive;
+    private final Genome bestGenome;
+    private final Map<Genome, List<Double>> objectiveScores;
+    private final double compatibilityThreshold;
+    private final RandomFactory randomNumberFactory;
+    private final Long experimentSeed;
+
+    Checkpoint(int generation, MultiObjectivePopulation population, List<Genome> archive, Genome bestGenome,
+            Map<Genome, List<Double>> objectiveScores, double compatibilityThreshold,
+            RandomFactory randomNumberFactory, Long experimentSeed) {
+        this.generation = generation;
+        this.population = population;
+        this.archive = archive;
+        this.bestGenome = bestGenome;
+        this.objectiveScores = objectiveScores;
+        this.compatibilityThreshold = compatibilityThreshold;
+        this.randomNumberFactory = randomNumberFactory;
+        this.experimentSeed = experimentSeed;
+    }
+
+    /**
+     * Puts an EA into the state it was in when the checkpoint was written, so that the next iteration carries on
+     * from the generation after it. The EA must have been built on {@link #getPopulation()} and not have run yet.
+     * @param ea the EA
+     */
+    public void restore(MultiObjectiveBasicEA ea) {
+        if (ea.getPopulation() != population) {
+            throw new IllegalArgumentException("The EA must be built on the population of the checkpoint");
+        }
+        if (randomNumberFactory != null) {
+            ea.setRandomNumberFactory(randomNumberFactory);
+        }
+        ea.restoreState(archive, bestGenome, objectiveScores, generation);
+        // set once the speciation has been initialised by the EA
+        if (!Double.isNaN(compatibilityThreshold) && ea.getSpeciation() instanceof ThresholdSpeciation) {
+            ((ThresholdSpeciation) ea.getSpeciation()).setCompatibilityThreshold(compatibilityThreshold);
+        }
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return the population holding the species, the innovations and the gene ids
+     */
+    public MultiObjectivePopulation getPopulation() {
+        return population;
+    }
+
+    /**
+     * @return the genomes in the archive, in the order they were selected
+     */
+    public List<Genome> getArchive() {
+        return archive;
+    }
+
+    public Genome getBestGenome() {
+        return bestGenome;
+    }
+
+    /**
+     * @return the score for each objective of every genome that had been scored, keyed by identity
+     */
+    public Map<Genome, List<Double>> getObjectiveScores() {
+        return objectiveScores;
+    }
+
+    /**
+     * @return the seed the scenarios of the run were drawn from, which the resumed run must carry on with, or null
+     *         if they were not seeded
+     */
+    public Long getExperimentSeed() {
+        return experimentSeed;
+    }
+}
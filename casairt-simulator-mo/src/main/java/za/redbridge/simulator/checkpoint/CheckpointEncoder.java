@@ -0,0 +1,306 @@
+package za.redbridge.simulator.checkpoint;
+
+import org.encog.engine.network.activation.ActivationFunction;
+import org.encog.mathutil.randomize.factory.RandomFactory;
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.species.Species;
+import org.encog.ml.ea.species.ThresholdSpeciation;
+import org.encog.neural.neat.NEATPopulation;
+import org.encog.neural.neat.training.NEATGenome;
+import org.encog.neural.neat.training.NEATInnovation;
+import org.encog.neural.neat.training.NEATLinkGene;
+import org.encog.neural.neat.training.NEATNeuronGene;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import za.redbridge.simulator.SeedStream;
+import za.redbridge.simulator.moneat.MultiObjectiveBasicEA;
+import za.redbridge.simulator.moneat.ObjectiveStore;
+
+import static za.redbridge.simulator.checkpoint.CheckpointFormat.MAGIC;
+import static za.redbridge.simulator.checkpoint.CheckpointFormat.NO_GENOME;
+import static za.redbridge.simulator.checkpoint.CheckpointFormat.VERSION;
+
+/**
+ * Encodes the state of training into the compact checkpoint format described in {@link CheckpointFormat}.
+ *
+ * Genomes are never changed once they have been bred, so a checkpoint only holds the genomes and innovations that are
+ * new since the checkpoint before it. Every so often a full checkpoint is written so that reading a generation never
+ * has to go back far.
+ *
+ * Encoding runs on the training thread between generations, while nothing is changing the population, and only
+ * copies the state into memory. Compressing and writing it out is left to the {@link ArtifactWriter}.
+ */
+public class CheckpointEncoder {
+
+    public static final int DEFAULT_FULL_INTERVAL = 10;
+
+    private final int fullInterval;
+
+    // checkpoint ids of the live genomes, dead genomes are forgotten as they can not come back
+    private final Map<Genome, Long> ids = new IdentityHashMap<>();
+    private long nextId = 0;
+
+    // what has been written since the last full checkpoint, of the genomes only those still alive
+    private final Set<Genome> writtenGenomes = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<String> writtenInnovations = new HashSet<>();
+
+    private int previousGeneration = -1;
+    private int sinceFull = 0;
+
+    public CheckpointEncoder() {
+        this(DEFAULT_FULL_INTERVAL);
+    }
+
+    /**
+     * @param fullInterval the number of checkpoints from one full checkpoint to the next
+     */
+    public CheckpointEncoder(int fullInterval) {
+        this.fullInterval = Math.max(1, fullInterval);
+    }
+
+    /**
+     * @param ea the EA, between iterations
+     * @param generation the generation just finished
+     * @param seedStream the stream the scenarios of the run are drawn from, or null if they are not seeded
+     * @return the checkpoint, uncompressed
+     */
+    public byte[] encode(MultiObjectiveBasicEA ea, int generation, SeedStream seedStream) {
+        final boolean full = previousGeneration < 0 || sinceFull >= fullInterval - 1;
+        if (full) {
+            writtenGenomes.clear();
+            writtenInnovations.clear();
+            sinceFull = 0;
+        }
+        else {
+            sinceFull++;
+        }
+
+        final NEATPopulation population = (NEATPopulation) ea.getPopulation();
+        final ObjectiveStore store = ea.getObjectiveStore();
+        final List<Genome> live = liveGenomes(ea);
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(generation);
+            out.writeInt(full ? -1 : previousGeneration);
+
+            out.writeInt(population.getInputCount());
+            out.writeInt(population.getOutputCount());
+            out.writeInt(population.getPopulationSize());
+            out.writeLong(population.getGeneIDGenerate().getCurrentID());
+            out.writeLong(population.getInnovationIDGenerate().getCurrentID());
+
+            out.writeInt(store.getNumObjectives());
+            for (int o = 0; o < store.getNumObjectives(); o++) {
+                out.writeUTF(store.getObjectiveName(o));
+                out.writeBoolean(store.isMaximised(o));
+            }
+
+            writeInnovations(out, population);
+            writeGenomes(out, live);
+            writeState(out, ea, store, live);
+            writeEA(out, ea, population);
+            out.writeBoolean(seedStream != null);
+            out.writeLong(seedStream != null ? seedStream.getExperimentSeed() : 0);
+            out.flush();
+
+            previousGeneration = generation;
+            Set<Genome> alive = Collections.newSetFromMap(new IdentityHashMap<>());
+            alive.addAll(live);
+            ids.keySet().retainAll(alive);
+            writtenGenomes.retainAll(alive);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // only possible if the in memory stream fails
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the archive, the members of every species and the best genome, each once
+    private static List<Genome> liveGenomes(MultiObjectiveBasicEA ea) {
+        Set<Genome> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Genome> live = new ArrayList<>();
+        for (Genome genome : ea.getArchiveList()) {
+            if (seen.add(genome)) {
+                live.add(genome);
+            }
+        }
+        for (Species species : ea.getPopulation().getSpecies()) {
+            if (species.getLeader() != null && seen.add(species.getLeader())) {
+                live.add(species.getLeader());
+            }
+            for (Genome genome : species.getMembers()) {
+                if (seen.add(genome)) {
+                    live.add(genome);
+                }
+            }
+        }
+        if (ea.getBestGenome() != null && seen.add(ea.getBestGenome())) {
+            live.add(ea.getBestGenome());
+        }
+        return live;
+    }
+
+    private void writeInnovations(DataOutputStream out, NEATPopulation population) throws IOException {
+        List<Map.Entry<String, NEATInnovation>> added = new ArrayList<>();
+        if (population.getInnovations() != null) {
+            for (Map.Entry<String, NEATInnovation> entry : population.getInnovations().getInnovations().entrySet()) {
+                if (writtenInnovations.add(entry.getKey())) {
+                    added.add(entry);
+                }
+            }
+        }
+
+        out.writeInt(added.size());
+        for (Map.Entry<String, NEATInnovation> entry : added) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue().getNeuronID());
+            out.writeLong(entry.getValue().getInnovationID());
+        }
+    }
+
+    private void writeGenomes(DataOutputStream out, List<Genome> live) throws IOException {
+        List<NEATGenome> added = new ArrayList<>();
+        for (Genome genome : live) {
+            if (!ids.containsKey(genome)) {
+                ids.put(genome, nextId++);
+            }
+            if (writtenGenomes.add(genome)) {
+                added.add((NEATGenome) genome);
+            }
+        }
+
+        // the genomes share a handful of activation functions, each is written once and referred to by index
+        Map<String, Integer> activationIndex = new HashMap<>();
+        List<ActivationFunction> activations = new ArrayList<>();
+        for (NEATGenome genome : added) {
+            for (NEATNeuronGene neuron : genome.getNeuronsChromosome()) {
+                String key = activationKey(neuron.getActivationFunction());
+                if (!activationIndex.containsKey(key)) {
+                    activationIndex.put(key, activations.size());
+                    activations.add(neuron.getActivationFunction());
+                }
+            }
+        }
+        out.writeInt(activations.size());
+        for (ActivationFunction activation : activations) {
+            out.writeUTF(activation.getClass().getName());
+            double[] params = activation.getParams();
+            out.writeInt(params.length);
+            for (double param : params) {
+                out.writeDouble(param);
+            }
+        }
+
+        out.writeInt(added.size());
+        for (NEATGenome genome : added) {
+            out.writeLong(ids.get(genome));
+            out.writeInt(genome.getBirthGeneration());
+            out.writeInt(genome.getNetworkDepth());
+
+            out.writeInt(genome.getNeuronsChromosome().size());
+            for (NEATNeuronGene neuron : genome.getNeuronsChromosome()) {
+                out.writeLong(neuron.getId());
+                out.writeLong(neuron.getInnovationId());
+                out.writeByte(neuron.getNeuronType().ordinal());
+                out.writeShort(activationIndex.get(activationKey(neuron.getActivationFunction())));
+            }
+
+            out.writeInt(genome.getLinksChromosome().size());
+            for (NEATLinkGene link : genome.getLinksChromosome()) {
+                out.writeLong(link.getId());
+                out.writeLong(link.getInnovationId());
+                out.writeLong(link.getFromNeuronID());
+                out.writeLong(link.getToNeuronID());
+                out.writeBoolean(link.isEnabled());
+                out.writeDouble(link.getWeight());
+            }
+        }
+    }
+
+    private static String activationKey(ActivationFunction activation) {
+        return activation.getClass().getName() + Arrays.toString(activation.getParams());
+    }
+
+    private void writeState(DataOutputStream out, MultiObjectiveBasicEA ea, ObjectiveStore store, List<Genome> live)
+            throws IOException {
+        out.writeInt(live.size());
+        for (Genome genome : live) {
+            out.writeLong(ids.get(genome));
+            out.writeDouble(genome.getScore());
+            out.writeDouble(genome.getAdjustedScore());
+            int slot = store.getSlot(genome);
+            for (int o = 0; o < store.getNumObjectives(); o++) {
+                out.writeDouble(slot >= 0 ? store.getValue(slot, o) : Double.NaN);
+            }
+        }
+
+        out.writeLong(idOf(ea.getBestGenome()));
+
+        out.writeInt(ea.getArchiveList().size());
+        for (Genome genome : ea.getArchiveList()) {
+            out.writeLong(idOf(genome));
+        }
+
+        List<Species> species = ea.getPopulation().getSpecies();
+        out.writeInt(species.size());
+        for (Species s : species) {
+            out.writeLong(idOf(s.getLeader()));
+            out.writeInt(s.getAge());
+            out.writeDouble(s.getBestScore());
+            out.writeInt(s.getGensNoImprovement());
+            out.writeInt(s.getOffspringCount());
+            out.writeInt(s.getMembers().size());
+            for (Genome genome : s.getMembers()) {
+                out.writeLong(idOf(genome));
+            }
+        }
+    }
+
+    // what the next generation needs that is not in the population: the speciation threshold that adapts each
+    // generation, and the random number streams
+    private static void writeEA(DataOutputStream out, MultiObjectiveBasicEA ea, NEATPopulation population)
+            throws IOException {
+        out.writeDouble(ea.getSpeciation() instanceof ThresholdSpeciation
+                ? ((ThresholdSpeciation) ea.getSpeciation()).getCompatibilityThreshold() : Double.NaN);
+        writeRandom(out, ea.getRandomNumberFactory());
+        writeRandom(out, population.getRandomNumberFactory());
+    }
+
+    // a factory that can not be serialized is written with a length of -1 and a new one is used on resuming
+    private static void writeRandom(DataOutputStream out, RandomFactory random) throws IOException {
+        if (!(random instanceof Serializable)) {
+            out.writeInt(-1);
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects = new ObjectOutputStream(bytes)) {
+            objects.writeObject(random);
+        }
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    private long idOf(Genome genome) {
+        return genome != null ? ids.get(genome) : NO_GENOME;
+    }
+}
@@ -0,0 +1,48 @@
+package za.redbridge.simulator.checkpoint;
+
+import java.nio.file.Path;
+
+/**
+ * Layout of a checkpoint file. Every file is gzipped and holds, in order:
+ *
+ * a header: magic number, version, generation, and the generation of the checkpoint it follows on from or -1 if it
+ * is a full checkpoint.
+ *
+ * the population: input count, output count, population size, and the next gene and innovation ids.
+ *
+ * the objectives: the name of each and whether it is maximised.
+ *
+ * the innovations added since the checkpoint it follows on from: key, neuron id and innovation id of each.
+ *
+ * the activation functions used by the genomes in the file: class name and parameters of each.
+ *
+ * the genomes bred since the checkpoint it follows on from: a checkpoint id, birth generation, network depth, the
+ * neuron genes and the link genes.
+ *
+ * the state of training: the scores and objective values of every live genome, the best genome, the archive, and
+ * the species with their leaders, the number of offspring each breeds next and their members. Genomes are referred
+ * to by checkpoint id.
+ *
+ * the state of the EA: the compatibility threshold of the speciation, or NaN if it has none, and the random number
+ * factories of the EA and the population, java serialized and each preceded by its length in bytes.
+ *
+ * the experiment seed: whether the scenarios of the run are seeded, followed by the seed they are drawn from.
+ */
+public final class CheckpointFormat {
+
+    static final int MAGIC = 0x43415350;
+    static final short VERSION = 4;
+
+    // marks a missing genome, such as a species without a leader
+    static final long NO_GENOME = -1;
+
+    private CheckpointFormat() {
+    }
+
+    /**
+     * @return the file the checkpoint of a generation is written to
+     */
+    public static Path checkpointFile(Path directory, int generation) {
+        return directory.resolve("generation-" + generation + ".pop");
+    }
+}
@@ -0,0 +1,310 @@
+package za.redbridge.simulator.checkpoint;
+
+import org.encog.engine.network.activation.ActivationFunction;
+import org.encog.mathutil.randomize.factory.RandomFactory;
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.species.BasicSpecies;
+import org.encog.neural.neat.NEATNeuronType;
+import org.encog.neural.neat.training.NEATGenome;
+import org.encog.neural.neat.training.NEATInnovation;
+import org.encog.neural.neat.training.NEATLinkGene;
+import org.encog.neural.neat.training.NEATNeuronGene;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import za.redbridge.simulator.moneat.MultiObjectivePopulation;
+import za.redbridge.simulator.moneat.Objective;
+
+import static za.redbridge.simulator.checkpoint.CheckpointFormat.MAGIC;
+import static za.redbridge.simulator.checkpoint.CheckpointFormat.NO_GENOME;
+import static za.redbridge.simulator.checkpoint.CheckpointFormat.VERSION;
+import static za.redbridge.simulator.checkpoint.CheckpointFormat.checkpointFile;
+
+/**
+ * Reads the state of training back from the checkpoints written by the {@link CheckpointEncoder}. A checkpoint that
+ * follows on from an earlier one is read by going back to the last full checkpoint and reading every checkpoint from
+ * there on, as the genomes are spread across them.
+ */
+public class CheckpointReader {
+
+    private static final NEATNeuronType[] NEURON_TYPES = NEATNeuronType.values();
+
+    // genomes and innovations read so far, by checkpoint id and key
+    private final Map<Long, NEATGenome> genomes = new HashMap<>();
+    private final Map<String, NEATInnovation> innovations = new LinkedHashMap<>();
+
+    private CheckpointReader() {
+    }
+
+    /**
+     * @param directory the directory the checkpoints were written to
+     * @param generation the generation to read
+     * @return the state of training at the end of the generation
+     * @throws IOException if a checkpoint it needs is missing or can not be read
+     */
+    public static Checkpoint read(Path directory, int generation) throws IOException {
+        List<Path> chain = new ArrayList<>();
+        int next = generation;
+        while (next >= 0) {
+            Path path = checkpointFile(directory, next);
+            chain.add(0, path);
+            next = readPrevious(path);
+        }
+
+        CheckpointReader reader = new CheckpointReader();
+        Checkpoint checkpoint = null;
+        for (Path path : chain) {
+            checkpoint = reader.readCheckpoint(path);
+        }
+        return checkpoint;
+    }
+
+    /**
+     * @return the generation of the latest checkpoint in the directory, or -1 if there are none
+     */
+    public static int latestGeneration(Path directory) throws IOException {
+        int latest = -1;
+        if (!Files.isDirectory(directory)) {
+            return latest;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "generation-*.pop")) {
+            for (Path path : files) {
+                String name = path.getFileName().toString();
+                try {
+                    latest = Math.max(latest, Integer.parseInt(name.substring("generation-".length(),
+                            name.length() - ".pop".length())));
+                } catch (NumberFormatException e) {
+                    // not a checkpoint
+                }
+            }
+        }
+        return latest;
+    }
+
+    private static DataInputStream open(Path path) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path), 1 << 16)));
+    }
+
+    // reads the header of a checkpoint: the generation it follows on from
+    private static int readPrevious(Path path) throws IOException {
+        try (DataInputStream in = open(path)) {
+            readHeader(in, path);
+            in.readInt();
+            return in.readInt();
+        }
+    }
+
+    private static void readHeader(DataInputStream in, Path path) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a checkpoint: " + path);
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version + ": " + path);
+        }
+    }
+
+    private Checkpoint readCheckpoint(Path path) throws IOException {
+        try (DataInputStream in = open(path)) {
+            readHeader(in, path);
+            int generation = in.readInt();
+            int previous = in.readInt();
+            if (previous < 0) {
+                genomes.clear();
+                innovations.clear();
+            }
+
+            int inputCount = in.readInt();
+            int outputCount = in.readInt();
+            int populationSize = in.readInt();
+            long geneId = in.readLong();
+            long innovationId = in.readLong();
+
+            int nObjectives = in.readInt();
+            ArrayList<Objective> objectives = new ArrayList<>();
+            for (int o = 0; o < nObjectives; o++) {
+                String name = in.readUTF();
+                objectives.add(new Objective(name, in.readBoolean()));
+            }
+
+            MultiObjectivePopulation population = new MultiObjectivePopulation(inputCount, outputCount,
+                    populationSize, objectives);
+            population.init();
+            population.getGeneIDGenerate().setCurrentID(geneId);
+            population.getInnovationIDGenerate().setCurrentID(innovationId);
+
+            readInnovations(in);
+            population.getInnovations().getInnovations().putAll(innovations);
+
+            readGenomes(in, inputCount, outputCount);
+            return readState(in, generation, population, nObjectives);
+        }
+    }
+
+    private void readInnovations(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            String key = in.readUTF();
+            NEATInnovation innovation = new NEATInnovation();
+            innovation.setNeuronID(in.readLong());
+            innovation.setInnovationID(in.readLong());
+            innovations.put(key, innovation);
+        }
+    }
+
+    private void readGenomes(DataInputStream in, int inputCount, int outputCount) throws IOException {
+        int nActivations = in.readInt();
+        ActivationFunction[] activations = new ActivationFunction[nActivations];
+        for (int a = 0; a < nActivations; a++) {
+            String className = in.readUTF();
+            try {
+                activations[a] = (ActivationFunction) Class.forName(className).newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IOException("Unknown activation function " + className, e);
+            }
+            int nParams = in.readInt();
+            for (int p = 0; p < nParams; p++) {
+                activations[a].setParam(p, in.readDouble());
+            }
+        }
+
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            long id = in.readLong();
+            int birthGeneration = in.readInt();
+            int networkDepth = in.readInt();
+
+            int nNeurons = in.readInt();
+            List<NEATNeuronGene> neurons = new ArrayList<>(nNeurons);
+            for (int j = 0; j < nNeurons; j++) {
+                long neuronId = in.readLong();
+                long innovationId = in.readLong();
+                NEATNeuronType type = NEURON_TYPES[in.readByte()];
+                ActivationFunction activation = activations[in.readShort()];
+                neurons.add(new NEATNeuronGene(type, activation, neuronId, innovationId));
+            }
+
+            int nLinks = in.readInt();
+            List<NEATLinkGene> links = new ArrayList<>(nLinks);
+            for (int j = 0; j < nLinks; j++) {
+                long linkId = in.readLong();
+                long innovationId = in.readLong();
+                long from = in.readLong();
+                long to = in.readLong();
+                boolean enabled = in.readBoolean();
+                double weight = in.readDouble();
+                NEATLinkGene link = new NEATLinkGene(from, to, enabled, innovationId, weight);
+                link.setId(linkId);
+                links.add(link);
+            }
+
+            NEATGenome genome = new NEATGenome(neurons, links, inputCount, outputCount);
+            genome.setBirthGeneration(birthGeneration);
+            genome.setNetworkDepth(networkDepth);
+            genomes.put(id, genome);
+        }
+    }
+
+    private Checkpoint readState(DataInputStream in, int generation, MultiObjectivePopulation population,
+            int nObjectives) throws IOException {
+        Map<Genome, List<Double>> objectiveScores = new IdentityHashMap<>();
+        int nLive = in.readInt();
+        for (int i = 0; i < nLive; i++) {
+            NEATGenome genome = genome(in.readLong());
+            genome.setPopulation(population);
+            genome.setScore(in.readDouble());
+            genome.setAdjustedScore(in.readDouble());
+
+            List<Double> scores = new ArrayList<>(nObjectives);
+            boolean scored = true;
+            for (int o = 0; o < nObjectives; o++) {
+                double score = in.readDouble();
+                scored &= !Double.isNaN(score);
+                scores.add(score);
+            }
+            if (scored) {
+                objectiveScores.put(genome, scores);
+            }
+        }
+
+        Genome bestGenome = genome(in.readLong());
+
+        int nArchive = in.readInt();
+        List<Genome> archive = new ArrayList<>(nArchive);
+        for (int i = 0; i < nArchive; i++) {
+            archive.add(genome(in.readLong()));
+        }
+
+        int nSpecies = in.readInt();
+        for (int s = 0; s < nSpecies; s++) {
+            BasicSpecies species = new BasicSpecies();
+            species.setPopulation(population);
+            species.setLeader(genome(in.readLong()));
+            species.setAge(in.readInt());
+            species.setBestScore(in.readDouble());
+            species.setGensNoImprovement(in.readInt());
+            // transient in BasicSpecies, so it is not set up by anything else before the next iteration
+            species.setOffspringCount(in.readInt());
+            int nMembers = in.readInt();
+            for (int i = 0; i < nMembers; i++) {
+                Genome member = genome(in.readLong());
+                species.add(member);
+                member.setSpecies(species);
+            }
+            population.getSpecies().add(species);
+        }
+        population.setBestGenome(bestGenome);
+
+        double compatibilityThreshold = in.readDouble();
+        RandomFactory random = readRandom(in);
+        RandomFactory populationRandom = readRandom(in);
+        if (populationRandom != null) {
+            population.setRandomNumberFactory(populationRandom);
+        }
+
+        boolean seeded = in.readBoolean();
+        long experimentSeed = in.readLong();
+
+        return new Checkpoint(generation, population, archive, bestGenome, objectiveScores, compatibilityThreshold,
+                random, seeded ? experimentSeed : null);
+    }
+
+    private static RandomFactory readRandom(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (RandomFactory) objects.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unknown random number factory", e);
+        }
+    }
+
+    private NEATGenome genome(long id) throws IOException {
+        if (id == NO_GENOME) {
+            return null;
+        }
+        NEATGenome genome = genomes.get(id);
+        if (genome == null) {
+            throw new IOException("Checkpoint refers to a genome that was never written: " + id);
+        }
+        return genome;
+    }
+}
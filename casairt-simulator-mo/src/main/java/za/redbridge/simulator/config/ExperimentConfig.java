@@ -16,6 +16,8 @@ public class ExperimentConfig extends Config {
     private static final int DEFAULT_MORPHOLOGY_NUMBER = 0;
     private static final int DEFAULT_SIMULATION_STEPS = 100;
     private static final int DEFAULT_SIMULATION_RUNS = 2;
+    private static final long DEFAULT_SEED = System.currentTimeMillis();
+    private static final int DEFAULT_LAYOUTS = 0;
     private static final int DEFAULT_POPULATION_SIZE = 20;
     private static final int DEFAULT_GENERATIONS = 10;
     private static final int DEFAULT_ARCHIVE_SIZE = 10;
@@ -25,15 +27,27 @@ public class ExperimentConfig extends Config {
     private static final double DEFAULT_REMOVE_LINK_PROBABILITY = 0.001;
     private static final double DEFAULT_CROSSOVER_PROBABILITY = 0.5;
     private static final double DEFAULT_CONECTION_DENSITY = 0.5;
+    private static final Selector DEFAULT_SELECTOR = Selector.SPEA2;
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 1;
+    private static final int DEFAULT_FARM_PORT = 0;
+    private static final int DEFAULT_FARM_LOCAL_WORKERS = 0;
+    private static final int DEFAULT_PERCENTILE_BINS = 0;
 
     public enum FitnessFunction{
         OBJECTIVE, MULTIOBJECTIVE;
     }
 
+    public enum Selector{
+        SPEA2, NSGA2;
+    }
+
     private int configNumber;
     private int morphologyNumber;
     private int simulationSteps;
     private int simulationRuns;
+    private long seed;
+    private boolean seedFromClock;
+    private int layouts;
     private int populationSize;
     private int generations;
     private int archiveSize;
@@ -43,12 +57,20 @@ public class ExperimentConfig extends Config {
     private double removeLink;
     private double crossover;
     private double connectionDensity;
+    private Selector selector;
+    private int checkpointInterval;
+    private int farmPort;
+    private int farmLocalWorkers;
+    private int percentileBins;
 
     public ExperimentConfig() {
         this.configNumber = DEFAULT_CONFIG_NUMBER;
         this.morphologyNumber = DEFAULT_MORPHOLOGY_NUMBER;
         this.simulationSteps = DEFAULT_SIMULATION_STEPS;
         this.simulationRuns = DEFAULT_SIMULATION_RUNS;
+        this.seed = DEFAULT_SEED;
+        this.seedFromClock = true;
+        this.layouts = DEFAULT_LAYOUTS;
         this.populationSize = DEFAULT_POPULATION_SIZE;
         this.generations = DEFAULT_GENERATIONS;
         this.archiveSize = DEFAULT_ARCHIVE_SIZE;
@@ -58,6 +80,11 @@ public class ExperimentConfig extends Config {
         this.removeLink = DEFAULT_REMOVE_LINK_PROBABILITY;
         this.crossover = DEFAULT_CROSSOVER_PROBABILITY;
         this.connectionDensity = DEFAULT_CONECTION_DENSITY;
+        this.selector = DEFAULT_SELECTOR;
+        this.checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+        this.farmPort = DEFAULT_FARM_PORT;
+        this.farmLocalWorkers = DEFAULT_FARM_LOCAL_WORKERS;
+        this.percentileBins = DEFAULT_PERCENTILE_BINS;
     }
 
     public ExperimentConfig(String filepath) {
@@ -74,6 +101,9 @@ public class ExperimentConfig extends Config {
         int morphN = DEFAULT_MORPHOLOGY_NUMBER;
         int stepN = DEFAULT_SIMULATION_STEPS;
         int runN = DEFAULT_SIMULATION_RUNS;
+        long seedN = DEFAULT_SEED;
+        boolean seedFromClockN = true;
+        int layoutN = DEFAULT_LAYOUTS;
         int popN = DEFAULT_POPULATION_SIZE;
         int generationN = DEFAULT_GENERATIONS;
         int archiveN = DEFAULT_ARCHIVE_SIZE;
@@ -83,6 +113,11 @@ public class ExperimentConfig extends Config {
         double removeLinkDefault = DEFAULT_REMOVE_LINK_PROBABILITY;
         double crossoverDefault = DEFAULT_CROSSOVER_PROBABILITY;
         double connectionDensityDefault = DEFAULT_CONECTION_DENSITY;
+        Selector selectorDefault = DEFAULT_SELECTOR;
+        int checkpointN = DEFAULT_CHECKPOINT_INTERVAL;
+        int farmPortN = DEFAULT_FARM_PORT;
+        int farmLocalWorkersN = DEFAULT_FARM_LOCAL_WORKERS;
+        int percentileBinsN = DEFAULT_PERCENTILE_BINS;
 
         Map configuration = (Map) config.get("configuration");
         if (checkFieldPresent(config, "configuration")) {
@@ -108,6 +143,18 @@ public class ExperimentConfig extends Config {
             if (checkFieldPresent(steps, "simulation:steps")) {
                 stepN = steps;
             }
+
+            // read as a Number since yaml gives an Integer or a Long depending on its size
+            Number seed = (Number) simulation.get("seed");
+            if (checkFieldPresent(seed, "simulation:seed")) {
+                seedN = seed.longValue();
+                seedFromClockN = false;
+            }
+
+            Integer layouts = (Integer) simulation.get("layouts");
+            if (checkFieldPresent(layouts, "simulation:layouts")) {
+                layoutN = layouts;
+            }
         }
 
         Map ea = (Map) config.get("ea_variables");
@@ -151,12 +198,46 @@ public class ExperimentConfig extends Config {
             if (checkFieldPresent(connection, "ea_variables:connection_density")) {
                 connectionDensityDefault = connection;
             }
+
+            String select = (String) ea.get("selector");
+            if (checkFieldPresent(select, "ea_variables:selector")) {
+                selectorDefault = Selector.valueOf(select.trim().toUpperCase());
+            }
+
+            Integer checkpoint = (Integer) ea.get("checkpoint_interval");
+            if (checkFieldPresent(checkpoint, "ea_variables:checkpoint_interval")) {
+                checkpointN = checkpoint;
+            }
+        }
+
+        Map farm = (Map) config.get("evaluation_farm");
+        if (checkFieldPresent(farm, "evaluation_farm")) {
+            Integer port = (Integer) farm.get("port");
+            if (checkFieldPresent(port, "evaluation_farm:port")) {
+                farmPortN = port;
+            }
+
+            Integer localWorkers = (Integer) farm.get("local_workers");
+            if (checkFieldPresent(localWorkers, "evaluation_farm:local_workers")) {
+                farmLocalWorkersN = localWorkers;
+            }
+        }
+
+        Map statistics = (Map) config.get("statistics");
+        if (checkFieldPresent(statistics, "statistics")) {
+            Integer percentileBins = (Integer) statistics.get("percentile_bins");
+            if (checkFieldPresent(percentileBins, "statistics:percentile_bins")) {
+                percentileBinsN = percentileBins;
+            }
         }
 
         this.configNumber = configN;
         this.morphologyNumber = morphN;
         this.simulationSteps = stepN;
         this.simulationRuns = runN;
+        this.seed = seedN;
+        this.seedFromClock = seedFromClockN;
+        this.layouts = layoutN;
         this.populationSize = popN;
         this.generations = generationN;
         this.archiveSize = archiveN;
@@ -166,6 +247,11 @@ public class ExperimentConfig extends Config {
         this.removeLink = removeLinkDefault;
         this.crossover = crossoverDefault;
         this.connectionDensity = connectionDensityDefault;
+        this.selector = selectorDefault;
+        this.checkpointInterval = checkpointN;
+        this.farmPort = farmPortN;
+        this.farmLocalWorkers = farmLocalWorkersN;
+        this.percentileBins = percentileBinsN;
     }
 
     public ExperimentConfig(int configN, int morphN, int stepN, int runN, int popN, int generationN) {
@@ -173,8 +259,16 @@ public class ExperimentConfig extends Config {
         this.morphologyNumber = morphN;
         this.simulationSteps = stepN;
         this.simulationRuns = runN;
+        this.seed = DEFAULT_SEED;
+        this.seedFromClock = true;
+        this.layouts = DEFAULT_LAYOUTS;
         this.populationSize = popN;
         this.generations = generationN;
+        this.selector = DEFAULT_SELECTOR;
+        this.checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+        this.farmPort = DEFAULT_FARM_PORT;
+        this.farmLocalWorkers = DEFAULT_FARM_LOCAL_WORKERS;
+        this.percentileBins = DEFAULT_PERCENTILE_BINS;
     }
 
     public int getConfigNumber(){ return configNumber; }
@@ -185,6 +279,15 @@ public class ExperimentConfig extends Config {
 
     public int getSimulationRuns(){ return simulationRuns; }
 
+    // the scenarios of every simulation run are drawn from this seed, see SeedStream
+    public long getSeed(){ return seed; }
+
+    // true if there is no seed in the config, so getSeed() was drawn from the clock
+    public boolean isSeedFromClock(){ return seedFromClock; }
+
+    // 0 to place the objects of every simulation run rather than drawing its layout from a layout library
+    public int getLayoutCount(){ return layouts; }
+
     public int getPopulationSize(){ return populationSize; }
 
     public int getGenerationNumber(){ return generations; }
@@ -200,4 +303,16 @@ public class ExperimentConfig extends Config {
     public double getCrossoverProbability(){ return crossover; }
 
     public double getConnectionDensity(){ return connectionDensity; }
+
+    public Selector getSelector(){ return selector; }
+
+    public int getCheckpointInterval(){ return checkpointInterval; }
+
+    // 0 to evaluate in this process rather than on an evaluation farm
+    public int getFarmPort(){ return farmPort; }
+
+    public int getFarmLocalWorkers(){ return farmLocalWorkers; }
+
+    // bins of the histogram that estimates the quartiles in the stats files, 0 to leave the quartiles out
+    public int getPercentileBins(){ return percentileBins; }
 }
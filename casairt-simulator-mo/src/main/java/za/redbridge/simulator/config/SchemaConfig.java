@@ -18,8 +18,15 @@ import java.util.ArrayList;
 */
 
 public class SchemaConfig extends Config{
+    //resource types in the order of their index, a type is matched as the bit (1 << index)
+    private static final String [] resourceArray = {"A","B","C"};
+    public static final int NUM_SIDES = 4;
+
+    //an empty side, which a schema allows by listing "_" for it
+    private static final String EMPTY = "_";
+    private static final int EMPTY_MASK = 1 << resourceArray.length;
+
     private Config [] configs;
-    private String [] resourceArray = {"A","B","C"};
 
     public SchemaConfig(String filepath, int n, int k){
         Map<String, Object> config = null;
@@ -57,12 +64,55 @@ public class SchemaConfig extends Config{
         }
     }
 
-    public int checkConfig(int i, String type ,String [] adjacent){
-        return configs[i].checkSchema(type, adjacent);
+    /**
+        Index of a resource type, or -1 if it is not a resource type
+    **/
+    public static int getTypeIndex(String type) {
+        for (int i = 0; i < resourceArray.length; i++) {
+            if (resourceArray[i].equals(type)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+        Bit mask of a resource type, 0 for an empty side or unknown type
+    **/
+    public static int getTypeMask(String type) {
+        int index = getTypeIndex(type);
+        return index < 0 ? 0 : 1 << index;
     }
 
-    public int[] getIncorrectAdjacentSides (int i, String type, String[] adjacent) {
-        return configs[i].getIncorrectAdjacentSides(type, adjacent);
+    //the bit a neighbour is matched against in the allowed masks, empty sides have their own
+    private static int neighbourBit(int neighbourMask) {
+        return neighbourMask != 0 ? neighbourMask : EMPTY_MASK;
+    }
+
+    /**
+        Counts the sides of a resource whose neighbour is allowed by the schema
+        @param i the schema config number
+        @param typeIndex index of the resource's type
+        @param adjacent type mask of the neighbour on each side (left, right, up, down), 0 if empty
+        @return number of correct sides
+    **/
+    public int checkConfig(int i, int typeIndex, int [] adjacent){
+        int[] allowed = configs[i].allowedMasks;
+        int base = typeIndex*NUM_SIDES;
+        int correctSides = 0;
+        for (int side = 0; side < NUM_SIDES; side++) {
+            if ((allowed[base + side] & neighbourBit(adjacent[side])) != 0) {
+                correctSides++;
+            }
+        }
+        return correctSides;
+    }
+
+    /**
+        @return true if the schema allows a neighbour of the given type mask on a side of the resource
+    **/
+    public boolean isAllowed(int i, int typeIndex, int side, int neighbourMask) {
+        return (configs[i].allowedMasks[typeIndex*NUM_SIDES + side] & neighbourBit(neighbourMask)) != 0;
     }
 
     public int [] getResQuantity(int i){
@@ -84,6 +134,8 @@ public class SchemaConfig extends Config{
     **/
     private static class Config{
         private HashMap<String,ResourceSchema> schema;
+        //allowed neighbour type masks, indexed by typeIndex*NUM_SIDES + side
+        private final int [] allowedMasks = new int[resourceArray.length*NUM_SIDES];
         private int [] resQuantityArray;
         private int ACount = 0;
         private int BCount = 0;
@@ -97,6 +149,11 @@ public class SchemaConfig extends Config{
 
         public void add(String type, ResourceSchema s){
             schema.put(type, s);
+            int base = getTypeIndex(type)*NUM_SIDES;
+            allowedMasks[base] = s.getLeftMask();
+            allowedMasks[base + 1] = s.getRightMask();
+            allowedMasks[base + 2] = s.getUpMask();
+            allowedMasks[base + 3] = s.getDownMask();
             ACount += s.getACount();
             BCount += s.getBCount();
             CCount += s.getCCount();
@@ -113,23 +170,6 @@ public class SchemaConfig extends Config{
             return resQuantityArray;
         }
 
-        public int checkSchema(String type, String [] adjacent){
-            int correctSides = 0;
-            if(schema.get(type).checkLeft(adjacent[0])){
-                correctSides++;
-            }
-            if(schema.get(type).checkRight(adjacent[1])){
-                correctSides++;
-            }
-            if(schema.get(type).checkUp(adjacent[2])){
-                correctSides++;
-            }
-            if(schema.get(type).checkDown(adjacent[3])){
-                correctSides++;
-            }
-            return correctSides;
-        }
-
         public int getACount() {
             return ACount;
         }
@@ -142,23 +182,6 @@ public class SchemaConfig extends Config{
             return CCount;
         }
 
-        public int[] getIncorrectAdjacentSides (String type, String[] adjacent) {
-            int[] incorrectSides = new int[4];
-            if(!schema.get(type).checkLeft(adjacent[0])){
-                incorrectSides[0] = 1;
-            }
-            if(!schema.get(type).checkRight(adjacent[1])){
-                incorrectSides[1] = 1;
-            }
-            if(!schema.get(type).checkUp(adjacent[2])){
-                incorrectSides[2] = 1;
-            }
-            if(!schema.get(type).checkDown(adjacent[3])){
-                incorrectSides[3] = 1;
-            }
-            return incorrectSides;
-        }
-
         /**
         A measure for how much cooperation is required to successfully construct the schema
         **/
@@ -246,40 +269,28 @@ public class SchemaConfig extends Config{
             return temp;
         }
 
-        public boolean checkLeft(String s){
-            for(int i=0;i<left.length;i++){
-                if(left[i].equals(s)){
-                    return true;
-                }
+        private static int getMask(String [] types){
+            int mask = 0;
+            for(int i=0;i<types.length;i++){
+                mask |= EMPTY.equals(types[i]) ? EMPTY_MASK : getTypeMask(types[i]);
             }
-            return false;
+            return mask;
         }
 
-        public boolean checkRight(String s){
-            for(int i=0;i<right.length;i++){
-                if(right[i].equals(s)){
-                    return true;
-                }
-            }
-            return false;
+        public int getLeftMask(){
+            return getMask(left);
         }
 
-        public boolean checkUp(String s){
-            for(int i=0;i<up.length;i++){
-                if(up[i].equals(s)){
-                    return true;
-                }
-            }
-            return false;
+        public int getRightMask(){
+            return getMask(right);
         }
 
-        public boolean checkDown(String s){
-            for(int i=0;i<down.length;i++){
-                if(down[i].equals(s)){
-                    return true;
-                }
-            }
-            return false;
+        public int getUpMask(){
+            return getMask(up);
+        }
+
+        public int getDownMask(){
+            return getMask(down);
         }
 
         public String [] getLeft(){
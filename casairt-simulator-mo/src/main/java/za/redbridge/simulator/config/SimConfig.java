@@ -19,6 +19,8 @@ public class SimConfig extends Config {
 
     private static final long DEFAULT_SIMULATION_SEED = System.currentTimeMillis();
     private static final int DEFAULT_SIMULATION_ITERATIONS = 10000;
+    private static final int DEFAULT_STAGNATION_STEPS = 0;
+    private static final double DEFAULT_TIME_BONUS = 0.0;
     private static final int DEFAULT_ENVIRONMENT_WIDTH = 20;
     private static final int DEFAULT_ENVIRONMENT_HEIGHT = 20;
     private static final int DEFAULT_TARGET_AREA_THICKNESS = (int)(DEFAULT_ENVIRONMENT_HEIGHT * 0.2);
@@ -35,6 +37,8 @@ public class SimConfig extends Config {
 
     private long simulationSeed;
     private int simulationIterations;
+    private int stagnationSteps = DEFAULT_STAGNATION_STEPS;
+    private double timeBonus = DEFAULT_TIME_BONUS;
 
     private final int environmentWidth;
     private final int environmentHeight;
@@ -93,6 +97,8 @@ public class SimConfig extends Config {
         // This is fairly horrible
         long seed = DEFAULT_SIMULATION_SEED;
         int iterations = DEFAULT_SIMULATION_ITERATIONS;
+        int stagnation = DEFAULT_STAGNATION_STEPS;
+        double bonus = DEFAULT_TIME_BONUS;
         int width = DEFAULT_ENVIRONMENT_WIDTH;
         int height = DEFAULT_ENVIRONMENT_HEIGHT;
         Direction placement = DEFAULT_TARGET_AREA_PLACEMENT;
@@ -113,6 +119,14 @@ public class SimConfig extends Config {
             if (checkFieldPresent(iterationsField, "simulation:iterations")) {
                 iterations = iterationsField;
             }
+            Integer stagnationField = (Integer) simulation.get("stagnation");
+            if (checkFieldPresent(stagnationField, "simulation:stagnation")) {
+                stagnation = stagnationField;
+            }
+            Number timeBonusField = (Number) simulation.get("timeBonus");
+            if (checkFieldPresent(timeBonusField, "simulation:timeBonus")) {
+                bonus = timeBonusField.doubleValue();
+            }
         }
 
         // Environment
@@ -162,6 +176,8 @@ public class SimConfig extends Config {
         inputReader.close();
         this.simulationSeed = seed;
         this.simulationIterations = iterations;
+        this.stagnationSteps = stagnation;
+        this.timeBonus = bonus;
         this.environmentWidth = width;
         this.environmentHeight = height;
         this.targetAreaPlacement = placement;
@@ -192,6 +208,30 @@ public class SimConfig extends Config {
         this.simulationIterations = value;
     }
 
+    /**
+     * The number of steps a run may go without any awake resource or change to the construction
+     * grid before it is stopped early. Zero disables the stagnation cut-off.
+     */
+    public int getStagnationSteps() {
+        return stagnationSteps;
+    }
+
+    public void setStagnationSteps(int value){
+        this.stagnationSteps = value;
+    }
+
+    /**
+     * The credit added to the first objective of a run for the fraction of its iterations skipped
+     * by constructing every resource early. Zero gives no credit.
+     */
+    public double getTimeBonus() {
+        return timeBonus;
+    }
+
+    public void setTimeBonus(double value){
+        this.timeBonus = value;
+    }
+
     public int getEnvironmentWidth() {
         return environmentWidth;
     }
@@ -79,6 +79,17 @@ public class ConfigurableResourceFactory extends Config implements ResourceFacto
         // placeTestInstances(smallResourceSpec, mediumResourceSpec, largeResourceSpec, placementArea, world, "robot_pushing");
     }
 
+    @Override
+    public void resetInstances(PlacementArea.ForType<ResourceObject> placementArea) {
+        // resources were placed in spec order, so the same sequence of spaces is requested
+        for (ResourceObject resource : placedResources) {
+            PlacementArea.Space space = placementArea.getRandomRectangularSpace(
+                    (float) resource.getWidth(), (float) resource.getHeight());
+            resource.reset(space.getPosition(), space.getAngle());
+            placementArea.placeObject(space, resource);
+        }
+    }
+
     private void placeInstances(ResourceSpec spec, PlacementArea.ForType<ResourceObject> placementArea, World world) {
         for (int i = 0; i < spec.quantity; i++) {
             PlacementArea.Space space = placementArea.getRandomRectangularSpace(spec.width, spec.height);
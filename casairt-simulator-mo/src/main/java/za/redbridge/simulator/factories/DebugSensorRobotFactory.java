@@ -47,6 +47,18 @@ public class DebugSensorRobotFactory implements RobotFactory {
         placementArea.placeObject(space, r2);
     }
 
+    @Override
+    public void resetInstances(PlacementArea.ForType<RobotObject> placementArea) {
+        // debug robots always start at the same fixed positions
+        float x = 50;
+        for (RobotObject robot : placedRobots) {
+            PlacementArea.Space space = placementArea.getCircularSpace(radius, new Vec2(x, 50), 0f);
+            robot.reset(space.getPosition(), space.getAngle());
+            placementArea.placeObject(space, robot);
+            x += 20;
+        }
+    }
+
     public void setNumRobots(int numRobots) { this.numRobots = numRobots; }
 
     public int getNumRobots() { return numRobots; }
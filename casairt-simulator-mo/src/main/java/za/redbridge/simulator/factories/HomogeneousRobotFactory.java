@@ -38,11 +38,7 @@ public class HomogeneousRobotFactory implements RobotFactory {
     public void placeInstances(PlacementArea.ForType<RobotObject> placementArea, World world, SimConfig.Direction targetAreaPlacement){
         placedRobots.clear();
         for (int i = 0; i < numRobots; i++) {
-            PlacementArea.Space space = null;
-            String agentLocation = za.redbridge.simulator.config.SimConfig.agentLocation;
-            if(agentLocation.equals("")){
-                space = placementArea.getRandomCircularSpace(radius);
-            }else{space = placementArea.getAgentStartingSpace(radius, agentLocation);}
+            PlacementArea.Space space = getSpace(placementArea);
 
             Phenotype phenotype = this.phenotype.clone();
 
@@ -56,6 +52,23 @@ public class HomogeneousRobotFactory implements RobotFactory {
         // placeTestInstances(placementArea, world, targetAreaPlacement,"welding0");
     }
 
+    @Override
+    public void resetInstances(PlacementArea.ForType<RobotObject> placementArea) {
+        for (RobotObject robot : placedRobots) {
+            PlacementArea.Space space = getSpace(placementArea);
+            robot.reset(space.getPosition(), space.getAngle());
+            placementArea.placeObject(space, robot);
+        }
+    }
+
+    private PlacementArea.Space getSpace(PlacementArea.ForType<RobotObject> placementArea) {
+        String agentLocation = za.redbridge.simulator.config.SimConfig.agentLocation;
+        if(agentLocation.equals("")){
+            return placementArea.getRandomCircularSpace(radius);
+        }
+        return placementArea.getAgentStartingSpace(radius, agentLocation);
+    }
+
     public void placeTestInstances(PlacementArea.ForType<RobotObject> placementArea, World world, SimConfig.Direction targetAreaPlacement, String demo){
         Vec2 pos1 = new Vec2(0,0);
         Vec2 pos2 = new Vec2(0,0);
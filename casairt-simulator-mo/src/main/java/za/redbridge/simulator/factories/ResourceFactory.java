@@ -22,6 +22,13 @@ public interface ResourceFactory {
      */
     void placeInstances(PlacementArea.ForType<ResourceObject> placementArea, World world);
 
+    /**
+     * Move the resources placed by the last call to placeInstances to new spaces in the provided
+     * placement area, resetting their state rather than creating new resources.
+     * @param placementArea A placement area for ResourceObjects
+     */
+    void resetInstances(PlacementArea.ForType<ResourceObject> placementArea);
+
     void configure(Map<String, Object> resourceConfigs, String[] q);
 
     /**
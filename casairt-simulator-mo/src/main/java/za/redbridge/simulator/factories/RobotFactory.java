@@ -15,6 +15,13 @@ public interface RobotFactory {
     void placeInstances(PlacementArea.ForType<RobotObject> placementArea, World world,
                         SimConfig.Direction targetAreaPlacement);
 
+    /**
+     * Move the robots placed by the last call to placeInstances to new spaces in the provided
+     * placement area, resetting their state rather than creating new robots.
+     * @param placementArea A placement area for RobotObjects
+     */
+    void resetInstances(PlacementArea.ForType<RobotObject> placementArea);
+
     int getNumRobots();
     void setNumRobots(int numRobots);
     ArrayList<RobotObject> getPlacedRobots();
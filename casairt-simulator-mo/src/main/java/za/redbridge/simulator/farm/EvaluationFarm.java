@@ -0,0 +1,472 @@
+package za.redbridge.simulator.farm;
+
+import org.encog.ml.genetic.GeneticError;
+import org.encog.neural.neat.NEATNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static za.redbridge.simulator.farm.FarmProtocol.EVALUATE;
+import static za.redbridge.simulator.farm.FarmProtocol.FAILED;
+import static za.redbridge.simulator.farm.FarmProtocol.HEARTBEAT;
+import static za.redbridge.simulator.farm.FarmProtocol.HEARTBEAT_INTERVAL;
+import static za.redbridge.simulator.farm.FarmProtocol.HEARTBEAT_TIMEOUT;
+import static za.redbridge.simulator.farm.FarmProtocol.MAGIC;
+import static za.redbridge.simulator.farm.FarmProtocol.RESULT;
+import static za.redbridge.simulator.farm.FarmProtocol.SHUTDOWN;
+import static za.redbridge.simulator.farm.FarmProtocol.VERSION;
+
+/**
+ * Evaluates controllers on {@link EvaluationWorker} processes rather than in the trainer, so that a generation can be
+ * spread across the cores of several machines. Workers connect to the farm over TCP, can join at any time, and are
+ * each sent as many controllers at once as they have said they can evaluate.
+ *
+ * If a worker is lost, because its connection breaks or it stops sending heartbeats, the controllers it was
+ * evaluating are sent to the other workers. A controller is given up on,
+ * failing its evaluation, once the workers evaluating it have been lost {@link #MAX_ATTEMPTS} times. Controllers wait
+ * while no workers are connected.
+ *
+ * {@link #evaluate(NEATNetwork, long[])} blocks until the controller has been evaluated. Called from the EA's ForkJoinPool,
+ * the pool starts other threads while it waits, so the whole generation is handed out to the workers at once.
+ */
+public class EvaluationFarm implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(EvaluationFarm.class);
+
+    // times the workers evaluating a controller may be lost before it is given up on
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * A controller waiting to be evaluated or being evaluated.
+     */
+    private static class Job {
+        private final long id;
+        private final byte[] network;
+        private final long[] seeds;
+        private final CompletableFuture<double[][]> result = new CompletableFuture<>();
+        private int attempts = 0;
+
+        private Job(long id, byte[] network, long[] seeds) {
+            this.id = id;
+            this.network = network;
+            this.seeds = seeds;
+        }
+    }
+
+    private final String fingerprint;
+    private final int simulationRuns;
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+
+    private final BlockingDeque<Job> pending = new LinkedBlockingDeque<>();
+    private final AtomicLong nextJobId = new AtomicLong();
+    private final List<WorkerConnection> workers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextWorkerId = new AtomicInteger();
+    private final AtomicBoolean warnedNoWorkers = new AtomicBoolean();
+    private final List<Process> localWorkers = new ArrayList<>();
+    private volatile boolean closed = false;
+
+    /**
+     * Starts listening for workers.
+     * @param port the port workers connect to, 0 for any free port
+     * @param fingerprint the fingerprint of the trainer's configs, see {@link FarmProtocol#fingerprint}
+     * @param simulationRuns the number of simulation runs a controller is evaluated over
+     * @throws IOException if the port can not be listened on
+     */
+    public EvaluationFarm(int port, String fingerprint, int simulationRuns) throws IOException {
+        this.fingerprint = fingerprint;
+        this.simulationRuns = simulationRuns;
+        this.serverSocket = new ServerSocket(port);
+
+        acceptor = new Thread(this::acceptWorkers, "farm-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("evaluation farm listening on port " + getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the number of workers connected
+     */
+    public int getWorkerCount() {
+        return workers.size();
+    }
+
+    /**
+     * Starts workers on this machine, each in its own JVM, that connect over the loopback interface. They are
+     * stopped when the farm is closed.
+     * @param count the number of workers
+     * @throws IOException if a worker can not be started
+     */
+    public void startLocalWorkers(int count) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        for (int i = 0; i < count; i++) {
+            ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    EvaluationWorker.class.getName(), "127.0.0.1", String.valueOf(getPort()));
+            builder.inheritIO();
+            synchronized (localWorkers) {
+                localWorkers.add(builder.start());
+            }
+        }
+        log.info("started " + count + " local evaluation workers");
+    }
+
+    /**
+     * Evaluates a controller on one of the workers, waiting until it has been evaluated.
+     * @param network the controller
+     * @param seeds the seed of the scenario of each simulation run, or null for new random scenarios
+     * @return the result of each simulation run: the fitness of each objective followed by the adjacent and
+     *         construction performance
+     */
+    public double[][] evaluate(NEATNetwork network, long[] seeds) {
+        if (closed) {
+            throw new GeneticError("The evaluation farm has been closed");
+        }
+        Job job = new Job(nextJobId.getAndIncrement(), serialize(network), seeds);
+        if (workers.isEmpty() && warnedNoWorkers.compareAndSet(false, true)) {
+            log.warn("No evaluation workers are connected, controllers wait until one connects");
+        }
+        pending.addLast(job);
+        try {
+            // in a ForkJoinPool this lets the pool run other evaluations while it waits
+            return job.result.join();
+        } catch (CompletionException e) {
+            throw new GeneticError(e.getCause());
+        }
+    }
+
+    private static byte[] serialize(NEATNetwork network) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(network);
+        } catch (IOException e) {
+            // only possible if the in memory stream fails
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void acceptWorkers() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    log.error("Stopped accepting evaluation workers", e);
+                }
+                return;
+            }
+
+            try {
+                WorkerConnection worker = handshake(socket);
+                if (worker != null) {
+                    workers.add(worker);
+                    warnedNoWorkers.set(false);
+                    worker.start();
+                    log.info("evaluation worker " + worker.name + " connected with " + worker.capacity
+                            + " slots, " + workers.size() + " workers connected");
+                }
+            } catch (IOException e) {
+                log.error("Failed to connect evaluation worker " + socket.getRemoteSocketAddress(), e);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    // reads the worker's hello and accepts it if its configs match, returns null if it was turned away
+    private WorkerConnection handshake(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        socket.setKeepAlive(true);
+        socket.setSoTimeout(HEARTBEAT_TIMEOUT);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an evaluation worker");
+        }
+        short version = in.readShort();
+        String workerFingerprint = in.readUTF();
+        int capacity = in.readInt();
+
+        String rejection = null;
+        if (version != VERSION) {
+            rejection = "unsupported protocol version " + version;
+        } else if (!workerFingerprint.equals(fingerprint)) {
+            rejection = "configs differ from the trainer's";
+        } else if (capacity < 1) {
+            rejection = "no evaluation slots";
+        }
+        out.writeBoolean(rejection == null);
+        out.writeUTF(rejection != null ? rejection : "");
+        out.flush();
+
+        if (rejection != null) {
+            log.error("Turned away evaluation worker " + socket.getRemoteSocketAddress() + ": " + rejection);
+            closeQuietly(socket);
+            return null;
+        }
+        // the read timeout stays, a worker that sends nothing for that long is lost
+        String name = nextWorkerId.getAndIncrement() + "@" + socket.getRemoteSocketAddress();
+        return new WorkerConnection(name, socket, in, out, capacity);
+    }
+
+    // sends a controller out again after the worker evaluating it was lost
+    private void redispatch(Job job, String reason) {
+        job.attempts++;
+        if (job.attempts >= MAX_ATTEMPTS) {
+            job.result.completeExceptionally(new IOException("Evaluation lost " + job.attempts + " times, last "
+                    + reason));
+        } else {
+            // to the front, as the generation is waiting on it
+            pending.addFirst(job);
+        }
+    }
+
+    /**
+     * Tells the workers that training is over and stops listening. Controllers still waiting fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        closeQuietly(serverSocket);
+        for (WorkerConnection worker : workers) {
+            worker.shutdown();
+        }
+
+        List<Job> abandoned = new ArrayList<>();
+        pending.drainTo(abandoned);
+        for (Job job : abandoned) {
+            job.result.completeExceptionally(new IOException("The evaluation farm was closed"));
+        }
+
+        synchronized (localWorkers) {
+            for (Process process : localWorkers) {
+                try {
+                    if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                        process.destroy();
+                    }
+                } catch (InterruptedException e) {
+                    process.destroy();
+                    Thread.currentThread().interrupt();
+                }
+            }
+            localWorkers.clear();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // already closed or broken
+        }
+    }
+
+    /**
+     * A connected worker. One thread sends it controllers while it has free slots, and heartbeats while it has
+     * nothing to send. Another reads back its results and heartbeats.
+     */
+    private class WorkerConnection {
+        private final String name;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private final int capacity;
+        private final Semaphore slots;
+        private final Map<Long, Job> inFlight = new ConcurrentHashMap<>();
+        private final Thread dispatcher;
+        private final Thread reader;
+        private volatile boolean lost = false;
+
+        WorkerConnection(String name, Socket socket, DataInputStream in, DataOutputStream out, int capacity) {
+            this.name = name;
+            this.socket = socket;
+            this.in = in;
+            this.out = out;
+            this.capacity = capacity;
+            this.slots = new Semaphore(capacity);
+            this.dispatcher = new Thread(this::dispatch, "farm-dispatch-" + name);
+            this.reader = new Thread(this::read, "farm-read-" + name);
+            dispatcher.setDaemon(true);
+            reader.setDaemon(true);
+        }
+
+        void start() {
+            reader.start();
+            dispatcher.start();
+        }
+
+        private void dispatch() {
+            try {
+                while (!lost) {
+                    if (!slots.tryAcquire(HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS)) {
+                        sendHeartbeat();
+                        continue;
+                    }
+                    Job job = pending.pollFirst(HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (job == null) {
+                        slots.release();
+                        sendHeartbeat();
+                        continue;
+                    }
+                    inFlight.put(job.id, job);
+                    if (lost) {
+                        // lost while taking the job, it may have missed being sent out again
+                        if (inFlight.remove(job.id) != null) {
+                            pending.addFirst(job);
+                        }
+                        return;
+                    }
+                    synchronized (out) {
+                        out.writeByte(EVALUATE);
+                        out.writeLong(job.id);
+                        if (job.seeds == null) {
+                            out.writeInt(0);
+                        } else {
+                            out.writeInt(job.seeds.length);
+                            for (long seed : job.seeds) {
+                                out.writeLong(seed);
+                            }
+                        }
+                        out.writeInt(job.network.length);
+                        out.write(job.network);
+                        out.flush();
+                    }
+                }
+            } catch (InterruptedException e) {
+                // lost or closed
+            } catch (IOException e) {
+                lose(e);
+            }
+        }
+
+        private void sendHeartbeat() throws IOException {
+            synchronized (out) {
+                out.writeByte(HEARTBEAT);
+                out.flush();
+            }
+        }
+
+        private void read() {
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == HEARTBEAT) {
+                        continue;
+                    }
+                    long id = in.readLong();
+                    if (type == RESULT) {
+                        int nRuns = in.readInt();
+                        double[][] runs = new double[nRuns][];
+                        for (int i = 0; i < nRuns; i++) {
+                            runs[i] = new double[in.readInt()];
+                            for (int j = 0; j < runs[i].length; j++) {
+                                runs[i][j] = in.readDouble();
+                            }
+                        }
+                        Job job = finish(id);
+                        if (job != null) {
+                            if (nRuns == simulationRuns) {
+                                job.result.complete(runs);
+                            } else {
+                                job.result.completeExceptionally(new IOException("Worker " + name + " ran "
+                                        + nRuns + " simulations rather than " + simulationRuns));
+                            }
+                        }
+                    } else if (type == FAILED) {
+                        String error = in.readUTF();
+                        Job job = finish(id);
+                        if (job != null) {
+                            job.result.completeExceptionally(new IOException("Evaluation failed on worker " + name
+                                    + ": " + error));
+                        }
+                    } else {
+                        throw new IOException("Unknown message type " + type);
+                    }
+                }
+            } catch (IOException e) {
+                lose(e);
+            }
+        }
+
+        private Job finish(long id) {
+            Job job = inFlight.remove(id);
+            if (job != null) {
+                slots.release();
+            }
+            return job;
+        }
+
+        private void lose(IOException cause) {
+            synchronized (this) {
+                if (lost) {
+                    return;
+                }
+                lost = true;
+            }
+            workers.remove(this);
+            closeQuietly(socket);
+            dispatcher.interrupt();
+            if (closed) {
+                return;
+            }
+
+            List<Job> orphaned = new ArrayList<>();
+            for (Long id : new ArrayList<>(inFlight.keySet())) {
+                Job job = inFlight.remove(id);
+                if (job != null) {
+                    orphaned.add(job);
+                }
+            }
+            log.error("Lost evaluation worker " + name + ", sending its " + orphaned.size()
+                    + " controllers to other workers, " + workers.size() + " workers left", cause);
+            for (Job job : orphaned) {
+                redispatch(job, "on worker " + name);
+            }
+        }
+
+        void shutdown() {
+            lost = true;
+            dispatcher.interrupt();
+            try {
+                synchronized (out) {
+                    out.writeByte(SHUTDOWN);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // the worker has gone already
+            }
+            closeQuietly(socket);
+        }
+    }
+}
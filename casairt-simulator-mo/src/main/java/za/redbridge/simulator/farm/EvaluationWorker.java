@@ -0,0 +1,226 @@
+package za.redbridge.simulator.farm;
+
+import org.encog.neural.neat.NEATNetwork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.Socket;
+import java.text.ParseException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import za.redbridge.simulator.Main;
+import za.redbridge.simulator.ScoreCalculator;
+import za.redbridge.simulator.config.ExperimentConfig;
+
+import static za.redbridge.simulator.farm.FarmProtocol.EVALUATE;
+import static za.redbridge.simulator.farm.FarmProtocol.FAILED;
+import static za.redbridge.simulator.farm.FarmProtocol.HEARTBEAT;
+import static za.redbridge.simulator.farm.FarmProtocol.HEARTBEAT_INTERVAL;
+import static za.redbridge.simulator.farm.FarmProtocol.HEARTBEAT_TIMEOUT;
+import static za.redbridge.simulator.farm.FarmProtocol.MAGIC;
+import static za.redbridge.simulator.farm.FarmProtocol.RESULT;
+import static za.redbridge.simulator.farm.FarmProtocol.SHUTDOWN;
+import static za.redbridge.simulator.farm.FarmProtocol.VERSION;
+
+/**
+ * A process that evaluates controllers for an {@link EvaluationFarm}. It reads the same configs as the trainer, from
+ * the directory it is started in, and evaluates as many controllers at once as it has cores, with the simulation runs
+ * of each spread across its own ForkJoinPool.
+ *
+ * If the trainer can not be reached, or stops sending heartbeats, the worker keeps trying to connect, giving up after
+ * a minute. It stops when the
+ * trainer tells it training is over or turns it away.
+ *
+ * Usage: EvaluationWorker [host] [port] [slots], by default the port in the experiment config on this machine.
+ */
+public class EvaluationWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(EvaluationWorker.class);
+
+    private static final long RECONNECT_TIMEOUT_SECONDS = 60;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final ScoreCalculator calculator;
+    private final String fingerprint;
+    private final int slots;
+    private final ForkJoinPool pool;
+    // sends the heartbeats of the current connection, apart from the pool so that busy slots do not hold them up
+    private final ScheduledExecutorService heartbeat;
+
+    // whether the current connection got through the handshake
+    private volatile boolean connected = false;
+
+    /**
+     * @param calculator runs the simulations
+     * @param fingerprint the fingerprint of the configs the calculator was made from
+     * @param slots the number of controllers to evaluate at once
+     */
+    public EvaluationWorker(ScoreCalculator calculator, String fingerprint, int slots) {
+        this.calculator = calculator;
+        this.fingerprint = fingerprint;
+        this.slots = slots;
+        this.pool = new ForkJoinPool(slots);
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "worker-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException, ParseException {
+        ExperimentConfig experimentConfig = Main.readExperimentConfig();
+        String host = args.length > 0 ? args[0] : "127.0.0.1";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : experimentConfig.getFarmPort();
+        int slots = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        EvaluationWorker worker = new EvaluationWorker(Main.createScoreCalculator(experimentConfig),
+                Main.configFingerprint(experimentConfig), slots);
+        worker.run(host, port);
+        System.exit(0);
+    }
+
+    /**
+     * Evaluates controllers for the trainer until training is over.
+     * @param host the trainer's host
+     * @param port the port the trainer's farm listens on
+     */
+    public void run(String host, int port) {
+        long disconnectedSince = System.nanoTime();
+        while (true) {
+            try (Socket socket = new Socket(host, port)) {
+                if (serve(socket)) {
+                    break;
+                }
+            } catch (IOException e) {
+                if (connected) {
+                    log.error("Lost connection to the trainer at " + host + ":" + port + ", trying to reconnect", e);
+                }
+            }
+
+            if (connected) {
+                connected = false;
+                disconnectedSince = System.nanoTime();
+            } else if (TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - disconnectedSince)
+                    > RECONNECT_TIMEOUT_SECONDS) {
+                log.error("Unable to connect to the trainer at " + host + ":" + port + ", stopping");
+                break;
+            }
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        pool.shutdownNow();
+        heartbeat.shutdownNow();
+    }
+
+    // evaluates controllers over one connection, returns whether the worker should stop
+    private boolean serve(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        socket.setKeepAlive(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeUTF(fingerprint);
+        out.writeInt(slots);
+        out.flush();
+        boolean accepted = in.readBoolean();
+        String rejection = in.readUTF();
+        if (!accepted) {
+            log.error("Turned away by the trainer: " + rejection);
+            return true;
+        }
+        connected = true;
+        log.info("connected to the trainer at " + socket.getRemoteSocketAddress() + " with " + slots + " slots");
+
+        // a trainer that sends nothing, not even a heartbeat, for this long is taken to be lost
+        socket.setSoTimeout(HEARTBEAT_TIMEOUT);
+        ScheduledFuture<?> heartbeats = heartbeat.scheduleAtFixedRate(() -> sendHeartbeat(out),
+                HEARTBEAT_INTERVAL, HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS);
+        try {
+            while (true) {
+                byte type = in.readByte();
+                if (type == SHUTDOWN) {
+                    log.info("training is over, stopping");
+                    return true;
+                } else if (type == HEARTBEAT) {
+                    continue;
+                } else if (type != EVALUATE) {
+                    throw new IOException("Unknown message type " + type);
+                }
+                long id = in.readLong();
+                int nSeeds = in.readInt();
+                long[] seeds = nSeeds > 0 ? new long[nSeeds] : null;
+                for (int i = 0; i < nSeeds; i++) {
+                    seeds[i] = in.readLong();
+                }
+                byte[] network = new byte[in.readInt()];
+                in.readFully(network);
+                pool.execute(() -> evaluate(id, network, seeds, out));
+            }
+        } finally {
+            heartbeats.cancel(false);
+        }
+    }
+
+    private static void sendHeartbeat(DataOutputStream out) {
+        try {
+            synchronized (out) {
+                out.writeByte(HEARTBEAT);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the connection has gone, reading from it fails as well
+        }
+    }
+
+    private void evaluate(long id, byte[] bytes, long[] seeds, DataOutputStream out) {
+        double[][] runs = null;
+        String error = null;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            NEATNetwork network = (NEATNetwork) in.readObject();
+            runs = calculator.runReplicates(network, seeds);
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            log.error("Failed to evaluate controller " + id, e);
+            error = e.toString();
+        }
+
+        try {
+            synchronized (out) {
+                if (runs != null) {
+                    out.writeByte(RESULT);
+                    out.writeLong(id);
+                    out.writeInt(runs.length);
+                    for (double[] run : runs) {
+                        out.writeInt(run.length);
+                        for (double value : run) {
+                            out.writeDouble(value);
+                        }
+                    }
+                } else {
+                    out.writeByte(FAILED);
+                    out.writeLong(id);
+                    out.writeUTF(error);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the connection has gone, the trainer sends the controller to another worker
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package za.redbridge.simulator.farm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The messages sent between an {@link EvaluationFarm} and its {@link EvaluationWorker}s over TCP, written with
+ * DataOutputStreams.
+ *
+ * On connecting a worker sends a hello: magic number, version, the fingerprint of its configs and the number of
+ * controllers it can evaluate at once. The farm answers whether it accepts the worker, and if not, why. A worker
+ * whose configs differ from the trainer's is turned away, as its scores would not be comparable.
+ *
+ * Every message after that starts with its type. The farm sends evaluate messages: a job id, the seed of the scenario
+ * of each simulation run preceded by their number (none for new random scenarios) and the controller as a java
+ * serialized NEATNetwork, preceded by its length in bytes. The worker answers each with a result: the job id and,
+ * for each simulation run, the fitness of each objective followed by the adjacent and construction performance. If
+ * the evaluation fails it answers with a failure holding the job id and the error instead. A shutdown tells the worker
+ * that training is over.
+ *
+ * While connected each side sends a heartbeat, just its type, whenever it has sent nothing else for
+ * {@link #HEARTBEAT_INTERVAL} milliseconds. A side that hears nothing from the other for {@link #HEARTBEAT_TIMEOUT}
+ * milliseconds drops the connection, so a worker that hangs or is cut off by the network is noticed long before TCP
+ * would notice it.
+ */
+public final class FarmProtocol {
+
+    static final int MAGIC = 0x43415346;
+    static final short VERSION = 3;
+
+    static final int HEARTBEAT_INTERVAL = (int) TimeUnit.SECONDS.toMillis(5);
+    static final int HEARTBEAT_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(30);
+
+    // message types
+    static final byte EVALUATE = 1;
+    static final byte RESULT = 2;
+    static final byte FAILED = 3;
+    static final byte SHUTDOWN = 4;
+    static final byte HEARTBEAT = 5;
+
+    private FarmProtocol() {
+    }
+
+    /**
+     * A hash of everything that decides the score a controller is given: the contents of the config files and the
+     * parameters of the simulations that are not in them.
+     * @param configFiles the simulation, schema and morphology config files
+     * @param parameters such as the number of simulation runs and the morphology number
+     * @return the fingerprint, in hex
+     * @throws IOException if a config file can not be read
+     */
+    public static String fingerprint(List<Path> configFiles, int... parameters) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (Path file : configFiles) {
+            digest.update(Files.readAllBytes(file));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(parameters.length * Integer.BYTES);
+        for (int parameter : parameters) {
+            buffer.putInt(parameter);
+        }
+        digest.update(buffer.array());
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -6,6 +6,7 @@ import za.redbridge.simulator.object.WallObject;
 import za.redbridge.simulator.portrayal.ConePortrayal;
 import za.redbridge.simulator.portrayal.Portrayal;
 import za.redbridge.simulator.sensor.AgentSensor;
+import za.redbridge.simulator.sensor.SensorReading;
 import za.redbridge.simulator.sensor.sensedobjects.SensedObject;
 
 import java.awt.*;
@@ -46,7 +47,7 @@ public class ColourRangedSensor extends AgentSensor
      * @param output  the output vector for this sensor. Write the sensor output to this list (which
      */
     @Override
-    protected void provideObjectReading(List<SensedObject> sensedObjects, List<Double> output)
+    protected void provideObjectReading(List<SensedObject> sensedObjects, SensorReading output)
     {
         if (!sensedObjects.isEmpty()) {
             for(int i=0;i<readingSize;i++){
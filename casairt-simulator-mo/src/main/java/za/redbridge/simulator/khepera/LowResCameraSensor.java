@@ -6,6 +6,7 @@ import za.redbridge.simulator.object.WallObject;
 import za.redbridge.simulator.portrayal.ConePortrayal;
 import za.redbridge.simulator.portrayal.Portrayal;
 import za.redbridge.simulator.sensor.AgentSensor;
+import za.redbridge.simulator.sensor.SensorReading;
 import za.redbridge.simulator.sensor.sensedobjects.SensedObject;
 
 import java.awt.*;
@@ -39,7 +40,7 @@ public class LowResCameraSensor extends AgentSensor
     }
 
     @Override
-    protected void provideObjectReading(List<SensedObject> sensedObjects, List<Double> output)
+    protected void provideObjectReading(List<SensedObject> sensedObjects, SensorReading output)
     {
         //returns the ratio between robots and the mass of resources to determine required level of cooperation
 
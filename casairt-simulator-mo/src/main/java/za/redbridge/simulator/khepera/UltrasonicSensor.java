@@ -9,6 +9,7 @@ import za.redbridge.simulator.portrayal.ConePortrayal;
 import za.redbridge.simulator.portrayal.Portrayal;
 
 import za.redbridge.simulator.sensor.AgentSensor;
+import za.redbridge.simulator.sensor.SensorReading;
 import za.redbridge.simulator.sensor.sensedobjects.SensedObject;
 
 /**
@@ -38,7 +39,7 @@ public class UltrasonicSensor extends AgentSensor {
     }
 
     @Override
-    protected void provideObjectReading(List<SensedObject> sensedObjects, List<Double> output) {
+    protected void provideObjectReading(List<SensedObject> sensedObjects, SensorReading output) {
         if (!sensedObjects.isEmpty()) {
             for(int i=0;i<readingSize;i++){
                 if(i<sensedObjects.size()){
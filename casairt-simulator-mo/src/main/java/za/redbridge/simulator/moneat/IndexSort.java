@@ -0,0 +1,41 @@
+package za.redbridge.simulator.moneat;
+
+/**
+ * Sorts genome indices by a key per genome without boxing them.
+ */
+final class IndexSort {
+
+	private IndexSort() {
+	}
+
+	/**
+	 * Stable merge sort of part of an array of indices, smallest key first.
+	 * @param indices the indices to sort
+	 * @param temp working space at least as long as the part being sorted
+	 * @param from the first position to sort
+	 * @param to one past the last position to sort
+	 * @param keys the key of each index
+	 */
+	static void sort(int[] indices, int[] temp, int from, int to, double[] keys) {
+		if (to - from < 2) {
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		sort(indices, temp, from, mid, keys);
+		sort(indices, temp, mid, to, keys);
+		if (Double.compare(keys[indices[mid - 1]], keys[indices[mid]]) <= 0) {
+			return;
+		}
+		System.arraycopy(indices, from, temp, from, to - from);
+		int i = from;
+		int j = mid;
+		for (int out = from; out < to; out++) {
+			if (j >= to || (i < mid && Double.compare(keys[temp[i]], keys[temp[j]]) <= 0)) {
+				indices[out] = temp[i++];
+			}
+			else {
+				indices[out] = temp[j++];
+			}
+		}
+	}
+}
@@ -9,7 +9,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
 import org.encog.Encog;
@@ -45,12 +45,12 @@ import org.encog.ml.genetic.GeneticError;
 import org.encog.util.concurrency.MultiThreadable;
 import org.encog.util.logging.EncogLogging;
 import org.encog.ml.ea.train.basic.EAWorker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import za.redbridge.simulator.ScoreCalculator;
-import java.util.Collections;
-import java.util.Comparator;
 import za.redbridge.simulator.moneat.MultiObjectivePopulation;
 import java.util.HashMap;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
 
 /**
  * The main algorithm for MO-NEAT. Iteratively evolves a population of NEAT controllers
@@ -65,6 +65,24 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
 	 */
 	private static final long serialVersionUID = 1L;
 
+	private static final Logger log = LoggerFactory.getLogger(MultiObjectiveBasicEA.class);
+
+	/**
+	 * The parts of an iteration that are timed.
+	 */
+	public enum Phase {
+		/** breeding and scoring the offspring */
+		EVALUATION,
+		/** multi-objective fitness assignment */
+		FITNESS,
+		/** choosing the archive */
+		SELECTION,
+		/** speciating the archive */
+		SPECIATION,
+		/** removing invalid genomes */
+		PURGE
+	}
+
 	/**
 	 * Calculate the score adjustment, based on adjusters.
 	 *
@@ -201,7 +219,9 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
 	private Genome bestGenome;
 
 	/**
-	 * The thread pool executor.
+	 * The thread pool executor. A work stealing pool that scores the initial population, breeds and scores the
+	 * offspring and runs the phases between generations, so the simulation runs of one genome can be picked up by
+	 * idle threads.
 	 */
 	private ExecutorService taskExecutor;
 
@@ -233,9 +253,9 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
     private int k;
 
 	/**
-	 * Mapping between genomes and their score values
+	 * The objective scores of every genome that has been scored
 	 */
-	private ConcurrentHashMap<Genome, MultiObjectiveScore> populationMap;
+	private ObjectiveStore objectiveStore;
 
 	/**
 	 * The objectives given to the simulator through the population
@@ -247,6 +267,16 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
 	 */
 	private int archiveSize;
 
+	/**
+	 * Assigns fitness from the objective scores and chooses the archive, SPEA2 unless set otherwise
+	 */
+	private MultiObjectiveSelector selector;
+
+	/**
+	 * Time spent in each phase of the last iteration, in nanoseconds
+	 */
+	private final long[] phaseTimes = new long[Phase.values().length];
+
 	/**
 	 * Construct an EA.
 	 *
@@ -268,8 +298,9 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
         this.archiveList = new ArrayList<Genome>();
 		this.nondominatedSet = new ArrayList<Genome>();
         this.k = (int) Math.sqrt(this.population.getPopulationSize()+archiveSize);
-		this.populationMap = new ConcurrentHashMap<Genome, MultiObjectiveScore>();
+		this.selector = new SPEA2(this.k);
 		this.populationObjectives = thePopulation.getPopulationObjectives();
+		this.objectiveStore = new ObjectiveStore(this.populationObjectives);
 
 		// set the score compare method
 		if (theScoreFunction.shouldMinimize()) {
@@ -386,14 +417,7 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
             scoreValues = getScoreFunction().calculateMultipleScores(phenotype);
         }
 
-		MultiObjectiveScore genomeScore = new MultiObjectiveScore(populationObjectives);
-		genomeScore.setObjectiveScores(scoreValues);
-
-		// print objective scores
-		// System.out.println(genomeScore);
-
-		// put into map
-		populationMap.put(g, genomeScore);
+		objectiveStore.put(g, scoreValues);
 	}
 
 	/**
@@ -436,6 +460,12 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
         return this.archivePopulation;
     }
 
+	/**
+	 * @return the genomes in the archive, in the order they were selected
+	 */
+	public List<Genome> getArchiveList(){
+		return this.archiveList;
+	}
 	/**
 	 * @return the champMutation
 	 */
@@ -611,6 +641,8 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
 	@Override
 	public void iteration() {
 
+		Arrays.fill(this.phaseTimes, 0);
+
 		if (this.actualThreadCount == -1) {
 			preIteration();
 		}
@@ -640,11 +672,13 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
 		}
 
 		// run all threads and wait for them to finish
+		long start = System.nanoTime();
 		try {
 			this.taskExecutor.invokeAll(this.threadList);
 		} catch (final InterruptedException e) {
 			EncogLogging.log(e);
 		}
+		addPhaseTime(Phase.EVALUATION, start);
 
 		// handle any errors that might have happened in the threads
 		if (this.reportedError != null && !getShouldIgnoreExceptions()) {
@@ -687,54 +721,16 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
 		System.out.println("Total population size: "+totalPopulation.size());
 
 		// iterate through totalPopulation and find final score for each
-		speaFitnessAssignment(totalPopulation);
+		start = System.nanoTime();
+		assignFitness(totalPopulation);
+		addPhaseTime(Phase.FITNESS, start);
 
-		// add all nondominated members from the totalPopulation to the archive
+		// choose the archive for the next generation
+		start = System.nanoTime();
+		List<Genome> selected = selector.selectArchive(totalPopulation, archiveSize, objectiveStore);
 		archiveList.clear();
-		for(Genome genome : totalPopulation){
-			if(genome.getScore() < 1){
-				archiveList.add(genome);
-			}
-		}
-
-		System.out.println("Size of archive after adding non-dominated: "+archiveList.size());
-
-		// fill/reduce the archive depending on size
-		if(archiveList.size() < archiveSize){
-			// System.out.println("Add to the archive");
-            Collections.sort(totalPopulation, new Comparator<Genome>(){
-				@Override
-				public int compare(Genome g2, Genome g1){
-					if(g2.getScore() < g1.getScore()){
-						return -1;
-					}
-					else if(g2.getScore() > g1.getScore()){
-						return 1;
-					}
-					else return 0;
-				}
-			});
-
-			int numberToAdd = archiveSize - archiveList.size();
-			int j = 0;
-			while(numberToAdd != 0){
-				if(!archiveList.contains(totalPopulation.get(j))){
-					archiveList.add(totalPopulation.get(j));
-					numberToAdd --;
-				}
-				j++;
-			}
-        }
-        else if(archiveList.size() > archiveSize){
-			// System.out.println("Reduce the archive by: "+(archiveList.size()-archiveSize));
-			int reduceBy = archiveList.size()-archiveSize;
-			int k = 0;
-			while(k<reduceBy){
-				int index = reduceArchive(archiveList);
-				archiveList.remove(index);
-				k++;
-			}
-        }
+		archiveList.addAll(selected);
+		addPhaseTime(Phase.SELECTION, start);
 
 		System.out.println("Size of archive after filling/reducing: "+archiveList.size());
 
@@ -751,89 +747,89 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
 		System.out.println("Number of genomes in non-dominated set: "+nondominatedSet.size());
 
 		// speciate on the archive list
+		start = System.nanoTime();
 		this.speciation.performSpeciation(this.archiveList);
+		addPhaseTime(Phase.SPECIATION, start);
 
         // purge invalid genomes
+		start = System.nanoTime();
         this.archivePopulation.purgeInvalidGenomes();
-	}
+		addPhaseTime(Phase.PURGE, start);
 
-	// takes in total population (archive + population) and calculates fitness values based on spea2 algorithm
-	// sets the score and adjusted score for every genome in the population and archive
-	public void speaFitnessAssignment(List<Genome> totalPopulation){
-		// calculate strength values
-        for(Genome g1 : totalPopulation){
-            int dominateCount = 0;
-            for(Genome g2 : totalPopulation){
-                if(g1!=g2){
-                    if(populationMap.get(g1).dominates(populationMap.get(g2))){
-                        dominateCount++;
-                    }
-                }
-            }
-            populationMap.get(g1).setStrength(dominateCount);
-        }
+		// forget the scores of genomes that have died out. only the archive and the best genome are carried into the
+		// next iteration, every other genome it scores is new
+		List<Genome> live = new ArrayList<Genome>(archiveList);
+		live.add(this.bestGenome);
+		int evicted = objectiveStore.retain(live);
 
-        // calculate raw fitness values
-        for(Genome g1 : totalPopulation){
-            int rawfitness = 0;
-            for(Genome g2 : totalPopulation){
-                if(g1!=g2){
-                    if(populationMap.get(g2).dominates(populationMap.get(g1))){
-                        rawfitness += populationMap.get(g2).getStrength();
-                    }
-                }
-            }
-            populationMap.get(g1).setRawFitness(rawfitness);
-        }
+		log.debug("Objective store: {} genomes, capacity {}, evicted {}", objectiveStore.size(),
+				objectiveStore.getCapacity(), evicted);
 
-        // calculate k-th nearest neighbour and set the score for the genome
-        for(Genome g1 : totalPopulation){
-            ArrayList<Double> neighbourList = new ArrayList<Double>();
-            for(Genome g2 : totalPopulation){
-                if(g1!=g2){
-                    double distance = populationMap.get(g1).distanceBetween(populationMap.get(g2));
-                    neighbourList.add(distance);
-                }
-            }
-            Collections.sort(neighbourList);
-            double density = 1.0/(neighbourList.get(k) + 2);
-			double score = populationMap.get(g1).getRawFitness() + density;
-            g1.setScore(score);
-            g1.setAdjustedScore(score);
-			populationMap.get(g1).setScore(score);
-
-			// System.out.println("Genome - strength: "+populationMap.get(g1).getStrength()+", rawfitness: "+populationMap.get(g1).getRawFitness()+", density: "+density+", score: "+score);
-        }
+		if (log.isDebugEnabled()) {
+			log.debug(formatPhaseTimes());
+		}
 	}
 
-	public int reduceArchive(List<Genome> archive){
-		double lowestDistance = Double.MAX_VALUE;
-		int i = -1;
-		int index = 0;
-		for(Genome g1 : archive){
-			i++;
-            ArrayList<Double> neighbourList = new ArrayList<Double>();
-            for(Genome g2 : archive){
-                if(g1!=g2){
-                    double distance = populationMap.get(g1).distanceBetween(populationMap.get(g2));
-                    neighbourList.add(distance);
-                }
-            }
-            Collections.sort(neighbourList);
-			double distance = neighbourList.get(k);
+	private void addPhaseTime(Phase phase, long start) {
+		this.phaseTimes[phase.ordinal()] += System.nanoTime() - start;
+	}
 
-			if(distance < lowestDistance){
-				index = i;
-				lowestDistance = distance;
-			}
-        }
-		return index;
+	/**
+	 * @return the time spent in a phase of the last iteration in milliseconds, including the setup done before the
+	 *         first iteration
+	 */
+	public double getPhaseTime(Phase phase) {
+		return this.phaseTimes[phase.ordinal()] / 1e6;
+	}
+
+	// the time of each phase and the share of the iteration spent outside of evaluation
+	private String formatPhaseTimes() {
+		StringBuilder builder = new StringBuilder("Phase times (ms):");
+		double total = 0;
+		for (Phase phase : Phase.values()) {
+			builder.append(' ').append(phase.name().toLowerCase()).append(' ')
+					.append(String.format("%.1f", getPhaseTime(phase)));
+			total += getPhaseTime(phase);
+		}
+		double between = total - getPhaseTime(Phase.EVALUATION);
+		builder.append(", between generations: ").append(String.format("%.1f%%", total > 0 ? 100 * between / total : 0));
+		return builder.toString();
+	}
+
+	// takes in total population (archive + population) and calculates fitness values with the selector
+	// sets the score and adjusted score for every genome in the population and archive
+	public void assignFitness(List<Genome> totalPopulation){
+		selector.assignFitness(totalPopulation, objectiveStore);
 	}
 
 	public List<Genome> getParetoFront(){
 		return nondominatedSet;
 	}
 
+	/**
+	 * @return the multi-objective selection used
+	 */
+	public MultiObjectiveSelector getSelector(){
+		return selector;
+	}
+
+	/**
+	 * @param selector the multi-objective selection to use
+	 */
+	public void setSelector(MultiObjectiveSelector selector){
+		this.selector = selector;
+		if (this.taskExecutor != null) {
+			selector.setExecutor(this.taskExecutor, this.actualThreadCount);
+		}
+	}
+
+	/**
+	 * @return the objective scores of every genome that has been scored
+	 */
+	public ObjectiveStore getObjectiveStore(){
+		return objectiveStore;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -847,33 +843,16 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
 	 * use.
 	 */
 	private void preIteration() {
-		this.speciation.init(this);
-
-		// find out how many threads to use
-		if (this.threadCount == 0) {
-			this.actualThreadCount = Runtime.getRuntime().availableProcessors();
-		} else {
-			this.actualThreadCount = this.threadCount;
-		}
+		startThreads();
 
 		// score the initial population
+		long start = System.nanoTime();
 		final MultiObjectiveParallelScore pscore = new MultiObjectiveParallelScore(this.population,
 				getCODEC(), new ArrayList<AdjustScore>(), getScoreFunction(),
-				this.actualThreadCount, this.populationMap);
+				this.actualThreadCount, this.objectiveStore, this.taskExecutor);
 		pscore.setThreadCount(this.actualThreadCount);
 		pscore.process();
-		this.actualThreadCount = pscore.getThreadCount();
-
-		// start up the thread pool
-		if (this.actualThreadCount == 1) {
-			this.taskExecutor = Executors.newSingleThreadScheduledExecutor();
-		} else {
-			this.taskExecutor = Executors
-					.newFixedThreadPool(this.actualThreadCount);
-		}
-
-		// register for shutdown
-		Encog.getInstance().addShutdownTask(this);
+		addPhaseTime(Phase.EVALUATION, start);
 
 		// just pick the first genome with a valid score as best, it will be
 		// updated later.
@@ -882,8 +861,10 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
 		// if there is an empty population, the constructor would have blow
 		final List<Genome> list = this.population.flatten();
 
-		// iterate through and set MultiObjectiveScore for each of them
-		speaFitnessAssignment(list);
+		// iterate through and set the fitness for each of them
+		start = System.nanoTime();
+		assignFitness(list);
+		addPhaseTime(Phase.FITNESS, start);
 
 		int idx = 0;
 		do {
@@ -902,17 +883,88 @@ public class MultiObjectiveBasicEA implements EvolutionaryAlgorithm, MultiThread
 		// 	System.out.println(genome);
 		// }
 
+		start = System.nanoTime();
 		this.speciation.performSpeciation(genomes);
+		addPhaseTime(Phase.SPECIATION, start);
 
 		// System.out.println("Number of genomes before speciation: "+genomes.size());
 		// System.out.println("Number of genomes after speciation: "+this.archivePopulation.flatten().size());
 
 		// purge invalid genomes
+		start = System.nanoTime();
         this.archivePopulation.purgeInvalidGenomes();
+		addPhaseTime(Phase.PURGE, start);
 
 		// System.out.println("Number of genomes after purging invalids: "+this.archivePopulation.flatten().size());
 	}
 
+	/**
+	 * Determines the number of threads to use and starts the pool used for the rest of the run.
+	 */
+	private void startThreads() {
+		this.speciation.init(this);
+
+		// find out how many threads to use
+		if (this.threadCount == 0) {
+			this.actualThreadCount = Runtime.getRuntime().availableProcessors();
+		} else {
+			this.actualThreadCount = this.threadCount;
+		}
+
+		// start up the thread pool, used for the rest of the run
+		this.taskExecutor = new ForkJoinPool(this.actualThreadCount);
+
+		// register for shutdown
+		Encog.getInstance().addShutdownTask(this);
+
+		// the phases between generations share the pool
+		this.selector.setExecutor(this.taskExecutor, this.actualThreadCount);
+		if (this.speciation instanceof ParallelNEATSpeciation) {
+			((ParallelNEATSpeciation) this.speciation).setExecutor(this.taskExecutor, this.actualThreadCount);
+		}
+	}
+
+	/**
+	 * Continues a run from a saved state instead of scoring and speciating a new population, must be called before
+	 * the first iteration. The species must already be in the population.
+	 * @param archive the genomes in the archive, in the order they were selected
+	 * @param best the best genome
+	 * @param objectiveScores the objective scores of every genome that had been scored
+	 * @param theIteration the last iteration that was finished
+	 */
+	public void restoreState(final List<Genome> archive, final Genome best,
+			final Map<Genome, List<Double>> objectiveScores, final int theIteration) {
+		if (this.actualThreadCount != -1) {
+			throw new EncogError("The state can only be restored before the first iteration.");
+		}
+		// the offspring counts are only set by speciation, which has already run for the restored generation
+		int offspring = 0;
+		for (final Species species : getPopulation().getSpecies()) {
+			offspring += species.getOffspringCount();
+		}
+		if (offspring == 0) {
+			throw new EncogError("The restored species breed no offspring, the next generation would be empty.");
+		}
+		startThreads();
+
+		for (Map.Entry<Genome, List<Double>> entry : objectiveScores.entrySet()) {
+			this.objectiveStore.put(entry.getKey(), entry.getValue());
+		}
+
+		this.archiveList.clear();
+		this.archiveList.addAll(archive);
+		this.nondominatedSet.clear();
+		for (Genome genome : this.archiveList) {
+			if (genome.getScore() < 1) {
+				this.nondominatedSet.add(genome);
+			}
+		}
+
+		this.bestGenome = best;
+		getPopulation().setBestGenome(best);
+		setIteration(theIteration);
+	}
+
 	/**
 	 * Called by a thread to report an error.
 	 *
@@ -23,10 +23,13 @@
  */
 package za.redbridge.simulator.moneat;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 import java.util.HashMap;
 import za.redbridge.simulator.moneat.*;
 
@@ -38,7 +41,6 @@ import org.encog.ml.ea.score.AdjustScore;
 import org.encog.ml.ea.species.Species;
 import org.encog.ml.genetic.GeneticError;
 import org.encog.util.concurrency.MultiThreadable;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is used to calculate the scores for an entire population. This is
@@ -75,7 +77,12 @@ public class MultiObjectiveParallelScore implements MultiThreadable {
 	 */
 	private int actualThreads;
 
-	private ConcurrentHashMap<Genome, MultiObjectiveScore> populationMap;
+	private final ObjectiveStore objectiveStore;
+
+	/**
+	 * The pool to score on, or null to start one up for this population.
+	 */
+	private final ExecutorService executor;
 
 	/**
 	 * Construct the parallel score calculation object.
@@ -84,16 +91,19 @@ public class MultiObjectiveParallelScore implements MultiThreadable {
 	 * @param theAdjusters The score adjusters to use.
 	 * @param theScoreFunction The score function.
 	 * @param theThreadCount The requested thread count.
+	 * @param objectiveStore Where the scores are stored.
+	 * @param theExecutor The pool to score on, or null to start one up for this population.
 	 */
 	public MultiObjectiveParallelScore(MultiObjectivePopulation thePopulation, GeneticCODEC theCODEC,
 			List<AdjustScore> theAdjusters, CalculateScore theScoreFunction,
-			int theThreadCount, ConcurrentHashMap<Genome, MultiObjectiveScore> populationMap) {
+			int theThreadCount, ObjectiveStore objectiveStore, ExecutorService theExecutor) {
 		this.codec = theCODEC;
 		this.population = thePopulation;
 		this.scoreFunction = theScoreFunction;
 		this.adjusters = theAdjusters;
 		this.actualThreads = 0;
-		this.populationMap = populationMap;
+		this.objectiveStore = objectiveStore;
+		this.executor = theExecutor;
 	}
 
 	/**
@@ -130,26 +140,36 @@ public class MultiObjectiveParallelScore implements MultiThreadable {
 			this.actualThreads = threads;
 		}
 
-		// start up
-		ExecutorService taskExecutor = null;
+		// start up, unless the trainer's pool is to be used
+		ExecutorService taskExecutor = this.executor;
 
-		if (this.threads == 1) {
-			taskExecutor = Executors.newSingleThreadScheduledExecutor();
-		} else {
-			taskExecutor = Executors.newFixedThreadPool(this.actualThreads);
+		if (taskExecutor == null) {
+			if (this.threads == 1) {
+				taskExecutor = Executors.newSingleThreadScheduledExecutor();
+			} else {
+				taskExecutor = Executors.newFixedThreadPool(this.actualThreads);
+			}
 		}
 
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
 		for (Species species : this.population.getSpecies()) {
 			for (Genome genome : species.getMembers()) {
-				taskExecutor.execute(new MultiObjectiveParallelScoreTask(genome, this));
+				tasks.add(Executors.callable(new MultiObjectiveParallelScoreTask(genome, this)));
 			}
 		}
 
-		taskExecutor.shutdown();
 		try {
-			taskExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MINUTES);
+			for (Future<Object> future : taskExecutor.invokeAll(tasks)) {
+				future.get();
+			}
 		} catch (InterruptedException e) {
 			throw new GeneticError(e);
+		} catch (ExecutionException e) {
+			throw new GeneticError(e.getCause());
+		} finally {
+			if (taskExecutor != this.executor) {
+				taskExecutor.shutdown();
+			}
 		}
 	}
 
@@ -176,7 +196,7 @@ public class MultiObjectiveParallelScore implements MultiThreadable {
 		this.threads = numThreads;
 	}
 
-	public ConcurrentHashMap getPopulationMap(){
-		return this.populationMap;
+	public ObjectiveStore getObjectiveStore(){
+		return this.objectiveStore;
 	}
 }
@@ -33,7 +33,6 @@ import org.encog.ml.ea.genome.Genome;
 import org.encog.ml.ea.score.AdjustScore;
 import org.encog.ml.ea.train.basic.BasicEA;
 import za.redbridge.simulator.ScoreCalculator;
-import za.redbridge.simulator.moneat.MultiObjectiveScore;
 
 /**
  * An individual threadable task for the parallel score calculation.
@@ -88,10 +87,7 @@ public class MultiObjectiveParallelScoreTask implements Runnable {
 
 			}
 
-            // create MultiObjectiveScore object and add values
-			MultiObjectiveScore genomeScore = new MultiObjectiveScore(owner.getPopulation().getPopulationObjectives());
-			genomeScore.setObjectiveScores(scoreValues);
-			owner.getPopulationMap().put(this.genome, genomeScore);
+			owner.getObjectiveStore().put(this.genome, scoreValues);
 		} else {
 
 		}
@@ -0,0 +1,40 @@
+package za.redbridge.simulator.moneat;
+
+import org.encog.ml.ea.genome.Genome;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Multi-objective selection for MO-NEAT: turns the objective scores of the population and archive into a single
+ * score per genome and chooses the genomes that make up the next archive.
+ *
+ * Scores are minimised. Genomes that no other genome dominates must score below 1 and every other genome at least 1,
+ * so the Pareto front can be read off the scores.
+ */
+public interface MultiObjectiveSelector {
+
+	/**
+	 * Sets the score and adjusted score of every genome.
+	 * @param genomes the population and archive together
+	 * @param store the objective scores of the genomes
+	 */
+	void assignFitness(List<Genome> genomes, ObjectiveStore store);
+
+	/**
+	 * Chooses the next archive from genomes that have just been given their fitness.
+	 * @param genomes the population and archive together
+	 * @param size the size of the archive
+	 * @param store the objective scores of the genomes
+	 * @return the genomes in the new archive, at most size of them
+	 */
+	List<Genome> selectArchive(List<Genome> genomes, int size, ObjectiveStore store);
+
+	/**
+	 * Gives the selector the EA's worker pool to split its work across. Without one everything runs on the calling
+	 * thread.
+	 * @param executor the worker pool
+	 * @param threadCount the number of threads in the pool
+	 */
+	void setExecutor(ExecutorService executor, int threadCount);
+}
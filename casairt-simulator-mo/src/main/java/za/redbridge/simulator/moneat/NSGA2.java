@@ -0,0 +1,188 @@
+package za.redbridge.simulator.moneat;
+
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.sort.MinimizeScoreComp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * NSGA-II selection (Deb, Pratap, Agarwal and Meyarivan, 2002): genomes are ranked by the non-dominated front they are
+ * in and, within a front, by crowding distance in objective space.
+ *
+ * Fronts are found with the efficient non-dominated sort using binary search (Zhang, Tian, Cheng and Jin, 2015). The
+ * genomes are visited in lexicographic order of their scores, so a genome can only be dominated by genomes visited
+ * before it, and each is placed in the first front with no genome dominating it. For the two or three objectives used
+ * in training this does far fewer dominance comparisons than comparing every pair.
+ */
+public class NSGA2 implements MultiObjectiveSelector {
+
+	private ObjectiveStore store;
+	private int[] slots = new int[0];
+
+	// genome indices in lexicographic order, and working space for sorting them
+	private int[] order = new int[0];
+	private int[] temp = new int[0];
+	private double[] keys = new double[0];
+
+	// each front is a linked list, most recently added genome first
+	private int[] frontTail = new int[0];
+	private int[] previous = new int[0];
+	// where each front starts once the fronts are laid out one after the other in order
+	private int[] frontStart = new int[0];
+	private int[] rank = new int[0];
+	private double[] crowding = new double[0];
+
+	private ExecutorService executor;
+	private int workers = 1;
+
+	/**
+	 * Sets the score and adjusted score of every genome to the index of its front plus a term that is smaller the
+	 * more crowded its neighbourhood in the front. Lower is better, nondominated genomes score below 1.
+	 * @param genomes the population and archive together
+	 * @param store the objective scores of the genomes, the front is kept as the raw fitness and the crowding term as
+	 *              the density
+	 */
+	@Override
+	public void assignFitness(List<Genome> genomes, ObjectiveStore store) {
+		load(genomes, store);
+		final int n = genomes.size();
+		final int nObjectives = store.getNumObjectives();
+
+		// lexicographic order, best first: stable sorts from the least to the most significant objective
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		for (int o = nObjectives - 1; o >= 0; o--) {
+			for (int i = 0; i < n; i++) {
+				keys[i] = -store.getOrientedValue(slots[i], o);
+			}
+			IndexSort.sort(order, temp, 0, n, keys);
+		}
+
+		// a genome dominated by a member of a front is dominated by a member of every earlier front, so the first front
+		// that does not dominate it can be found by binary search
+		int nFronts = 0;
+		for (int i = 0; i < n; i++) {
+			final int genome = order[i];
+			int low = 0;
+			int high = nFronts;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (isDominatedByFront(genome, mid)) {
+					low = mid + 1;
+				}
+				else {
+					high = mid;
+				}
+			}
+			if (low == nFronts) {
+				frontTail[nFronts++] = -1;
+			}
+			previous[genome] = frontTail[low];
+			frontTail[low] = genome;
+			rank[genome] = low;
+		}
+
+		// the fronts are independent of each other, so their crowding distances are found in parallel
+		int position = 0;
+		for (int f = 0; f < nFronts; f++) {
+			frontStart[f] = position;
+			for (int member = frontTail[f]; member != -1; member = previous[member]) {
+				order[position++] = member;
+			}
+		}
+		frontStart[nFronts] = position;
+		ParallelTasks.forRange(executor, workers, nFronts, (from, to, worker) -> {
+			for (int f = from; f < to; f++) {
+				assignCrowding(frontStart[f], frontStart[f + 1], nObjectives);
+			}
+		});
+
+		for (int i = 0; i < n; i++) {
+			double density = 1.0 / (crowding[i] + 2);
+			double score = rank[i] + density;
+
+			store.setStrength(slots[i], 0);
+			store.setRawFitness(slots[i], rank[i]);
+			store.setDensity(slots[i], density);
+			Genome genome = genomes.get(i);
+			genome.setScore(score);
+			genome.setAdjustedScore(score);
+		}
+	}
+
+	/**
+	 * The next archive is the best ranked genomes: whole fronts in order, then the least crowded genomes of the front
+	 * that does not fit.
+	 */
+	@Override
+	public List<Genome> selectArchive(List<Genome> genomes, int size, ObjectiveStore store) {
+		List<Genome> sorted = new ArrayList<Genome>(genomes);
+		Collections.sort(sorted, new MinimizeScoreComp());
+		if (sorted.size() > size) {
+			sorted.subList(size, sorted.size()).clear();
+		}
+		return sorted;
+	}
+
+	@Override
+	public void setExecutor(ExecutorService executor, int threadCount) {
+		this.executor = executor;
+		this.workers = Math.max(1, threadCount);
+	}
+
+	// checks the most recently added members first, as they are the closest to the genome in lexicographic order
+	private boolean isDominatedByFront(int genome, int front) {
+		for (int member = frontTail[front]; member != -1; member = previous[member]) {
+			if (store.dominates(slots[member], slots[genome])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// crowding distance: the sum over the objectives of the normalised distance between the neighbours on either side,
+	// the genomes at either end of the front are infinitely far from their neighbours. the members of the front are
+	// between from and to in order
+	private void assignCrowding(int from, int to, int nObjectives) {
+		for (int i = from; i < to; i++) {
+			crowding[order[i]] = 0;
+		}
+
+		for (int o = 0; o < nObjectives; o++) {
+			for (int i = from; i < to; i++) {
+				keys[order[i]] = store.getOrientedValue(slots[order[i]], o);
+			}
+			IndexSort.sort(order, temp, from, to, keys);
+
+			crowding[order[from]] = Double.POSITIVE_INFINITY;
+			crowding[order[to - 1]] = Double.POSITIVE_INFINITY;
+			double range = keys[order[to - 1]] - keys[order[from]];
+			if (range > 0) {
+				for (int i = from + 1; i < to - 1; i++) {
+					crowding[order[i]] += (keys[order[i + 1]] - keys[order[i - 1]]) / range;
+				}
+			}
+		}
+	}
+
+	// looks up the slots of the genomes and makes room for their working values
+	private void load(List<Genome> genomes, ObjectiveStore store) {
+		this.store = store;
+		slots = store.getSlots(genomes, slots);
+		final int n = genomes.size();
+		if (order.length < n) {
+			order = new int[n];
+			temp = new int[n];
+			keys = new double[n];
+			frontTail = new int[n];
+			previous = new int[n];
+			frontStart = new int[n + 1];
+			rank = new int[n];
+			crowding = new double[n];
+		}
+	}
+}
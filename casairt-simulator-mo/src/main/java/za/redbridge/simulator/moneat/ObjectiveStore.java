@@ -0,0 +1,292 @@
+package za.redbridge.simulator.moneat;
+
+import org.encog.ml.ea.genome.Genome;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The objective scores of every scored genome, stored in contiguous primitive arrays. Each genome is given a slot
+ * when it is first scored, its objective values are kept in one row of a shared array and its strength, raw fitness
+ * and density are kept in columns indexed by the same slot.
+ *
+ * Values are stored multiplied by the sign of their objective (+1 maximised, -1 minimised) so that a larger stored
+ * value is always better and dominance is a single comparison per objective.
+ *
+ * Scores may be added from several threads at once, the values should only be read once scoring has finished.
+ *
+ * Genomes stay in the store until {@link #retain(Collection)} is called with the genomes that are still alive, which
+ * the EA does at the end of every iteration so that the store stays the size of the population and archive.
+ */
+public class ObjectiveStore {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final int nObjectives;
+	private final String[] names;
+	private final double[] sign;
+
+	private Map<Genome, Integer> slots = new HashMap<Genome, Integer>();
+	private int size = 0;
+	private int capacity = INITIAL_CAPACITY;
+	// the most genomes held at once and the number removed by retain
+	private int peakSize = 0;
+	private long evicted = 0;
+
+	private double[] values;
+	private int[] strength;
+	private int[] rawFitness;
+	private double[] density;
+
+	/**
+	 * @param objectives the objectives each genome is scored on, in the order scores are given
+	 */
+	public ObjectiveStore(List<Objective> objectives) {
+		nObjectives = objectives.size();
+		names = new String[nObjectives];
+		sign = new double[nObjectives];
+		for (int o = 0; o < nObjectives; o++) {
+			names[o] = objectives.get(o).getName();
+			sign[o] = objectives.get(o).getMaximise() ? 1.0 : -1.0;
+		}
+
+		values = new double[capacity * nObjectives];
+		strength = new int[capacity];
+		rawFitness = new int[capacity];
+		density = new double[capacity];
+	}
+
+	/**
+	 * Stores the objective scores of a genome, replacing any it already had.
+	 * @param genome the genome
+	 * @param scores a score for each objective
+	 * @return the slot of the genome
+	 */
+	public synchronized int put(Genome genome, List<Double> scores) {
+		if (scores.size() != nObjectives) {
+			throw new RuntimeException("Different number of objectives");
+		}
+
+		Integer slot = slots.get(genome);
+		if (slot == null) {
+			if (size == capacity) {
+				grow();
+			}
+			slot = size++;
+			slots.put(genome, slot);
+			peakSize = Math.max(peakSize, size);
+		}
+
+		// adding zero turns -0.0 into 0.0 so that equal scores also compare as equal when sorted
+		final int row = slot * nObjectives;
+		for (int o = 0; o < nObjectives; o++) {
+			values[row + o] = sign[o] * scores.get(o) + 0.0;
+		}
+		strength[slot] = 0;
+		rawFitness[slot] = 0;
+		density[slot] = 0;
+		return slot;
+	}
+
+	private void grow() {
+		resize(capacity * 2);
+	}
+
+	private void resize(int newCapacity) {
+		capacity = newCapacity;
+		values = Arrays.copyOf(values, capacity * nObjectives);
+		strength = Arrays.copyOf(strength, capacity);
+		rawFitness = Arrays.copyOf(rawFitness, capacity);
+		density = Arrays.copyOf(density, capacity);
+	}
+
+	/**
+	 * Removes every genome that is not in the given collection. The genomes kept move down to the lowest slots in the
+	 * order they were stored, so slots looked up before this are no longer valid. The arrays shrink once they are
+	 * mostly empty.
+	 * @param live the genomes whose scores are still needed
+	 * @return the number of genomes removed
+	 */
+	public synchronized int retain(Collection<Genome> live) {
+		final Map<Genome, Integer> retained = new HashMap<Genome, Integer>();
+		final int[] kept = new int[size];
+		int nKept = 0;
+		for (Genome genome : live) {
+			Integer slot = slots.get(genome);
+			if (slot != null && !retained.containsKey(genome)) {
+				retained.put(genome, slot);
+				kept[nKept++] = slot;
+			}
+		}
+
+		// rows only ever move down, so in slot order none is overwritten before it has been moved
+		Arrays.sort(kept, 0, nKept);
+		final int[] newSlot = new int[size];
+		for (int k = 0; k < nKept; k++) {
+			final int old = kept[k];
+			newSlot[old] = k;
+			System.arraycopy(values, old * nObjectives, values, k * nObjectives, nObjectives);
+			strength[k] = strength[old];
+			rawFitness[k] = rawFitness[old];
+			density[k] = density[old];
+		}
+		for (Map.Entry<Genome, Integer> entry : retained.entrySet()) {
+			entry.setValue(newSlot[entry.getValue()]);
+		}
+
+		final int removed = size - nKept;
+		slots = retained;
+		size = nKept;
+		evicted += removed;
+
+		if (capacity > INITIAL_CAPACITY && size < capacity / 4) {
+			resize(Math.max(INITIAL_CAPACITY, capacity / 2));
+		}
+		return removed;
+	}
+
+	/**
+	 * @return the slot of the genome, or -1 if it has not been scored
+	 */
+	public synchronized int getSlot(Genome genome) {
+		Integer slot = slots.get(genome);
+		return slot != null ? slot : -1;
+	}
+
+	/**
+	 * Looks up the slots of a list of genomes.
+	 * @param genomes the genomes, all of which must have been scored
+	 * @param out filled with the slot of each genome, reallocated if it is too small
+	 * @return the slots
+	 */
+	public synchronized int[] getSlots(List<Genome> genomes, int[] out) {
+		if (out == null || out.length < genomes.size()) {
+			out = new int[genomes.size()];
+		}
+		for (int i = 0; i < genomes.size(); i++) {
+			Integer slot = slots.get(genomes.get(i));
+			if (slot == null) {
+				throw new IllegalStateException("Genome has not been scored: " + genomes.get(i));
+			}
+			out[i] = slot;
+		}
+		return out;
+	}
+
+	/**
+	 * True if genome a is at least as good as genome b for every objective and better for at least one. A score that
+	 * is not a number is never as good as any other score.
+	 * @param a slot of the first genome
+	 * @param b slot of the second genome
+	 */
+	public boolean dominates(int a, int b) {
+		final double[] values = this.values;
+		final int rowA = a * nObjectives;
+		final int rowB = b * nObjectives;
+		boolean better = false;
+		boolean worse = false;
+		for (int o = 0; o < nObjectives; o++) {
+			double x = values[rowA + o];
+			double y = values[rowB + o];
+			better |= x > y;
+			worse |= !(x >= y);
+		}
+		return better && !worse;
+	}
+
+	/**
+	 * @return the euclidean distance between two genomes in objective space
+	 */
+	public double distance(int a, int b) {
+		final double[] values = this.values;
+		final int rowA = a * nObjectives;
+		final int rowB = b * nObjectives;
+		double sum = 0;
+		for (int o = 0; o < nObjectives; o++) {
+			double d = values[rowA + o] - values[rowB + o];
+			sum += d * d;
+		}
+		return Math.sqrt(sum);
+	}
+
+	/**
+	 * @return the score of a genome for an objective, as it was given
+	 */
+	public double getValue(int slot, int objective) {
+		return sign[objective] * values[slot * nObjectives + objective] + 0.0;
+	}
+
+	/**
+	 * @return the score of a genome for an objective multiplied by the sign of the objective, larger is better
+	 */
+	public double getOrientedValue(int slot, int objective) {
+		return values[slot * nObjectives + objective];
+	}
+
+	public int getNumObjectives() {
+		return nObjectives;
+	}
+
+	public String getObjectiveName(int objective) {
+		return names[objective];
+	}
+
+	public boolean isMaximised(int objective) {
+		return sign[objective] > 0;
+	}
+
+	/**
+	 * @return the number of genomes currently stored
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of genomes the arrays have room for before they grow
+	 */
+	public synchronized int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the most genomes that have been stored at once
+	 */
+	public synchronized int getPeakSize() {
+		return peakSize;
+	}
+
+	/**
+	 * @return the total number of genomes removed because they were no longer alive
+	 */
+	public synchronized long getEvicted() {
+		return evicted;
+	}
+
+	public int getStrength(int slot) {
+		return strength[slot];
+	}
+
+	public void setStrength(int slot, int value) {
+		strength[slot] = value;
+	}
+
+	public int getRawFitness(int slot) {
+		return rawFitness[slot];
+	}
+
+	public void setRawFitness(int slot, int value) {
+		rawFitness[slot] = value;
+	}
+
+	public double getDensity(int slot) {
+		return density[slot];
+	}
+
+	public void setDensity(int slot, double value) {
+		density[slot] = value;
+	}
+}
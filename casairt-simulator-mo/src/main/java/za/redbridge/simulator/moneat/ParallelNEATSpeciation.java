@@ -0,0 +1,117 @@
+package za.redbridge.simulator.moneat;
+
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.species.Species;
+import org.encog.neural.neat.training.species.OriginalNEATSpeciation;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * NEAT speciation that works out the compatibility of the genomes with the existing species in parallel.
+ *
+ * Encog places the genomes one at a time, each in the first species whose leader it is compatible with. When the
+ * first compatibility score is asked for, the genomes are compared with the leaders of the species that exist at that
+ * point across the EA's worker pool, in the same order and stopping at the same leader as Encog would. Encog then
+ * runs unchanged and is handed those scores. Only comparisons with species created during the pass, or with leaders
+ * replaced during it, are still worked out as Encog asks for them. The species are the same as with
+ * {@link OriginalNEATSpeciation}.
+ */
+public class ParallelNEATSpeciation extends OriginalNEATSpeciation {
+
+	private static final long serialVersionUID = 1L;
+
+	private transient ExecutorService executor;
+	private transient int workers = 1;
+
+	// the genomes being speciated, until their compatibility scores have been worked out
+	private transient List<Genome> pending;
+
+	private transient Map<Genome, Integer> genomeIndex;
+	private transient Map<Genome, Integer> leaderIndex;
+	private transient int nLeaders;
+	// compatibility of each genome with the leaders, up to the first leader it is compatible with
+	private transient double[] compatibility;
+	private transient int[] computed;
+
+	/**
+	 * @param executor the worker pool to compare genomes on
+	 * @param threadCount the number of threads in the pool
+	 */
+	public void setExecutor(ExecutorService executor, int threadCount) {
+		this.executor = executor;
+		this.workers = Math.max(1, threadCount);
+	}
+
+	@Override
+	public void performSpeciation(List<Genome> genomeList) {
+		pending = genomeList;
+		try {
+			super.performSpeciation(genomeList);
+		} finally {
+			pending = null;
+			genomeIndex = null;
+			leaderIndex = null;
+			compatibility = null;
+			computed = null;
+		}
+	}
+
+	@Override
+	public double getCompatibilityScore(Genome genome, Genome leader) {
+		if (pending != null) {
+			compareWithLeaders(pending);
+			pending = null;
+		}
+
+		if (genomeIndex != null) {
+			Integer g = genomeIndex.get(genome);
+			Integer s = leaderIndex.get(leader);
+			if (g != null && s != null && s < computed[g]) {
+				return compatibility[g * nLeaders + s];
+			}
+		}
+		return super.getCompatibilityScore(genome, leader);
+	}
+
+	// compares every genome with the leaders of the current species in order until it finds one it is compatible with
+	private void compareWithLeaders(final List<Genome> genomes) {
+		final List<Genome> leaders = new ArrayList<Genome>();
+		for (Species species : getOwner().getPopulation().getSpecies()) {
+			leaders.add(species.getLeader());
+		}
+
+		final int n = genomes.size();
+		final double threshold = getCompatibilityThreshold();
+		nLeaders = leaders.size();
+		compatibility = new double[n * nLeaders];
+		computed = new int[n];
+		genomeIndex = new IdentityHashMap<Genome, Integer>(2 * n);
+		for (int i = 0; i < n; i++) {
+			genomeIndex.put(genomes.get(i), i);
+		}
+		leaderIndex = new IdentityHashMap<Genome, Integer>(2 * nLeaders);
+		for (int s = 0; s < nLeaders; s++) {
+			leaderIndex.put(leaders.get(s), s);
+		}
+
+		ParallelTasks.forRange(executor, workers, n, (from, to, worker) -> {
+			for (int i = from; i < to; i++) {
+				Genome genome = genomes.get(i);
+				int s = 0;
+				while (s < nLeaders) {
+					double score = super.getCompatibilityScore(genome, leaders.get(s));
+					compatibility[i * nLeaders + s] = score;
+					s++;
+					if (score <= threshold) {
+						break;
+					}
+				}
+				computed[i] = s;
+			}
+		});
+	}
+}
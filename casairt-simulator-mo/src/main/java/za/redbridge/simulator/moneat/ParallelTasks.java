@@ -0,0 +1,78 @@
+package za.redbridge.simulator.moneat;
+
+import org.encog.ml.genetic.GeneticError;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits a loop over a range of indices between the threads of the EA's worker pool.
+ */
+final class ParallelTasks {
+
+	// chunks handed out per worker, more than one so that uneven chunks balance out
+	private static final int CHUNKS_PER_WORKER = 8;
+
+	/**
+	 * The body of a loop over part of a range.
+	 */
+	interface RangeTask {
+		/**
+		 * @param from the first index to process
+		 * @param to one past the last index to process
+		 * @param worker which worker is running, between 0 and the number of workers, so that each worker can use
+		 *               its own working space
+		 */
+		void run(int from, int to, int worker);
+	}
+
+	private ParallelTasks() {
+	}
+
+	/**
+	 * Runs a task over the indices 0 to n. Each worker takes chunks of the range until none are left. The task is run
+	 * on the calling thread when there is no pool or only one worker.
+	 * @param executor the worker pool, may be null
+	 * @param workers the number of workers to use
+	 * @param n the size of the range
+	 * @param task the loop body
+	 */
+	static void forRange(ExecutorService executor, int workers, final int n, final RangeTask task) {
+		if (executor == null || executor.isShutdown() || workers <= 1 || n < 2) {
+			task.run(0, n, 0);
+			return;
+		}
+
+		final int chunk = Math.max(1, n / (workers * CHUNKS_PER_WORKER));
+		final AtomicInteger next = new AtomicInteger();
+		final List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int w = 0; w < workers; w++) {
+			final int worker = w;
+			tasks.add(new Callable<Object>() {
+				@Override
+				public Object call() {
+					int from;
+					while ((from = next.getAndAdd(chunk)) < n) {
+						task.run(from, Math.min(n, from + chunk), worker);
+					}
+					return null;
+				}
+			});
+		}
+
+		try {
+			for (Future<Object> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new GeneticError(e);
+		} catch (ExecutionException e) {
+			throw new GeneticError(e.getCause());
+		}
+	}
+}
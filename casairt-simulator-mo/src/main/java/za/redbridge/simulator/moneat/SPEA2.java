@@ -0,0 +1,437 @@
+package za.redbridge.simulator.moneat;
+
+import org.encog.ml.ea.genome.Genome;
+import org.encog.ml.ea.sort.MinimizeScoreComp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * SPEA2 fitness assignment and archive truncation (Zitzler, Laumanns and Thiele, 2001), reading the objective scores of
+ * the genomes from an {@link ObjectiveStore}.
+ */
+public class SPEA2 implements MultiObjectiveSelector {
+
+	/**
+	 * Value for k-th nearest neighbour calculations
+	 */
+	private final int k;
+
+	// the neighbour lists of an archive being truncated hold at most this many entries, 64 MB
+	private static final long MAX_NEIGHBOUR_ENTRIES = 1L << 24;
+	private final long maxNeighbourEntries;
+
+	// the store and slots of the genomes being processed
+	private ObjectiveStore store;
+	private int[] slots = new int[0];
+
+	private int[] strength = new int[0];
+	private int[] rawFitness = new int[0];
+	// counts and distances from one genome to every other genome, one row per worker
+	private int[][] counts = new int[1][0];
+	private double[][] rows = new double[1][0];
+
+	private ExecutorService executor;
+	private int workers = 1;
+
+	public SPEA2(int k) {
+		this(k, MAX_NEIGHBOUR_ENTRIES);
+	}
+
+	/**
+	 * @param k value for k-th nearest neighbour calculations
+	 * @param maxNeighbourEntries the most neighbour list entries kept while truncating the archive
+	 */
+	SPEA2(int k, long maxNeighbourEntries) {
+		this.k = k;
+		this.maxNeighbourEntries = maxNeighbourEntries;
+	}
+
+	/**
+	 * Sets the score and adjusted score of every genome to its SPEA2 fitness: the sum of the strengths of the genomes
+	 * dominating it, plus a density term from the distance to its k-th nearest neighbour in objective space. Lower is
+	 * better, nondominated genomes score below 1.
+	 * @param genomes the population and archive together
+	 * @param store the objective scores of the genomes, strength, raw fitness and density are updated
+	 */
+	@Override
+	public void assignFitness(List<Genome> genomes, ObjectiveStore store) {
+		load(genomes, store);
+		final int n = genomes.size();
+
+		// strength: the number of genomes each genome dominates. each pair is compared once, so a worker may count for
+		// either genome and each worker counts into its own array
+		clearCounts(n);
+		ParallelTasks.forRange(executor, workers, n, (from, to, worker) -> {
+			final int[] count = counts[worker];
+			for (int i = from; i < to; i++) {
+				for (int j = i + 1; j < n; j++) {
+					if (dominates(i, j)) {
+						count[i]++;
+					}
+					else if (dominates(j, i)) {
+						count[j]++;
+					}
+				}
+			}
+		});
+		sumCounts(n, strength);
+
+		// raw fitness: the total strength of the genomes dominating each genome
+		clearCounts(n);
+		ParallelTasks.forRange(executor, workers, n, (from, to, worker) -> {
+			final int[] count = counts[worker];
+			for (int i = from; i < to; i++) {
+				for (int j = i + 1; j < n; j++) {
+					if (dominates(i, j)) {
+						count[j] += strength[i];
+					}
+					else if (dominates(j, i)) {
+						count[i] += strength[j];
+					}
+				}
+			}
+		});
+		sumCounts(n, rawFitness);
+
+		// density from the k-th nearest neighbour, only the k-th distance is needed so the row is not fully sorted
+		final int neighbours = n - 1;
+		final int kth = Math.max(0, Math.min(k, neighbours - 1));
+		ParallelTasks.forRange(executor, workers, n, (from, to, worker) -> {
+			final double[] row = rows[worker];
+			for (int i = from; i < to; i++) {
+				int m = 0;
+				for (int j = 0; j < n; j++) {
+					if (j != i) {
+						row[m++] = distance(i, j);
+					}
+				}
+				double distance = neighbours > 0 ? select(row, neighbours, kth) : 0.0;
+				double density = 1.0 / (distance + 2);
+				double score = rawFitness[i] + density;
+
+				store.setStrength(slots[i], strength[i]);
+				store.setRawFitness(slots[i], rawFitness[i]);
+				store.setDensity(slots[i], density);
+				Genome genome = genomes.get(i);
+				genome.setScore(score);
+				genome.setAdjustedScore(score);
+			}
+		});
+	}
+
+	@Override
+	public void setExecutor(ExecutorService executor, int threadCount) {
+		this.executor = executor;
+		this.workers = Math.max(1, threadCount);
+	}
+
+	/**
+	 * The next archive is every nondominated genome. If there are too few the best of the dominated genomes are added,
+	 * if there are too many the archive is truncated.
+	 */
+	@Override
+	public List<Genome> selectArchive(List<Genome> genomes, int size, ObjectiveStore store) {
+		List<Genome> archive = new ArrayList<Genome>();
+		for (Genome genome : genomes) {
+			if (genome.getScore() < 1) {
+				archive.add(genome);
+			}
+		}
+
+		if (archive.size() < size) {
+			List<Genome> sorted = new ArrayList<Genome>(genomes);
+			Collections.sort(sorted, new MinimizeScoreComp());
+
+			Set<Genome> inArchive = new HashSet<Genome>(archive);
+			for (int j = 0; j < sorted.size() && archive.size() < size; j++) {
+				if (inArchive.add(sorted.get(j))) {
+					archive.add(sorted.get(j));
+				}
+			}
+		}
+		else if (archive.size() > size) {
+			truncate(archive, size, store);
+		}
+		return archive;
+	}
+
+	/**
+	 * Removes genomes from the archive until it has the given size. Each time the genome removed is the one closest to
+	 * its neighbours: the one with the smallest distance to its nearest neighbour, ties broken by the distance to the
+	 * second nearest neighbour and so on. The remaining genomes keep their order.
+	 * @param archive the archive to truncate
+	 * @param size the size of the archive once truncated
+	 * @param store the objective scores of the genomes in the archive
+	 */
+	public void truncate(List<Genome> archive, int size, ObjectiveStore store) {
+		final int n = archive.size();
+		if (n <= size) {
+			return;
+		}
+		load(archive, store);
+
+		// the nearest neighbours of each genome sorted by distance, built once. genomes that have been removed are
+		// skipped when the lists are read rather than taken out of them. a full n by n-1 table grows with the square
+		// of the archive, so past the entry limit each list only keeps the nearest neighbours that fit
+		final int stride = n - 1;
+		final int depth = (int) Math.max(1, Math.min(stride, maxNeighbourEntries / n));
+		final int[] neighbours = new int[n * depth];
+		final int[] length = new int[n];
+		final int[][] sorted = new int[workers][stride];
+		final int[][] temp = new int[workers][stride];
+		ParallelTasks.forRange(executor, workers, n, (from, to, worker) -> {
+			for (int i = from; i < to; i++) {
+				length[i] = sortNeighbours(i, n, null, rows[worker], sorted[worker], temp[worker], neighbours, depth);
+			}
+		});
+
+		final int[] head = new int[n];
+		for (int i = 0; i < n; i++) {
+			head[i] = i * depth;
+		}
+		final boolean[] removed = new boolean[n];
+		final NeighbourLists lists = new NeighbourLists(n, depth, neighbours, length, head, removed, sorted[0],
+				temp[0]);
+
+		for (int remaining = n; remaining > size; remaining--) {
+			int victim = -1;
+			for (int i = 0; i < n; i++) {
+				if (!removed[i] && (victim == -1 || lists.compare(i, victim) < 0)) {
+					victim = i;
+				}
+			}
+			lists.remove(victim);
+		}
+
+		int kept = 0;
+		for (int i = 0; i < n; i++) {
+			if (!removed[i]) {
+				archive.set(kept++, archive.get(i));
+			}
+		}
+		archive.subList(kept, n).clear();
+	}
+
+	/**
+	 * Sorts the genomes that have not been removed by their distance to a genome and keeps the nearest in its
+	 * neighbour list.
+	 * @return the number of genomes sorted, more than the list holds if it was cut short
+	 */
+	private int sortNeighbours(int i, int n, boolean[] removed, double[] row, int[] sorted, int[] temp,
+			int[] neighbours, int depth) {
+		int m = 0;
+		for (int j = 0; j < n; j++) {
+			if (j != i && (removed == null || !removed[j])) {
+				row[j] = distance(i, j);
+				sorted[m++] = j;
+			}
+		}
+		IndexSort.sort(sorted, temp, 0, m, row);
+		System.arraycopy(sorted, 0, neighbours, i * depth, Math.min(m, depth));
+		return m;
+	}
+
+	/**
+	 * The neighbour lists of the genomes in an archive being truncated. Lists that were cut short are sorted again
+	 * over the remaining genomes once every neighbour they hold has been removed, and two genomes that are still tied
+	 * at the end of such a list are compared over all their remaining neighbours.
+	 */
+	private final class NeighbourLists {
+		private final int n;
+		private final int depth;
+		private final int[] neighbours;
+		private final int[] length;
+		private final int[] head;
+		private final boolean[] removed;
+		private final int[] sorted;
+		private final int[] temp;
+		private final double[] row;
+		private double[] fullA = new double[0];
+		private double[] fullB = new double[0];
+		// the distances of the genome compared against are kept until the next removal, it is usually the one
+		// that is about to be removed
+		private int fullBGenome = -1;
+		private int remaining;
+
+		NeighbourLists(int n, int depth, int[] neighbours, int[] length, int[] head, boolean[] removed, int[] sorted,
+				int[] temp) {
+			this.n = n;
+			this.depth = depth;
+			this.neighbours = neighbours;
+			this.length = length;
+			this.head = head;
+			this.removed = removed;
+			this.sorted = sorted;
+			this.temp = temp;
+			this.row = rows[0];
+			this.remaining = n;
+		}
+
+		void remove(int i) {
+			removed[i] = true;
+			remaining--;
+			fullBGenome = -1;
+		}
+
+		// compares the sorted distances of two genomes to their remaining neighbours lexicographically
+		int compare(int a, int b) {
+			skipRemoved(a);
+			skipRemoved(b);
+			final int endA = end(a);
+			final int endB = end(b);
+
+			int p = head[a];
+			int q = head[b];
+			while (true) {
+				while (p < endA && removed[neighbours[p]]) {
+					p++;
+				}
+				while (q < endB && removed[neighbours[q]]) {
+					q++;
+				}
+				if (p == endA || q == endB) {
+					if ((p == endA && isCut(a)) || (q == endB && isCut(b))) {
+						return compareAll(a, b);
+					}
+					return 0;
+				}
+				int c = Double.compare(distance(a, neighbours[p]), distance(b, neighbours[q]));
+				if (c != 0) {
+					return c;
+				}
+				p++;
+				q++;
+			}
+		}
+
+		// moves the head of a list past removed genomes, sorting a cut list again once it runs out
+		private void skipRemoved(int i) {
+			int end = end(i);
+			while (head[i] < end && removed[neighbours[head[i]]]) {
+				head[i]++;
+			}
+			if (head[i] == end && isCut(i)) {
+				length[i] = sortNeighbours(i, n, removed, row, sorted, temp, neighbours, depth);
+				head[i] = i * depth;
+			}
+		}
+
+		private int end(int i) {
+			return i * depth + Math.min(length[i], depth);
+		}
+
+		private boolean isCut(int i) {
+			return length[i] > depth;
+		}
+
+		private int compareAll(int a, int b) {
+			fullA = remainingDistances(a, fullA);
+			if (fullBGenome != b) {
+				fullB = remainingDistances(b, fullB);
+				fullBGenome = b;
+			}
+			// each genome is left out of its own distances
+			for (int j = 0; j < remaining - 1; j++) {
+				int c = Double.compare(fullA[j], fullB[j]);
+				if (c != 0) {
+					return c;
+				}
+			}
+			return 0;
+		}
+
+		private double[] remainingDistances(int i, double[] distances) {
+			if (distances.length < n) {
+				distances = new double[n];
+			}
+			int m = 0;
+			for (int j = 0; j < n; j++) {
+				if (j != i && !removed[j]) {
+					distances[m++] = distance(i, j);
+				}
+			}
+			Arrays.sort(distances, 0, m);
+			return distances;
+		}
+	}
+
+	// looks up the slots of the genomes and makes room for their working values
+	private void load(List<Genome> genomes, ObjectiveStore store) {
+		this.store = store;
+		slots = store.getSlots(genomes, slots);
+		if (strength.length < genomes.size()) {
+			strength = new int[genomes.size()];
+			rawFitness = new int[genomes.size()];
+		}
+		if (rows.length < workers || rows[0].length < genomes.size()) {
+			counts = new int[workers][Math.max(genomes.size(), rows[0].length)];
+			rows = new double[workers][Math.max(genomes.size(), rows[0].length)];
+		}
+	}
+
+	private void clearCounts(int n) {
+		for (int[] count : counts) {
+			Arrays.fill(count, 0, n, 0);
+		}
+	}
+
+	// adds up the counts of the workers
+	private void sumCounts(int n, int[] total) {
+		System.arraycopy(counts[0], 0, total, 0, n);
+		for (int w = 1; w < counts.length; w++) {
+			for (int i = 0; i < n; i++) {
+				total[i] += counts[w][i];
+			}
+		}
+	}
+
+	private boolean dominates(int a, int b) {
+		return store.dominates(slots[a], slots[b]);
+	}
+
+	private double distance(int a, int b) {
+		return store.distance(slots[a], slots[b]);
+	}
+
+	// the k-th smallest of the first n values, partially reordering them
+	private static double select(double[] values, int n, int k) {
+		int left = 0;
+		int right = n - 1;
+		while (left < right) {
+			double pivot = values[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (Double.compare(values[i], pivot) < 0) {
+					i++;
+				}
+				while (Double.compare(values[j], pivot) > 0) {
+					j--;
+				}
+				if (i <= j) {
+					double t = values[i];
+					values[i] = values[j];
+					values[j] = t;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			}
+			else if (k >= i) {
+				left = i;
+			}
+			else {
+				return values[k];
+			}
+		}
+		return values[k];
+	}
+}
@@ -0,0 +1,221 @@
+package za.redbridge.simulator.neat;
+
+import org.encog.engine.network.activation.ActivationCompetitive;
+import org.encog.engine.network.activation.ActivationFunction;
+import org.encog.engine.network.activation.ActivationSoftMax;
+import org.encog.neural.neat.NEATLink;
+import org.encog.neural.neat.NEATNetwork;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A decoded NEAT network flattened into primitive arrays so that it can be evaluated without
+ * allocating. Gives exactly the same outputs as {@link NEATNetwork#compute}: links are applied in
+ * the same order, the network is run for the same number of activation cycles (so recurrent links
+ * behave the same) and the same activation functions are applied.
+ *
+ * Not thread safe, each instance holds the activations of the last evaluation.
+ */
+public class CompiledNEATNetwork {
+
+    private final int inputCount;
+    private final int outputCount;
+    private final int outputIndex;
+    private final int activationCycles;
+
+    // links in evaluation order
+    private final int[] linkFrom;
+    private final int[] linkTo;
+    private final double[] linkWeight;
+
+    // runs of consecutive neurons from the output index onwards that share an activation function
+    private final int[] runStart;
+    private final int[] runSize;
+    private final ActivationFunction[] runFunction;
+    private final boolean elementWise;
+
+    private final int neuronCount;
+    private final double[] preActivation;
+    private final double[] postActivation;
+    private final double[] output;
+
+    // activations of a batch, stored neuron by neuron so that each link is applied to the whole
+    // batch in one contiguous loop. grown when a larger batch is evaluated
+    private int batchCapacity = 0;
+    private double[] batchPreActivation;
+    private double[] batchPostActivation;
+    private double[] batchOutput;
+
+    public CompiledNEATNetwork(NEATNetwork network) {
+        inputCount = network.getInputCount();
+        outputCount = network.getOutputCount();
+        outputIndex = network.getOutputIndex();
+        activationCycles = network.getActivationCycles();
+
+        NEATLink[] links = network.getLinks();
+        linkFrom = new int[links.length];
+        linkTo = new int[links.length];
+        linkWeight = new double[links.length];
+        for (int i = 0; i < links.length; i++) {
+            linkFrom[i] = links[i].getFromNeuron();
+            linkTo[i] = links[i].getToNeuron();
+            linkWeight[i] = links[i].getWeight();
+        }
+
+        neuronCount = network.getPreActivation().length;
+        ActivationFunction[] functions = network.getActivationFunctions();
+        boolean allElementWise = true;
+        List<Integer> starts = new ArrayList<>();
+        List<ActivationFunction> runFunctions = new ArrayList<>();
+        for (int j = outputIndex; j < neuronCount; j++) {
+            // functions that look at their whole range have to be applied one neuron at a time
+            if (j == outputIndex || functions[j] != functions[j - 1] || !isElementWise(functions[j])) {
+                starts.add(j);
+                runFunctions.add(functions[j]);
+            }
+            allElementWise &= isElementWise(functions[j]);
+        }
+        elementWise = allElementWise;
+        runStart = new int[starts.size()];
+        runSize = new int[starts.size()];
+        runFunction = runFunctions.toArray(new ActivationFunction[runFunctions.size()]);
+        for (int r = 0; r < runStart.length; r++) {
+            runStart[r] = starts.get(r);
+            int end = r + 1 < runStart.length ? starts.get(r + 1) : neuronCount;
+            runSize[r] = end - runStart[r];
+        }
+
+        preActivation = new double[neuronCount];
+        postActivation = new double[neuronCount];
+        output = new double[outputCount];
+    }
+
+    /**
+     * Evaluate the network.
+     * @param input the network inputs, at least {@link #getInputCount()} values
+     * @return the network outputs. The same array is reused by every call, copy it to keep it.
+     */
+    public double[] compute(double[] input) {
+        return compute(input, 0);
+    }
+
+    private double[] compute(double[] input, int inputOffset) {
+        final double[] pre = preActivation;
+        final double[] post = postActivation;
+
+        Arrays.fill(pre, 0.0);
+        Arrays.fill(post, 0.0);
+        // bias neuron
+        post[0] = 1.0;
+        System.arraycopy(input, inputOffset, post, 1, inputCount);
+
+        for (int cycle = 0; cycle < activationCycles; cycle++) {
+            for (int j = 0; j < linkFrom.length; j++) {
+                pre[linkTo[j]] += post[linkFrom[j]] * linkWeight[j];
+            }
+
+            for (int r = 0; r < runStart.length; r++) {
+                int start = runStart[r];
+                int end = start + runSize[r];
+                for (int j = start; j < end; j++) {
+                    post[j] = pre[j];
+                    pre[j] = 0.0;
+                }
+                runFunction[r].activationFunction(post, start, runSize[r]);
+            }
+        }
+
+        System.arraycopy(post, outputIndex, output, 0, outputCount);
+        return output;
+    }
+
+    /**
+     * Evaluate the network for a batch of inputs. Each output is identical to the one
+     * {@link #compute(double[])} gives for the same input.
+     * @param inputs the inputs, one row per evaluation starting every inputStride values
+     * @param inputStride the distance between rows, at least {@link #getInputCount()}
+     * @param batchSize the number of rows
+     * @return the outputs, {@link #getOutputCount()} values per row. The same array is reused by
+     * every call.
+     */
+    public double[] computeBatch(double[] inputs, int inputStride, int batchSize) {
+        ensureBatchCapacity(batchSize);
+        final double[] out = batchOutput;
+
+        // functions that look at several neurons need each row's activations to be contiguous
+        if (!elementWise) {
+            for (int b = 0; b < batchSize; b++) {
+                System.arraycopy(compute(inputs, b * inputStride), 0, out, b * outputCount, outputCount);
+            }
+            return out;
+        }
+
+        final double[] pre = batchPreActivation;
+        final double[] post = batchPostActivation;
+        final int n = batchSize;
+
+        Arrays.fill(pre, 0, neuronCount * n, 0.0);
+        Arrays.fill(post, 0, neuronCount * n, 0.0);
+        // bias neuron
+        Arrays.fill(post, 0, n, 1.0);
+        for (int i = 0; i < inputCount; i++) {
+            int neuron = (i + 1) * n;
+            for (int b = 0; b < n; b++) {
+                post[neuron + b] = inputs[b * inputStride + i];
+            }
+        }
+
+        for (int cycle = 0; cycle < activationCycles; cycle++) {
+            for (int j = 0; j < linkFrom.length; j++) {
+                final int from = linkFrom[j] * n;
+                final int to = linkTo[j] * n;
+                final double weight = linkWeight[j];
+                for (int b = 0; b < n; b++) {
+                    pre[to + b] += post[from + b] * weight;
+                }
+            }
+
+            for (int r = 0; r < runStart.length; r++) {
+                int start = runStart[r] * n;
+                int end = start + runSize[r] * n;
+                for (int j = start; j < end; j++) {
+                    post[j] = pre[j];
+                    pre[j] = 0.0;
+                }
+                runFunction[r].activationFunction(post, start, runSize[r] * n);
+            }
+        }
+
+        for (int k = 0; k < outputCount; k++) {
+            int neuron = (outputIndex + k) * n;
+            for (int b = 0; b < n; b++) {
+                out[b * outputCount + k] = post[neuron + b];
+            }
+        }
+        return out;
+    }
+
+    private void ensureBatchCapacity(int batchSize) {
+        if (batchSize <= batchCapacity) {
+            return;
+        }
+        batchCapacity = batchSize;
+        batchPreActivation = new double[neuronCount * batchSize];
+        batchPostActivation = new double[neuronCount * batchSize];
+        batchOutput = new double[outputCount * batchSize];
+    }
+
+    private static boolean isElementWise(ActivationFunction function) {
+        return !(function instanceof ActivationSoftMax || function instanceof ActivationCompetitive);
+    }
+
+    public int getInputCount() {
+        return inputCount;
+    }
+
+    public int getOutputCount() {
+        return outputCount;
+    }
+}
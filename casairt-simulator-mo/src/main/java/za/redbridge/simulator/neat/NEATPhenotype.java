@@ -1,36 +1,36 @@
 package za.redbridge.simulator.neat;
 
-import org.encog.ml.data.MLData;
-import org.encog.ml.data.basic.BasicMLData;
 import org.encog.neural.neat.NEATNetwork;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import sim.util.Double2D;
 import za.redbridge.simulator.phenotype.Phenotype;
+import za.redbridge.simulator.phenotype.ShareablePhenotype;
 import za.redbridge.simulator.Morphology;
 import za.redbridge.simulator.sensor.AgentSensor;
 
 /**
  * NEAT genome phenotype. Inputs sensor reading values to the ANN and returns the output
  */
-public class NEATPhenotype implements Phenotype{
+public class NEATPhenotype implements ShareablePhenotype {
 
-    private final MLData input;
+    private final double[] input;
     // ANN
-    private final NEATNetwork network;
+    private NEATNetwork network;
+    private CompiledNEATNetwork compiledNetwork;
     private List<AgentSensor> sensors;
     private Morphology morphology;
 
     public NEATPhenotype(Morphology morphology, NEATNetwork network){
         this.morphology = morphology;
-        this.network = network;
-        int nSensor = morphology.getTotalReadingSize();
+        setNetwork(network);
         sensors = new ArrayList<AgentSensor>();
         for(AgentSensor sensor : morphology.getSensorList()){
             sensors.add(sensor);
         }
-        this.input = new BasicMLData(nSensor);
+        // the network reads the morphology's input buffer directly
+        this.input = morphology.getInputs();
     }
 
     @Override
@@ -45,26 +45,83 @@ public class NEATPhenotype implements Phenotype{
      */
     @Override
     public Double2D step(List<List<Double>> readings){
-        final MLData input = this.input;
+        final double[] input = this.input;
 
-        List<Double> temp = new ArrayList<Double>();
-        for(int i=0;i<readings.size();i++){
-            for(int j=0;j<readings.get(i).size();j++){
-                temp.add(readings.get(i).get(j));
+        // readings from this phenotype's sensors are already in the input buffer
+        if (!isSensorReadings(readings)) {
+            int k = 0;
+            for(int i=0;i<readings.size() && k<input.length;i++){
+                List<Double> reading = readings.get(i);
+                for(int j=0;j<reading.size() && k<input.length;j++){
+                    input[k++] = reading.get(j);
+                }
             }
         }
 
-        for(int i=0;i<input.size();i++){
-            input.setData(i, temp.get(i));
-        }
-        MLData output = network.compute(input);
-        Double2D result = new Double2D(output.getData(0) * 2.0 - 1.0, output.getData(1) * 2.0 - 1.0);
+        double[] output = compiledNetwork.compute(input);
+        Double2D result = new Double2D(output[0] * 2.0 - 1.0, output[1] * 2.0 - 1.0);
         return result;
     }
 
+    /** Phenotypes driven by the same decoded network share a controller. */
+    @Override
+    public Object getSharedController() {
+        return network;
+    }
+
+    @Override
+    public double[] getInputs() {
+        return input;
+    }
+
+    @Override
+    public void stepBatch(double[] inputs, int batchSize, double[] wheelDrives) {
+        final int outputCount = compiledNetwork.getOutputCount();
+        double[] output = compiledNetwork.computeBatch(inputs, input.length, batchSize);
+        for (int b = 0; b < batchSize; b++) {
+            wheelDrives[2 * b] = output[b * outputCount] * 2.0 - 1.0;
+            wheelDrives[2 * b + 1] = output[b * outputCount + 1] * 2.0 - 1.0;
+        }
+    }
+
+    private boolean isSensorReadings(List<List<Double>> readings) {
+        if (readings.size() != sensors.size()) {
+            return false;
+        }
+        for (int i = 0; i < readings.size(); i++) {
+            if (readings.get(i) != sensors.get(i).getPreviousReadings()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Swaps the network driving this phenotype, allowing robots to be reused for another controller
+     * @param network the new ANN
+     */
+    public void setNetwork(NEATNetwork network) {
+        setNetwork(network, network != null ? new CompiledNEATNetwork(network) : null);
+    }
+
+    /**
+     * Swaps the network driving this phenotype for one that has already been compiled. The compiled
+     * network may be shared by every phenotype in a simulation, as they are stepped one at a time
+     * on the same thread.
+     * @param network the new ANN
+     * @param compiledNetwork the same ANN compiled
+     */
+    public void setNetwork(NEATNetwork network, CompiledNEATNetwork compiledNetwork) {
+        this.network = network;
+        this.compiledNetwork = compiledNetwork;
+    }
+
+    // clones drive robots in the same simulation, so they share the compiled network
     @Override
     public Phenotype clone(){
-        return new NEATPhenotype(this.morphology.clone(), network);
+        NEATPhenotype clone = new NEATPhenotype(this.morphology.clone(), null);
+        clone.setNetwork(network, compiledNetwork);
+        return clone;
     }
 
     @Override
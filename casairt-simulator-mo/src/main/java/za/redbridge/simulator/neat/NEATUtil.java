@@ -19,6 +19,7 @@ import org.encog.neural.neat.training.species.OriginalNEATSpeciation;
 import org.encog.neural.neat.NEATPopulation;
 import za.redbridge.simulator.moneat.MultiObjectivePopulation;
 import za.redbridge.simulator.moneat.MultiObjectiveTrainEA;
+import za.redbridge.simulator.moneat.ParallelNEATSpeciation;
 import za.redbridge.simulator.ScoreCalculator;
 
 public final class NEATUtil {
@@ -90,7 +91,7 @@ public final class NEATUtil {
     public static MultiObjectiveTrainEA constructMultiObjectiveTrainer(MultiObjectivePopulation population, MultiObjectivePopulation archive,
             ScoreCalculator calculateScore, int archiveSize,double addNode, double addLink, double removeLink, double crossover){
         MultiObjectiveTrainEA result = new MultiObjectiveTrainEA(population, archive, calculateScore, archiveSize);
-        result.setSpeciation(new OriginalNEATSpeciation());
+        result.setSpeciation(new ParallelNEATSpeciation());
 
         // put this in a config file to change between truncation and tournament selection
         result.setSelection(new TruncationSelection(result, 0.3));
@@ -100,6 +100,9 @@ public class DetectionPoint implements Steppable{
     @Override
     public void step(SimState simState) {
         Simulation s = (Simulation) simState;
+        if (s.isHeadless()) {
+            return;
+        }
         portrayal.setTransform(body.getTransform());
         Vec2[] relPos = getRelativePositions();
 
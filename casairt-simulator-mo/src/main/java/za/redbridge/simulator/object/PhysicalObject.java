@@ -21,6 +21,10 @@ public class PhysicalObject implements Steppable {
     private final Portrayal portrayal;
     private final Body body;
 
+    // whether anything is drawing this object, see setDrawn
+    private boolean drawn = false;
+    private boolean drawablesAttached = false;
+
     public PhysicalObject(Portrayal portrayal, Body body) {
         if (portrayal == null || body == null) {
             throw new NullPointerException("Portrayal and body must not be null");
@@ -31,15 +35,12 @@ public class PhysicalObject implements Steppable {
 
         // Make this body trackable
         this.body.setUserData(this);
-
-        // Make sure we're drawn in the right place
-        this.portrayal.setTransform(this.body.getTransform());
     }
 
     @Override
     public void step(SimState simState) {
-        // Nothing to update if we're static or sleeping
-        if (body.getType() == BodyType.STATIC || !body.isAwake()) {
+        // Nothing to update if nothing is drawn, or we're static or sleeping
+        if (!drawn || body.getType() == BodyType.STATIC || !body.isAwake()) {
             return;
         }
 
@@ -47,9 +48,54 @@ public class PhysicalObject implements Steppable {
         portrayal.setTransform(body.getTransform());
 
         // These lines register the object's position to the model so that the MASON portrayals move with the simulator objects
-        float objX = Vec2.dot(this.body.getPosition(), new Vec2(1.0f, 0.0f));
-        float objY = (float)s.getEnvironment().getHeight() - Vec2.dot(this.body.getPosition(), new Vec2(0.0f, 1.0f));
-        s.getEnvironment().setObjectLocation(this, new Double2D(objX, objY));
+        Vec2 position = body.getPosition();
+        float objY = (float)s.getEnvironment().getHeight() - position.y;
+        s.getEnvironment().setObjectLocation(this, new Double2D(position.x, objY));
+    }
+
+    /**
+     * Sets whether anything is drawing this object. While nothing is, the portrayal and the object's location in the
+     * simulation's environment are left behind as the object moves. The first time the object is drawn the
+     * drawables that are only there to be drawn are attached, see {@link #attachDrawables()}.
+     * @param drawn whether the object is drawn
+     */
+    public void setDrawn(boolean drawn) {
+        this.drawn = drawn;
+        if (drawn) {
+            if (!drawablesAttached) {
+                attachDrawables();
+                drawablesAttached = true;
+            }
+            // Make sure we're drawn in the right place
+            portrayal.setTransform(body.getTransform());
+        }
+    }
+
+    public boolean isDrawn() {
+        return drawn;
+    }
+
+    /**
+     * Attaches the drawables that decorate the portrayal, such as the fields of the sensors. Called the first time
+     * the object is drawn, so objects that are never drawn never build them.
+     */
+    protected void attachDrawables() {
+    }
+
+    /**
+     * Moves the object to a new starting position and clears any motion left over from a previous
+     * run so that the same body can be reused rather than rebuilt.
+     * @param position the new position of the body
+     * @param angle the new angle of the body
+     */
+    public void reset(Vec2 position, float angle) {
+        body.setTransform(position, angle);
+        body.getLinearVelocity().setZero();
+        body.setAngularVelocity(0f);
+        body.setAwake(true);
+        if (drawn) {
+            portrayal.setTransform(body.getTransform());
+        }
     }
 
     public Body getBody() {
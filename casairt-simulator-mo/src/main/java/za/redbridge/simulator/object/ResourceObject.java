@@ -20,6 +20,7 @@ import java.util.Iterator;
 
 import sim.engine.SimState;
 import za.redbridge.simulator.Simulation;
+import za.redbridge.simulator.config.SchemaConfig;
 import za.redbridge.simulator.physics.BodyBuilder;
 import za.redbridge.simulator.physics.FilterConstants;
 import za.redbridge.simulator.portrayal.PolygonPortrayal;
@@ -38,6 +39,14 @@ public class ResourceObject extends PhysicalObject {
     private static final Paint DEFAULT__RESOURCE_COLOUR = new Color(2, 12, 156);
     private static final boolean DEBUG = true;
 
+    //adjacent list side (0 L, 1 R, 2 T, 3 B) of each detection point side, for the 4 possible rotation quadrants
+    private static final int[][] SIDES_FOR_QUADRANT = {
+            {0, 1, 2, 3},
+            {3, 2, 0, 1},
+            {1, 0, 3, 2},
+            {2, 3, 1, 0}
+    };
+
     public enum Side {
         LEFT, RIGHT, TOP, BOTTOM
     }
@@ -58,6 +67,8 @@ public class ResourceObject extends PhysicalObject {
     private final int pushingRobots;
     private final double value;
     private String type;
+    private final int typeIndex;
+    private final int typeMask;
 
     private double adjustedValue;
     private boolean isConstructed;
@@ -66,15 +77,16 @@ public class ResourceObject extends PhysicalObject {
 
     private final Map<RobotObject, JointDef> pendingJoints;
     private final Map<RobotObject, Joint> joints;
-    private final Map<Integer, String[]> adjacencyMap;
 
     private final DetectionPoint[] detectionPoints;
     private String[] adjacentList;
+    private final int[] adjacentTypes;
     private ResourceObject[] adjacentResources;
     private boolean connected;
     private ResourceObject closestResource;
 
     private final AABB aabb;
+    private final Paint defaultPaint;
 
     private boolean isAligned = false;
     private boolean isClose = false;
@@ -94,12 +106,15 @@ public class ResourceObject extends PhysicalObject {
         this.pushingRobots = pushingRobots;
         this.value = value;
         this.type = type;
+        this.typeIndex = SchemaConfig.getTypeIndex(type);
+        this.typeMask = SchemaConfig.getTypeMask(type);
         this.fullyWelded = false;
         this.isConstructed = false;
         this.hasMoved = false;
 
         adjustedValue = value;
         aabb = getBody().getFixtureList().getAABB(0);
+        defaultPaint = getPortrayal().getPaint();
 
         leftAnchorPoints = new AnchorPoint[pushingRobots];
         rightAnchorPoints = new AnchorPoint[pushingRobots];
@@ -114,6 +129,7 @@ public class ResourceObject extends PhysicalObject {
         initDetectionPoints();
 
         adjacentList = new String[4];
+        adjacentTypes = new int[4];
         adjacentResources = new ResourceObject[4];
 
         for(int i=0;i<adjacentList.length;i++){
@@ -125,19 +141,10 @@ public class ResourceObject extends PhysicalObject {
 
         joints = new HashMap<>(pushingRobots);
         pendingJoints = new HashMap<>(pushingRobots);
+    }
 
-        //Populate the 4 possible adjacency maps
-        adjacencyMap = new HashMap<>(4);
-        String[] firstQuad = {"L","R","T","B"};
-        String[] secondQuad = {"B","T","L","R"};
-        String[] thirdQuad = {"R","L","B","T"};
-        String[] fourthQuad = {"T","B","R","L"};
-        adjacencyMap.put(0, firstQuad);
-        adjacencyMap.put(1, secondQuad);
-        adjacencyMap.put(2, thirdQuad);
-        adjacencyMap.put(3, fourthQuad);
-
-
+    @Override
+    protected void attachDrawables() {
         if (DEBUG) {
             getPortrayal().setChildDrawable(new DebugPortrayal(Color.BLACK, false));
         }
@@ -272,6 +279,54 @@ public class ResourceObject extends PhysicalObject {
         weldPoints[3] = bottomPoint;
     }
 
+    /**
+     * Returns the resource to its unconstructed state at a new position. Any joints to robots are
+     * destroyed and the body is made dynamic again so it can be reused for another run.
+     * @param position the new position of the resource
+     * @param angle the new angle of the resource
+     */
+    @Override
+    public void reset(Vec2 position, float angle) {
+        for (Map.Entry<RobotObject, Joint> entry : joints.entrySet()) {
+            entry.getKey().setBoundToResource(false);
+            getBody().getWorld().destroyJoint(entry.getValue());
+        }
+        joints.clear();
+        pendingJoints.clear();
+
+        getBody().setType(BodyType.DYNAMIC);
+        super.reset(position, angle);
+        getPortrayal().setPaint(defaultPaint);
+
+        stickySide = null;
+        for (Side side : Side.values()) {
+            for (AnchorPoint anchorPoint : getAnchorPointsForSide(side)) {
+                anchorPoint.taken = false;
+                anchorPoint.worldPosition = null;
+            }
+        }
+        for (WeldPoint weldPoint : weldPoints) {
+            weldPoint.taken = false;
+            weldPoint.worldPosition = null;
+        }
+
+        for (int i = 0; i < adjacentList.length; i++) {
+            adjacentList[i] = "_";
+            adjacentTypes[i] = 0;
+            adjacentResources[i] = null;
+        }
+
+        adjustedValue = value;
+        isConstructed = false;
+        fullyWelded = false;
+        hasMoved = false;
+        closestResource = null;
+        numStepsPushed = 0;
+        czNumber = -1;
+        numSidesConnectedTo = 0;
+        isVisited = false;
+    }
+
     public int getConstructionZoneNumber(){
         return czNumber;
     }
@@ -283,6 +338,7 @@ public class ResourceObject extends PhysicalObject {
     public void updateAdjacent(ArrayList<ResourceObject> resourceArray){
         for(int i=0;i<adjacentList.length;i++){
             adjacentList[i] = "_";
+            adjacentTypes[i] = 0;
             adjacentResources[i] = null;
             numSidesConnectedTo = 0;
         }
@@ -298,7 +354,7 @@ public class ResourceObject extends PhysicalObject {
         }
 
         for (int i = 0; i < adjacentList.length; i++) {
-            numSidesConnectedTo += adjacentList[i].equals("_") ? 0 : 1;
+            numSidesConnectedTo += adjacentTypes[i] == 0 ? 0 : 1;
         }
     }
 
@@ -395,19 +451,7 @@ public class ResourceObject extends PhysicalObject {
             if (detectionPoints[i].isNearCenter(otherResPos)) {
                 result = true;
                 int angleQuadrant = (int)roundAngle(getBody().getAngle());
-                String sideName = adjacencyMap.get(angleQuadrant)[detectionPoints[i].getSide()];
-                if (sideName.equals("L")) {
-                    side = 0;
-                }
-                else if (sideName.equals("R")) {
-                    side = 1;
-                }
-                else if (sideName.equals("T")) {
-                    side = 2;
-                }
-                else {
-                    side = 3;
-                }
+                side = SIDES_FOR_QUADRANT[angleQuadrant][detectionPoints[i].getSide()];
                 break;
             }
         }
@@ -475,6 +519,13 @@ public class ResourceObject extends PhysicalObject {
         return adjacentList;
     }
 
+    /**
+    Type masks of the adjacent resources (left, right, up, down), 0 where a side is empty
+    **/
+    public int [] getAdjacentTypes(){
+        return adjacentTypes;
+    }
+
     /**
     Sets the adjacent lists based on an array of resources taken from the corresponding Von Neumann points in the
     discritized construction space.
@@ -483,6 +534,7 @@ public class ResourceObject extends PhysicalObject {
         for (int i = 0; i < adjRes.length; i++) {
             if (adjRes[i] != null) {
                 adjacentList[i] = adjRes[i].getType();
+                adjacentTypes[i] = adjRes[i].getTypeMask();
                 adjacentResources[i] = adjRes[i];
             }
         }
@@ -491,6 +543,7 @@ public class ResourceObject extends PhysicalObject {
     //ALIGNMENT
     public void setAdjacency (ResourceObject r, String rType, int i) {
         adjacentList[i] = rType;
+        adjacentTypes[i] = r.getTypeMask();
         adjacentResources[i] = r;
     }
 
@@ -515,6 +568,14 @@ public class ResourceObject extends PhysicalObject {
         return type;
     }
 
+    public int getTypeIndex(){
+        return typeIndex;
+    }
+
+    public int getTypeMask(){
+        return typeMask;
+    }
+
     public void setStatic(){
         getBody().setType(BodyType.STATIC);
         getPortrayal().setPaint(Color.GRAY);
@@ -1079,7 +1140,7 @@ public class ResourceObject extends PhysicalObject {
     public int getNumConnected(){
         int connected = 0;
         for(int i=0;i<4;i++){
-            if(!adjacentList[i].equals("_")){
+            if(adjacentTypes[i] != 0){
                 connected++;
             }
         }
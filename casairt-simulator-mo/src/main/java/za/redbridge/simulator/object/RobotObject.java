@@ -17,9 +17,11 @@ import java.util.List;
 import sim.engine.SimState;
 import sim.portrayal.DrawInfo2D;
 import sim.util.Double2D;
+import za.redbridge.simulator.Simulation;
 import za.redbridge.simulator.config.SimConfig;
 import za.redbridge.simulator.phenotype.HeuristicPhenotype;
 import za.redbridge.simulator.phenotype.Phenotype;
+import za.redbridge.simulator.phenotype.ShareablePhenotype;
 import za.redbridge.simulator.physics.BodyBuilder;
 import za.redbridge.simulator.physics.FilterConstants;
 import za.redbridge.simulator.portrayal.CirclePortrayal;
@@ -52,6 +54,10 @@ public class RobotObject extends PhysicalObject {
     private final Phenotype phenotype;
     private final HeuristicPhenotype heuristicPhenotype;
 
+    // the sensors' readings, updated in place each time they sense
+    private final List<AgentSensor> sensors;
+    private final List<List<Double>> readings;
+
     private final Vec2 leftWheelPosition;
     private final Vec2 rightWheelPosition;
 
@@ -61,6 +67,10 @@ public class RobotObject extends PhysicalObject {
 
     private boolean isBoundToResource = false;
 
+    // if true, the controller is stepped with the rest of the team after every robot has sensed
+    private boolean teamInference = false;
+    private boolean awaitingDrive = false;
+
     private final Color defaultColor;
 
     private ArrayList<SpatialPoint> samplePoints;
@@ -89,6 +99,12 @@ public class RobotObject extends PhysicalObject {
         heuristicPhenotype = new HeuristicPhenotype(phenotype, this);
         initSensors();
 
+        sensors = phenotype.getSensors();
+        readings = new ArrayList<>(sensors.size());
+        for (AgentSensor sensor : sensors) {
+            readings.add(sensor.getPreviousReadings());
+        }
+
         float wheelDistance = (float) (radius * WHEEL_DISTANCE);
         leftWheelPosition = new Vec2(0f, wheelDistance);
         rightWheelPosition = new Vec2(0f, -wheelDistance);
@@ -106,7 +122,10 @@ public class RobotObject extends PhysicalObject {
         {
             sensor.attach(this); // Bug is fixed :)
         }
+    }
 
+    @Override
+    protected void attachDrawables() {
         getPortrayal().setChildDrawable(new Drawable() {
             @Override
             public void draw(Object object, Graphics2D graphics, DrawInfo2D info) {
@@ -152,6 +171,12 @@ public class RobotObject extends PhysicalObject {
                 .build(world);
     }
 
+    private void senseAll() {
+        for (int i = 0; i < sensors.size(); i++) {
+            sensors.get(i).sense();
+        }
+    }
+
     public float getRadius() {
         return (float) ((CirclePortrayal) getPortrayal()).getRadius();
     }
@@ -164,30 +189,33 @@ public class RobotObject extends PhysicalObject {
         // System.out.println(getBody().getPosition().x+", "+getBody().getPosition().y);
 
         if(energy_level <= 0) return;
-        List<AgentSensor> sensors = phenotype.getSensors();
-        List<List<Double>> readings = new ArrayList<>(sensors.size());
-        sensors.forEach(s -> readings.add(s.sense()));
+        senseAll();
 
         // for(List<Double> reading : readings){
         //     System.out.println(reading);
         // }
 
-        // get readings from heuristic phenotype
-        Double2D wheelDrives = heuristicPhenotype.step(readings);
-
-        //get readings just from phenotype
-        // Double2D wheelDrives = phenotype.step(readings);
-
-        if (Math.abs(wheelDrives.x) > 1.0 || Math.abs(wheelDrives.y) > 1.0) {
-            throw new RuntimeException("Invalid force applied: " + wheelDrives);
+        if (isTeamInference()) {
+            // the controller's drives are applied later by applyControllerDrive
+            Double2D wheelDrives = heuristicPhenotype.stepHeuristics(readings);
+            if (wheelDrives != null) {
+                drive(wheelDrives.x, wheelDrives.y);
+            }
+            else {
+                awaitingDrive = true;
+            }
         }
+        else {
+            // get readings from heuristic phenotype
+            Double2D wheelDrives = heuristicPhenotype.step(readings);
 
-        applyWheelDrive((float) wheelDrives.x, leftWheelPosition);
-        applyWheelDrive((float) wheelDrives.y, rightWheelPosition);
+            //get readings just from phenotype
+            // Double2D wheelDrives = phenotype.step(readings);
 
-        updateFriction();
+            drive(wheelDrives.x, wheelDrives.y);
+        }
 
-        if (sim.schedule.getSteps() % 50 == 0 && !heuristicPhenotype.getActiveHeuristic().equalsIgnoreCase("none")) {
+        if (((Simulation) sim).getStepNumber() % 50 == 0 && !heuristicPhenotype.getActiveHeuristic().equalsIgnoreCase("none")) {
             SpatialPoint sample = new SpatialPoint(this.getBody().getPosition(), samplePoints);
             samplePoints.add(sample);
             //after collecting 4 points (or something), calculate area and flush sample point buffer
@@ -203,6 +231,46 @@ public class RobotObject extends PhysicalObject {
 //        consumeEnergy();
     }
 
+    private void drive(double left, double right) {
+        if (Math.abs(left) > 1.0 || Math.abs(right) > 1.0) {
+            throw new RuntimeException("Invalid force applied: " + new Double2D(left, right));
+        }
+
+        applyWheelDrive((float) left, leftWheelPosition);
+        applyWheelDrive((float) right, rightWheelPosition);
+
+        updateFriction();
+    }
+
+    /**
+     * Applies the wheel drives the controller chose for the current step. Only used when the
+     * controller is stepped with the rest of the team.
+     * @param left the left wheel drive
+     * @param right the right wheel drive
+     */
+    public void applyControllerDrive(double left, double right) {
+        awaitingDrive = false;
+        drive(left, right);
+    }
+
+    /** True if the controller has to be stepped before this robot can move this step. */
+    public boolean isAwaitingDrive() {
+        return awaitingDrive;
+    }
+
+    /** True if this robot's controller is stepped with the rest of the team. */
+    public boolean isTeamInference() {
+        return teamInference && phenotype instanceof ShareablePhenotype;
+    }
+
+    /**
+     * If set true, the robot only senses and steps its heuristics when it is stepped. The
+     * controller is stepped later for every robot sharing it at once.
+     */
+    public void setTeamInference(boolean teamInference) {
+        this.teamInference = teamInference;
+    }
+
     private void applyWheelDrive(float wheelDrive, Vec2 wheelPosition) {
         final Body body = getBody();
 
@@ -268,6 +336,26 @@ public class RobotObject extends PhysicalObject {
                 * -getBody().getAngularVelocity());
      }
 
+    /**
+     * Moves the robot to a new starting position and clears its per-run state. The sensors stay
+     * attached to the body so they do not need to be recreated.
+     * @param position the new position of the robot
+     * @param angle the new angle of the robot
+     */
+    @Override
+    public void reset(Vec2 position, float angle) {
+        super.reset(position, angle);
+        isBoundToResource = false;
+        awaitingDrive = false;
+        samplePoints.clear();
+        samplePolygonAreas.clear();
+        energy_level = init_energy_level;
+        consumption_modifier = 0;
+        pickupCounter = 0;
+        heuristicPhenotype.reset();
+        setColor(null);
+    }
+
     public boolean isBoundToResource() {
         return isBoundToResource;
     }
@@ -414,9 +502,7 @@ public class RobotObject extends PhysicalObject {
             sensor_consumption += sensor.getConsumption();
         }
 
-        List<AgentSensor> sensors = phenotype.getSensors();
-        List<List<Double>> readings = new ArrayList<>(sensors.size());
-        sensors.forEach(s -> readings.add(s.sense()));
+        senseAll();
         Double2D wheelDrives = heuristicPhenotype.step(readings);
         // Double2D wheelDrives = phenotype.step(readings);
 
@@ -91,13 +91,27 @@ public class HeuristicPhenotype implements Phenotype, Drawable {
 
     @Override
     public Double2D step(List<List<Double>> list) {
+        Double2D wheelDrives = stepHeuristics(list);
+
+        if (wheelDrives == null) {
+            // else move using controller
+            wheelDrives = controllerPhenotype.step(list);
+        }
+
+        return wheelDrives;
+    }
+
+    /**
+     * Steps the heuristics only, leaving the controller to be stepped separately.
+     * @param list the sensor readings
+     * @return the wheel drives chosen by a heuristic, or null if the controller should move the robot
+     */
+    public Double2D stepHeuristics(List<List<Double>> list) {
         // check if heuristic decision
         Double2D wheelDrives = schedule.step(list);
 
         if (wheelDrives == null) {
             robot.setColor(null);
-            // else move using controller
-            wheelDrives = controllerPhenotype.step(list);
         }
 
         return wheelDrives;
@@ -129,5 +143,10 @@ public class HeuristicPhenotype implements Phenotype, Drawable {
         }
     }
 
+    /** Clears any state the heuristics have built up during a run. */
+    public void reset() {
+        schedule.reset();
+    }
+
     public String getActiveHeuristic() { return schedule.getActiveHeuristic(); }
 }
@@ -0,0 +1,28 @@
+package za.redbridge.simulator.phenotype;
+
+/**
+ * A phenotype whose controller is stateless and can be shared by several robots, so that a whole
+ * team using the same controller can be evaluated in one batch rather than robot by robot.
+ */
+public interface ShareablePhenotype extends Phenotype {
+
+    /**
+     * Phenotypes returning the same controller give the same wheel drives for the same inputs and
+     * may be evaluated together.
+     * @return the controller of this phenotype
+     */
+    Object getSharedController();
+
+    /**
+     * @return the controller inputs, filled in place by this phenotype's sensors when they sense
+     */
+    double[] getInputs();
+
+    /**
+     * Evaluate the shared controller for a batch of robots.
+     * @param inputs the inputs of each robot, one row of {@link #getInputs()}.length values per robot
+     * @param batchSize the number of robots
+     * @param wheelDrives filled with the left and right wheel drive of each robot
+     */
+    void stepBatch(double[] inputs, int batchSize, double[] wheelDrives);
+}
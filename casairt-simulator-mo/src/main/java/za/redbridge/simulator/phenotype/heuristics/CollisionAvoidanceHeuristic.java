@@ -139,6 +139,11 @@ public class CollisionAvoidanceHeuristic extends Heuristic {
         return targetPoint;
     }
 
+    @Override
+    void reset() {
+        targetPoint = null;
+    }
+
     @Override
     Color getColor() {
         return COLOR;
@@ -37,6 +37,12 @@ public abstract class Heuristic implements Comparable<Heuristic> {
 
     abstract Double2D step(List<List<Double>> list);
 
+    /**
+     * Clear any state held between steps. Called when the robot is reused for a new run.
+     */
+    void reset() {
+    }
+
     /**
      * Color used to change colour of robot as each heuristic takes over.
      * @return the color to colour the agent when the heuristic returns a value
@@ -42,6 +42,13 @@ public class HeuristicSchedule {
         return wheelDrive;
     }
 
+    /** Resets the state of every heuristic in the schedule so it can be reused for a new run. */
+    public void reset() {
+        schedule.forEach(Heuristic::reset);
+        addList.forEach(Heuristic::reset);
+        activeHeuristic = "none";
+    }
+
     public void addHeuristic(Heuristic heuristic) {
         if (!addList.contains(heuristic)) {
             addList.add(heuristic);
@@ -98,6 +98,13 @@ public class PickupHeuristic extends Heuristic {
         return null;
     }
 
+    @Override
+    void reset() {
+        resetCounter(null);
+        currentResource = null;
+        stuckResource = null;
+    }
+
     public void resetCounter(ResourceObject resource){
         SimStepCount = 0;
         if(resource != null){ // set to the remaining pushing robots
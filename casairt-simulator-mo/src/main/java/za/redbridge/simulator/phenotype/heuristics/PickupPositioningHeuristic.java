@@ -63,6 +63,11 @@ public class PickupPositioningHeuristic extends Heuristic {
         return null;
     }
 
+    @Override
+    void reset() {
+        targetPoint = null;
+    }
+
     @Override
     Color getColor() {
         return COLOR;
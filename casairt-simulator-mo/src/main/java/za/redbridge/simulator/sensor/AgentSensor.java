@@ -47,8 +47,21 @@ public abstract class AgentSensor extends Sensor<List<Double>> {
     protected Map<String, Object> additionalConfigs = null;
 
     private final List<SensedObject> sensedObjects = new ArrayList<>();
-    private final List<Double> readings = new ArrayList<>();
-    private final List<Double> unmodifiableReadings = Collections.unmodifiableList(readings);
+    private SensorReading readings;
+    private List<Double> unmodifiableReadings;
+
+    // Sensed objects and raycasting state reused between readings
+    private final List<CircleSensedObject> circlePool = new ArrayList<>();
+    private final List<PolygonSensedObject> polygonPool = new ArrayList<>();
+    private final List<EdgeSensedObject> edgePool = new ArrayList<>();
+    private int circlesUsed;
+    private int polygonsUsed;
+    private int edgesUsed;
+    private final RayCastInput rayCastInput = new RayCastInput();
+    private final RayCastOutput rayCastOutput = new RayCastOutput();
+    private final AABB polygonAABB = new AABB();
+    private final Vec2 edgeVertex1 = new Vec2();
+    private final Vec2 edgeVertex2 = new Vec2();
     public static String name = "Sensor";
 
     private final static float default_consumption_rate = 0.02f;
@@ -132,10 +145,13 @@ public abstract class AgentSensor extends Sensor<List<Double>> {
     protected List<Double> provideReading(List<Fixture> fixtures) {
         final List<SensedObject> sensedObjects = this.sensedObjects;
         sensedObjects.clear();
+        circlesUsed = 0;
+        polygonsUsed = 0;
+        edgesUsed = 0;
 
         // Sense each fixture and filter out those that can't be sensed
-        for (Fixture fixture : fixtures) {
-            SensedObject object = senseFixture(fixture);
+        for (int i = 0; i < fixtures.size(); i++) {
+            SensedObject object = senseFixture(fixtures.get(i));
             if (object != null) {
                 sensedObjects.add(object);
             }
@@ -145,14 +161,15 @@ public abstract class AgentSensor extends Sensor<List<Double>> {
         Collections.sort(sensedObjects);
 
         // Clear the previous readings
-        final List<Double> readings = this.readings;
+        final SensorReading readings = getReadings();
         readings.clear();
 
         // Convert to an actual reading in a subclass
         provideObjectReading(sensedObjects, readings);
+        readings.fillRemaining();
 
         // Return an unmodifiable view of the readings produced
-        return unmodifiableReadings;
+        return getPreviousReadings();
     }
 
     /**
@@ -160,9 +177,29 @@ public abstract class AgentSensor extends Sensor<List<Double>> {
      * @return An unmodifiable list of the previous readings of this sensor
      */
     public List<Double> getPreviousReadings() {
+        getReadings();
         return unmodifiableReadings;
     }
 
+    private SensorReading getReadings() {
+        // Created lazily as subclasses only know their reading size once constructed
+        if (readings == null) {
+            readings = new SensorReading(getReadingSize());
+            unmodifiableReadings = Collections.unmodifiableList(readings);
+        }
+        return readings;
+    }
+
+    /**
+     * Write this sensor's readings into a slice of a shared buffer, such as a morphology's input
+     * buffer, instead of the sensor's own buffer.
+     * @param buffer the buffer to write to
+     * @param offset the index of this sensor's first reading in the buffer
+     */
+    public void setReadingBuffer(double[] buffer, int offset) {
+        getReadings().setBuffer(buffer, offset);
+    }
+
     /**
      * Determines whether an object lies within the field of the sensor and if so where in the field
      * the object exists.
@@ -224,8 +261,11 @@ public abstract class AgentSensor extends Sensor<List<Double>> {
             distance = objectRelativeTransform.p.length() - radius;
         }
 
-        return new CircleSensedObject(getFixtureObject(circleFixture), distance, radius, x, y, x0,
-                y0, x1, y1);
+        if (circlesUsed == circlePool.size()) {
+            circlePool.add(new CircleSensedObject());
+        }
+        return circlePool.get(circlesUsed++).set(getFixtureObject(circleFixture), distance, radius,
+                x, y, x0, y0, x1, y1);
     }
 
     private float lineCircleIntersection(float m, float c, float p, float q, float r) {
@@ -240,10 +280,13 @@ public abstract class AgentSensor extends Sensor<List<Double>> {
             Transform objectRelativeTransform) {
         PolygonShape polygonShape = (PolygonShape) polygonFixture.getShape();
 
-        RayCastInput rin = new RayCastInput();
+        RayCastInput rin = rayCastInput;
+        rin.p1.setZero();
+        rin.p2.set(range, 0f);
         rin.maxFraction = 1f;
-        rin.p2.x = range;
-        RayCastOutput rout = new RayCastOutput();
+        RayCastOutput rout = rayCastOutput;
+        rout.normal.setZero();
+        rout.fraction = 0f;
         polygonShape.raycast(rout, rin, objectRelativeTransform, 0);
 
         // If raycast down the middle unsuccessful, try the edges of the field of view
@@ -267,7 +310,7 @@ public abstract class AgentSensor extends Sensor<List<Double>> {
 
         float distance = rout.fraction * range;
 
-        AABB aabb = new AABB();
+        AABB aabb = polygonAABB;
         polygonShape.computeAABB(aabb, objectRelativeTransform, 0);
         float x0 = aabb.lowerBound.x;
         float y0 = aabb.lowerBound.y;
@@ -293,8 +336,11 @@ public abstract class AgentSensor extends Sensor<List<Double>> {
             y1 = yMax;
         }
 
-        return new PolygonSensedObject(getFixtureObject(polygonFixture), distance, x0, y0, x1 - x0,
-                y1 - y0);
+        if (polygonsUsed == polygonPool.size()) {
+            polygonPool.add(new PolygonSensedObject());
+        }
+        return polygonPool.get(polygonsUsed++).set(getFixtureObject(polygonFixture), distance, x0,
+                y0, x1 - x0, y1 - y0);
     }
 
     protected SensedObject senseEdgeFixture(Fixture edgeFixture,
@@ -302,8 +348,10 @@ public abstract class AgentSensor extends Sensor<List<Double>> {
         EdgeShape edgeShape = (EdgeShape) edgeFixture.getShape();
 
         // Transform ends of edge to space relative to sensor
-        Vec2 v1 = Transform.mul(objectRelativeTransform, edgeShape.m_vertex1);
-        Vec2 v2 = Transform.mul(objectRelativeTransform, edgeShape.m_vertex2);
+        Vec2 v1 = edgeVertex1;
+        Vec2 v2 = edgeVertex2;
+        Transform.mulToOut(objectRelativeTransform, edgeShape.m_vertex1, v1);
+        Transform.mulToOut(objectRelativeTransform, edgeShape.m_vertex2, v2);
 
         // Check if vertical or horizontal line to prevent division by zero
         float dy = v2.y - v1.y;
@@ -387,7 +435,11 @@ public abstract class AgentSensor extends Sensor<List<Double>> {
             }
         }
 
-        return new EdgeSensedObject(getFixtureObject(edgeFixture), distance, x1, y1, x2, y2);
+        if (edgesUsed == edgePool.size()) {
+            edgePool.add(new EdgeSensedObject());
+        }
+        return edgePool.get(edgesUsed++).set(getFixtureObject(edgeFixture), distance, x1, y1, x2,
+                y2);
     }
 
     /**
@@ -404,10 +456,10 @@ public abstract class AgentSensor extends Sensor<List<Double>> {
      * Converts a list of objects that have been determined to fall within the sensor's range into
      * a list of readings in the range [0.0, 1.0].
      * @param objects the objects in the sensor's field, *sorted by distance*
-     * @param output the output vector for this sensor. Write the sensor output to this list (which
-     *               should be empty).
+     * @param output the output vector for this sensor. Write the sensor output to this reading
+     *               (which will be empty).
      */
-    protected abstract void provideObjectReading(List<SensedObject> objects, List<Double> output);
+    protected abstract void provideObjectReading(List<SensedObject> objects, SensorReading output);
 
     public abstract void readAdditionalConfigs(Map<String, Object> map) throws ParseException;
 
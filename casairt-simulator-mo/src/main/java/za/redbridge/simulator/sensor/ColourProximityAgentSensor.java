@@ -13,7 +13,7 @@ import za.redbridge.simulator.sensor.sensedobjects.SensedObject;
 
 public class ColourProximityAgentSensor extends AgentSensor {
 
-    private static final int readingSize = 1;
+    private static final int readingSize = 3;
 
     public ColourProximityAgentSensor(float bearing) {
         this(bearing, 0.0f, 30.0f, 0.1f);
@@ -25,7 +25,7 @@ public class ColourProximityAgentSensor extends AgentSensor {
     }
 
     @Override
-    protected void provideObjectReading(List<SensedObject> objects, List<Double> output) {
+    protected void provideObjectReading(List<SensedObject> objects, SensorReading output) {
         output.add(0.0);
         output.add(0.0);
         output.add(0.0);
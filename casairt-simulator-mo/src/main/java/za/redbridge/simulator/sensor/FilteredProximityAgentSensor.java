@@ -32,7 +32,7 @@ public class FilteredProximityAgentSensor extends AgentSensor {
     }
 
     @Override
-    protected void provideObjectReading(List<SensedObject> objects, List<Double> output) {
+    protected void provideObjectReading(List<SensedObject> objects, SensorReading output) {
         for(SensedObject o : objects){
             if(!whitelist.contains(o.getObject().getClass())){
                 objects.remove(o);
@@ -22,7 +22,7 @@ public class ProximityAgentSensor extends AgentSensor {
     }
 
     @Override
-    protected void provideObjectReading(List<SensedObject> objects, List<Double> output) {
+    protected void provideObjectReading(List<SensedObject> objects, SensorReading output) {
         double reading = 0.0;
         if (!objects.isEmpty()) {
             reading = 1 - Math.min(objects.get(0).getDistance() / range, 1.0);
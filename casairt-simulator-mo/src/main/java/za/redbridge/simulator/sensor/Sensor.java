@@ -40,6 +40,7 @@ public abstract class Sensor<T> implements Collideable {
     private final Transform cachedObjectRelativeTransform = new Transform();
 
     private final List<Fixture> sensedFixtures = new ArrayList<>();
+    private final List<Fixture> filteredFixtures = new ArrayList<>();
 
     public Sensor() {
     }
@@ -58,8 +59,10 @@ public abstract class Sensor<T> implements Collideable {
         // Invalidate the cached transform
         cachedSensorTransformValid = false;
 
-        List<Fixture> fixtures = new ArrayList<>(sensedFixtures.size());
-        for (Fixture fixture : sensedFixtures) {
+        List<Fixture> fixtures = filteredFixtures;
+        fixtures.clear();
+        for (int i = 0; i < sensedFixtures.size(); i++) {
+            Fixture fixture = sensedFixtures.get(i);
             PhysicalObject obj = (PhysicalObject) fixture.getBody().getUserData();
             if (!filterOutObject(obj)) {
                 fixtures.add(fixture);
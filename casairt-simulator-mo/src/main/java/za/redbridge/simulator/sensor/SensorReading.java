@@ -0,0 +1,97 @@
+package za.redbridge.simulator.sensor;
+
+import java.util.AbstractList;
+
+/**
+ * The readings of a single sensor, stored in a slice of a primitive buffer. The buffer is usually
+ * the input buffer of the sensor's {@link za.redbridge.simulator.Morphology} so that readings can
+ * be fed to a controller without being copied or boxed. Can be read as a list of Doubles where a
+ * boxed view is needed.
+ */
+public class SensorReading extends AbstractList<Double> {
+
+    private final int capacity;
+
+    private double[] buffer;
+    private int offset;
+    private int count;
+
+    /**
+     * Create a reading with its own buffer.
+     * @param capacity the number of readings the sensor produces
+     */
+    public SensorReading(int capacity) {
+        this.capacity = capacity;
+        this.buffer = new double[capacity];
+        this.offset = 0;
+    }
+
+    /**
+     * Store the readings in a slice of another buffer from now on.
+     * @param buffer the buffer to write to
+     * @param offset the index of the first reading in the buffer
+     */
+    public void setBuffer(double[] buffer, int offset) {
+        if (offset < 0 || offset + capacity > buffer.length) {
+            throw new IllegalArgumentException("Slice of " + capacity + " readings at " + offset
+                    + " does not fit in a buffer of length " + buffer.length);
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    /** Remove the previous readings. */
+    @Override
+    public void clear() {
+        count = 0;
+    }
+
+    /** Append a reading. */
+    public void add(double reading) {
+        if (count == capacity) {
+            throw new IllegalStateException("Sensor produced more than " + capacity + " readings");
+        }
+        buffer[offset + count++] = reading;
+    }
+
+    @Override
+    public boolean add(Double reading) {
+        add(reading.doubleValue());
+        return true;
+    }
+
+    /** Replace a reading that has already been added. */
+    public void set(int index, double reading) {
+        checkIndex(index);
+        buffer[offset + index] = reading;
+    }
+
+    /** Get a reading without boxing it. */
+    public double getReading(int index) {
+        checkIndex(index);
+        return buffer[offset + index];
+    }
+
+    /** Zero the slots of the slice that were not written by the last reading. */
+    void fillRemaining() {
+        for (int i = count; i < capacity; i++) {
+            buffer[offset + i] = 0.0;
+        }
+    }
+
+    @Override
+    public Double get(int index) {
+        return getReading(index);
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+    }
+}
@@ -99,7 +99,7 @@ public class ThresholdedObjectProximityAgentSensor extends AdjustableSensitivity
     }
 
     @Override
-    protected void provideObjectReading(List<SensedObject> objects, List<Double> output) {
+    protected void provideObjectReading(List<SensedObject> objects, SensorReading output) {
 
         double reading = 0.0;
 
@@ -11,13 +11,13 @@ import za.redbridge.simulator.object.PhysicalObject;
  */
 public class CircleSensedObject extends SensedObject<Arc2D> {
 
-    private final float radius;
-    private final float x;
-    private final float y;
-    private final float x0;
-    private final float y0;
-    private final float x1;
-    private final float y1;
+    private float radius;
+    private float x;
+    private float y;
+    private float x0;
+    private float y0;
+    private float x1;
+    private float y1;
 
     private Arc2D shape;
 
@@ -33,6 +33,26 @@ public class CircleSensedObject extends SensedObject<Arc2D> {
         this.y1 = y1;
     }
 
+    /** Create an empty instance to be filled in with {@link #set}. */
+    public CircleSensedObject() {
+        super(null, 0f);
+    }
+
+    /** Reuse this instance for another detection. */
+    public CircleSensedObject set(PhysicalObject object, float distance, float radius,
+            float x, float y, float x0, float y0, float x1, float y1) {
+        set(object, distance);
+        this.radius = radius;
+        this.x = x;
+        this.y = y;
+        this.x0 = x0;
+        this.y0 = y0;
+        this.x1 = x1;
+        this.y1 = y1;
+        shape = null;
+        return this;
+    }
+
     @Override
     public Arc2D getShape() {
         if (shape == null) {
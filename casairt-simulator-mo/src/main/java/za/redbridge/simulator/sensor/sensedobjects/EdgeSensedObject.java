@@ -11,10 +11,10 @@ import za.redbridge.simulator.object.PhysicalObject;
  */
 public class EdgeSensedObject extends SensedObject<Line2D> {
 
-    private final float x0;
-    private final float y0;
-    private final float x1;
-    private final float y1;
+    private float x0;
+    private float y0;
+    private float x1;
+    private float y1;
 
     private Line2D shape;
 
@@ -28,6 +28,23 @@ public class EdgeSensedObject extends SensedObject<Line2D> {
         this.y1 = y1;
     }
 
+    /** Create an empty instance to be filled in with {@link #set}. */
+    public EdgeSensedObject() {
+        super(null, 0f);
+    }
+
+    /** Reuse this instance for another detection. */
+    public EdgeSensedObject set(PhysicalObject object, float distance, float x0, float y0,
+            float x1, float y1) {
+        set(object, distance);
+        this.x0 = x0;
+        this.y0 = y0;
+        this.x1 = x1;
+        this.y1 = y1;
+        shape = null;
+        return this;
+    }
+
     @Override
     public Line2D getShape() {
         if (shape == null) {
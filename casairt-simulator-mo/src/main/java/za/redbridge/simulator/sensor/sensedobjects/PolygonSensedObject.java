@@ -12,10 +12,10 @@ import za.redbridge.simulator.object.PhysicalObject;
  */
 public class PolygonSensedObject extends SensedObject<Rectangle2D> {
 
-    private final float x;
-    private final float y;
-    private final float w;
-    private final float h;
+    private float x;
+    private float y;
+    private float w;
+    private float h;
 
     private Rectangle2D shape;
 
@@ -38,6 +38,23 @@ public class PolygonSensedObject extends SensedObject<Rectangle2D> {
         this.h = h;
     }
 
+    /** Create an empty instance to be filled in with {@link #set}. */
+    public PolygonSensedObject() {
+        super(null, 0f);
+    }
+
+    /** Reuse this instance for another detection. */
+    public PolygonSensedObject set(PhysicalObject object, float distance, float x, float y,
+            float w, float h) {
+        set(object, distance);
+        this.x = x;
+        this.y = y;
+        this.w = w;
+        this.h = h;
+        shape = null;
+        return this;
+    }
+
     @Override
     public Rectangle2D getShape() {
         if (shape == null) {
@@ -9,14 +9,20 @@ import za.redbridge.simulator.object.PhysicalObject;
  */
 public abstract class SensedObject<T extends Shape> implements Comparable<SensedObject> {
 
-    protected final PhysicalObject object;
-    protected final float distance;
+    protected PhysicalObject object;
+    protected float distance;
 
     public SensedObject(PhysicalObject object, float distance) {
         this.object = object;
         this.distance = distance;
     }
 
+    /** Reassign the detected object so that instances can be pooled and reused. */
+    protected void set(PhysicalObject object, float distance) {
+        this.object = object;
+        this.distance = distance;
+    }
+
     /** Get the detected object. */
     public PhysicalObject getObject() {
         return object;